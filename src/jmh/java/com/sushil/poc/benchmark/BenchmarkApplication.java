@@ -0,0 +1,77 @@
+package com.sushil.poc.benchmark;
+
+import com.sushil.poc.SushilPocApplication;
+import com.sushil.poc.model.Trade;
+import com.sushil.poc.sync.MongoTradeWriter;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Starts the application for benchmarks and load tests: in-memory H2 and a
+ * stand-in Mongo writer, so the outbox relay (or the write-behind) runs as
+ * usual but nothing leaves the JVM. The stand-in replaces the
+ * {@code mongoTradeWriter} bean rather than sitting next to it, so it is the
+ * relay's only sink.
+ */
+public final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    /**
+     * Starts the application without a web server.
+     */
+    public static ConfigurableApplicationContext start() {
+        return start(WebApplicationType.NONE);
+    }
+
+    /**
+     * Starts the application; a servlet web server listens on a random port
+     * (see {@code local.server.port}) with the actuator metrics endpoint exposed.
+     */
+    public static ConfigurableApplicationContext start(WebApplicationType webApplicationType) {
+        return new SpringApplicationBuilder(SushilPocApplication.class, StandInMongoConfig.class)
+                .web(webApplicationType)
+                .properties(
+                        "server.port=0",
+                        "management.endpoints.web.exposure.include=health,metrics",
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=validate",
+                        // A single instance, so the cache may serve version checks
+                        "trade.cache.version-checks=true",
+                        // Lets StandInMongoConfig replace the scanned mongoTradeWriter
+                        "spring.main.allow-bean-definition-overriding=true",
+                        "spring.data.mongodb.uri=mongodb://localhost:27017/benchmark?serverSelectionTimeoutMS=200",
+                        // Per-trade INFO logging would otherwise dominate the measurements
+                        "logging.level.com.sushil.poc=WARN",
+                        "logging.level.org.mongodb.driver=ERROR")
+                .run();
+    }
+
+    @Configuration
+    static class StandInMongoConfig {
+        @Bean
+        MongoTradeWriter mongoTradeWriter(MongoTemplate mongoTemplate) {
+            return new MongoTradeWriter(mongoTemplate) {
+                @Override
+                public void upsertAll(Collection<Trade> trades) {
+                    // Accept and discard, as an always-available Mongo would
+                }
+
+                @Override
+                public void markExpired(Collection<Long> ids) {
+                }
+
+                @Override
+                public void apply(Collection<String> tradeIds, List<Trade> current) {
+                }
+            };
+        }
+    }
+}
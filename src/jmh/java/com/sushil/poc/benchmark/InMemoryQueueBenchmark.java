@@ -0,0 +1,93 @@
+package com.sushil.poc.benchmark;
+
+import com.sushil.poc.metrics.QueueMetrics;
+import com.sushil.poc.model.Trade;
+import com.sushil.poc.queue.InMemoryQueue;
+import com.sushil.poc.queue.QueueProperties;
+import com.sushil.poc.queue.TradeWal;
+import com.sushil.poc.service.TradeOutcome;
+import com.sushil.poc.service.TradeService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Sustained offer and drain throughput of {@link InMemoryQueue}: producers
+ * block on a full queue, so the score is bounded by how fast the consumers
+ * drain it. The consumers hand batches to a no-op service, which isolates the
+ * queue from persistence. Run with {@code -prof gc} to compare allocation per
+ * send between the linked and ring lane types.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class InMemoryQueueBenchmark {
+    private static final int DISTINCT_TRADES = 1024;
+
+    @Param({"shared", "partitioned"})
+    public String mode;
+
+    @Param({"linked", "ring"})
+    public String type;
+
+    private InMemoryQueue queue;
+    private Trade[] trades;
+
+    @Setup(Level.Trial)
+    public void start() {
+        QueueMetrics metrics = new QueueMetrics(new SimpleMeterRegistry());
+        TradeWal wal = new TradeWal(metrics, false, "target/benchmark-wal", 64 << 20, 10, true);
+        QueueProperties properties = new QueueProperties();
+        properties.setCapacity(10000);
+        properties.setMode(mode);
+        properties.setPartitions(4);
+        properties.setConsumers(4);
+        properties.setType(type);
+        properties.getShutdown().setDrainTimeoutMs(0);
+        queue = new InMemoryQueue(noOpTradeService(), metrics, wal, properties, false);
+        queue.startConsumer();
+        trades = new Trade[DISTINCT_TRADES];
+        for (int i = 0; i < DISTINCT_TRADES; i++) {
+            Trade trade = new Trade();
+            trade.setTradeId("Q-" + i);
+            trade.setVersion(1);
+            trade.setMaturityDate(LocalDate.now().plusYears(1));
+            trades[i] = trade;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        queue.stop();
+    }
+
+    @State(Scope.Thread)
+    public static class Producer {
+        int next;
+    }
+
+    @Benchmark
+    public boolean send(Producer producer) throws InterruptedException {
+        Trade trade = trades[producer.next++ & (DISTINCT_TRADES - 1)];
+        return queue.send(trade, 1, TimeUnit.SECONDS);
+    }
+
+    // Stub-only: the mock keeps no record of the millions of calls it receives
+    private static TradeService noOpTradeService() {
+        TradeService service = mock(TradeService.class, withSettings().stubOnly());
+        when(service.acceptTrades(anyList())).thenAnswer(invocation ->
+                Collections.nCopies(invocation.<List<Trade>>getArgument(0).size(), TradeOutcome.ACCEPTED));
+        return service;
+    }
+}
@@ -0,0 +1,71 @@
+package com.sushil.poc.benchmark;
+
+import com.sushil.poc.exception.LowerVersionException;
+import com.sushil.poc.model.Trade;
+import com.sushil.poc.service.TradeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link TradeService#acceptTrade(Trade)} end to end against H2: version
+ * check, upsert, cache update and write-behind hand-off. Trades cycle over
+ * {@code tradeIds} ids with ever-increasing versions, so after warm-up most
+ * version checks are served by the trade cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TradeServiceBenchmark {
+    @Param({"10000"})
+    public int tradeIds;
+
+    private ConfigurableApplicationContext context;
+    private TradeService tradeService;
+    private final AtomicLong sequence = new AtomicLong();
+    private final LocalDate maturity = LocalDate.now().plusYears(1);
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApplication.start();
+        tradeService = context.getBean(TradeService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Trade acceptTrade() {
+        return accept();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Trade acceptTradeConcurrent() {
+        return accept();
+    }
+
+    private Trade accept() {
+        long n = sequence.getAndIncrement();
+        Trade trade = new Trade();
+        trade.setTradeId("B-" + (n % tradeIds));
+        trade.setVersion((int) (n / tradeIds) + 1);
+        trade.setCounterPartyId("CP-1");
+        trade.setBookId("B1");
+        trade.setMaturityDate(maturity);
+        try {
+            return tradeService.acceptTrade(trade);
+        } catch (LowerVersionException e) {
+            // Concurrent threads can overtake each other on the same tradeId
+            return null;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.sushil.poc.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads application meters through the actuator metrics endpoint, so the same
+ * code works in-process and against a remote instance. Requires
+ * {@code management.endpoints.web.exposure.include} to contain {@code metrics};
+ * lookups return null when it does not.
+ */
+final class ActuatorMetrics {
+    private final HttpClient client;
+    private final String baseUrl;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    ActuatorMetrics(HttpClient client, String baseUrl) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * @param tag optional {@code name:value} tag filter
+     * @return first measurement of the meter, or null if unavailable
+     */
+    Double value(String metric, String tag) {
+        JsonNode json = get(metric, tag);
+        if (json == null || json.path("measurements").size() == 0) {
+            return null;
+        }
+        return json.path("measurements").get(0).path("value").asDouble();
+    }
+
+    /**
+     * @return values of the given tag across the meter's series, empty if unavailable
+     */
+    List<String> tagValues(String metric, String tag) {
+        JsonNode json = get(metric, null);
+        if (json == null) {
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<>();
+        for (JsonNode available : json.path("availableTags")) {
+            if (tag.equals(available.path("tag").asText())) {
+                for (JsonNode value : available.path("values")) {
+                    values.add(value.asText());
+                }
+            }
+        }
+        return values;
+    }
+
+    private JsonNode get(String metric, String tag) {
+        String url = baseUrl + "/actuator/metrics/" + metric;
+        if (tag != null) {
+            url += "?tag=" + URLEncoder.encode(tag, StandardCharsets.UTF_8);
+        }
+        try {
+            HttpResponse<String> response = client.send(
+                    HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(5)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            return response.statusCode() == 200 ? objectMapper.readTree(response.body()) : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.sushil.poc.loadtest;
+
+import com.sushil.poc.benchmark.BenchmarkApplication;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load generator for POST /api/v1/trades and POST /api/v1/queue/publish.
+ * Drives each selected endpoint at a fixed rate for a fixed time, samples the
+ * queue while doing so and writes a latency and queue report.
+ * <p>
+ * Without {@code --target} the application is started in-process on a random
+ * port, against in-memory H2 and with a stand-in Mongo writer, so the run
+ * needs no network or external services. See {@link LoadTestOptions} for the
+ * other options.
+ */
+public final class LoadTest {
+    private static final long SAMPLE_INTERVAL_MS = 200;
+    private static final long MAX_DRAIN_MS = TimeUnit.MINUTES.toMillis(2);
+
+    private final LoadTestOptions options;
+    private final String baseUrl;
+    private final HttpClient client;
+    private final ActuatorMetrics metrics;
+    private final Histogram laneLagMillis = new Histogram(3);
+    private final Histogram queueDepth = new Histogram(3);
+
+    LoadTest(LoadTestOptions options, String baseUrl) {
+        this.options = options;
+        this.baseUrl = baseUrl;
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        this.metrics = new ActuatorMetrics(client, baseUrl);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        ConfigurableApplicationContext context = null;
+        String baseUrl = options.getTarget();
+        if (baseUrl == null) {
+            context = BenchmarkApplication.start(WebApplicationType.SERVLET);
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+        try {
+            new LoadTest(options, baseUrl).run();
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    void run() throws InterruptedException, IOException {
+        TradeGenerator generator = new TradeGenerator(options);
+        List<RateDriver> drivers = new ArrayList<>();
+        for (String path : options.getPaths()) {
+            String endpoint = "rest".equals(path) ? "/api/v1/trades" : "/api/v1/queue/publish";
+            drivers.add(new RateDriver(path, URI.create(baseUrl + endpoint), client, generator,
+                    options.getSeed() + drivers.size(), options.getRate(), options.getConcurrency()));
+        }
+        double droppedBefore = orZero(metrics.value("queue.trades.dropped", null));
+        double processedBefore = orZero(metrics.value("queue.trades.processed", null));
+        double failedBefore = orZero(metrics.value("queue.trades.failed", null));
+        List<String> lanes = metrics.tagValues("queue.lane.lag", "lane");
+
+        System.out.println("Load test against " + baseUrl + ": " + options);
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long warmupEnd = start + TimeUnit.SECONDS.toNanos(options.getWarmupSeconds());
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(options.getDurationSeconds());
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "LoadTest-Sampler");
+            t.setDaemon(true);
+            return t;
+        });
+        sampler.scheduleAtFixedRate(() -> sampleQueue(lanes, warmupEnd), 0, SAMPLE_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+        List<Thread> threads = new ArrayList<>();
+        for (RateDriver driver : drivers) {
+            driver.schedule(start, warmupEnd, end);
+            Thread thread = new Thread(driver, "LoadTest-" + driver.getName());
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long drainMs = awaitDrain();
+        sampler.shutdownNow();
+
+        String report = report(drivers, drainMs,
+                orZero(metrics.value("queue.trades.dropped", null)) - droppedBefore,
+                orZero(metrics.value("queue.trades.processed", null)) - processedBefore,
+                orZero(metrics.value("queue.trades.failed", null)) - failedBefore,
+                !lanes.isEmpty());
+        System.out.println(report);
+        Path reportFile = Paths.get(options.getReport());
+        if (reportFile.getParent() != null) {
+            Files.createDirectories(reportFile.getParent());
+        }
+        Files.write(reportFile, report.getBytes(StandardCharsets.UTF_8));
+        System.out.println("Report written to " + reportFile.toAbsolutePath());
+    }
+
+    private void sampleQueue(List<String> lanes, long warmupEnd) {
+        if (System.nanoTime() < warmupEnd) {
+            return;
+        }
+        double maxLag = 0;
+        for (String lane : lanes) {
+            maxLag = Math.max(maxLag, orZero(metrics.value("queue.lane.lag", "lane:" + lane)));
+        }
+        Double depth = metrics.value("queue.size", null);
+        synchronized (this) {
+            laneLagMillis.recordValue((long) maxLag);
+            if (depth != null) {
+                queueDepth.recordValue(depth.longValue());
+            }
+        }
+    }
+
+    /**
+     * @return milliseconds until the queue was empty after the load stopped, or -1 if it did not drain
+     */
+    private long awaitDrain() throws InterruptedException {
+        long started = System.currentTimeMillis();
+        while (System.currentTimeMillis() - started < MAX_DRAIN_MS) {
+            Double depth = metrics.value("queue.size", null);
+            if (depth == null || depth == 0) {
+                return System.currentTimeMillis() - started;
+            }
+            Thread.sleep(SAMPLE_INTERVAL_MS / 4);
+        }
+        return -1;
+    }
+
+    private synchronized String report(List<RateDriver> drivers, long drainMs, double dropped, double processed,
+            double failed, boolean queueMetricsAvailable) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true);
+        out.println("== Load test report ==");
+        out.println("Target: " + baseUrl);
+        out.println("Options: " + options);
+        out.println("Latency is measured from each request's scheduled send time (corrected for coordinated omission).");
+        out.println();
+        out.printf("%-6s %9s %9s %9s %9s %7s %10s %9s %9s %9s %9s %9s%n", "path", "sent", "2xx", "4xx", "5xx",
+                "errors", "achieved/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (RateDriver driver : drivers) {
+            Histogram h = driver.getLatencyMicros();
+            double seconds = options.getWarmupSeconds() + options.getDurationSeconds();
+            out.printf("%-6s %9d %9d %9d %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", driver.getName(),
+                    driver.getSent(), driver.getSucceeded(), driver.getClientErrors(), driver.getServerErrors(),
+                    driver.getFailures(), driver.getSent() / seconds, millis(h, 50), millis(h, 90), millis(h, 99),
+                    millis(h, 99.9), h.getMaxValue() / 1000.0);
+        }
+        out.println();
+        if (queueMetricsAvailable) {
+            out.printf("Queue: %.0f dropped, %.0f processed, %.0f failed or rejected%n", dropped, processed, failed);
+            out.printf("Queue lag (oldest waiting trade, sampled every %dms): p50 %d ms, p99 %d ms, max %d ms%n",
+                    SAMPLE_INTERVAL_MS, laneLagMillis.getValueAtPercentile(50),
+                    laneLagMillis.getValueAtPercentile(99), laneLagMillis.getMaxValue());
+            out.printf("Queue depth: p50 %d, max %d; %s%n", queueDepth.getValueAtPercentile(50),
+                    queueDepth.getMaxValue(),
+                    drainMs < 0 ? "not drained after the load stopped" : "drained " + drainMs + " ms after the load stopped");
+        } else {
+            out.println("Queue: metrics unavailable (expose the actuator 'metrics' endpoint on the target)");
+        }
+        for (RateDriver driver : drivers) {
+            out.println();
+            out.println("-- " + driver.getName() + " latency distribution (ms) --");
+            driver.getLatencyMicros().outputPercentileDistribution(out, 1000.0);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static double millis(Histogram h, double percentile) {
+        return h.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static double orZero(Double value) {
+        return value == null ? 0 : value;
+    }
+}
@@ -0,0 +1,110 @@
+package com.sushil.poc.loadtest;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line options of {@link LoadTest}, given as {@code --name=value}.
+ */
+final class LoadTestOptions {
+    private final Map<String, String> values;
+
+    private LoadTestOptions(Map<String, String> values) {
+        this.values = values;
+    }
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return new LoadTestOptions(values);
+    }
+
+    /**
+     * Base URL of a running instance; when absent the application is started
+     * in-process against H2.
+     */
+    String getTarget() {
+        return values.get("target");
+    }
+
+    /**
+     * Endpoints to drive: {@code rest} (POST /api/v1/trades) and/or
+     * {@code queue} (POST /api/v1/queue/publish).
+     */
+    List<String> getPaths() {
+        return Arrays.asList(values.getOrDefault("paths", "rest,queue").split(","));
+    }
+
+    /** Target requests per second, per path. */
+    int getRate() {
+        return getInt("rate", 200);
+    }
+
+    int getDurationSeconds() {
+        return getInt("duration", 60);
+    }
+
+    /** Leading seconds whose latencies are not recorded. */
+    int getWarmupSeconds() {
+        return getInt("warmup", 10);
+    }
+
+    /** Maximum requests in flight, per path. */
+    int getConcurrency() {
+        return getInt("concurrency", 64);
+    }
+
+    /** Number of distinct tradeIds the generated trades are spread over. */
+    int getTradeIds() {
+        return getInt("trade-ids", 10000);
+    }
+
+    /** Share of trades sent with a version lower than the latest one sent for their tradeId. */
+    double getVersionSkew() {
+        return getDouble("version-skew", 0.05);
+    }
+
+    /** Share of trades with a maturity date in the past. */
+    double getPastMaturity() {
+        return getDouble("past-maturity", 0.01);
+    }
+
+    /** Other maturities are spread uniformly from today up to this many days ahead. */
+    int getMaturityDays() {
+        return getInt("maturity-days", 365);
+    }
+
+    long getSeed() {
+        return Long.parseLong(values.getOrDefault("seed", "42"));
+    }
+
+    String getReport() {
+        return values.getOrDefault("report", "target/loadtest-report.txt");
+    }
+
+    private int getInt(String name, int defaultValue) {
+        String value = values.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private double getDouble(String name, double defaultValue) {
+        String value = values.get(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    @Override
+    public String toString() {
+        return "rate=" + getRate() + "/s per path, duration=" + getDurationSeconds() + "s, warmup="
+                + getWarmupSeconds() + "s, concurrency=" + getConcurrency() + ", trade-ids=" + getTradeIds()
+                + ", version-skew=" + getVersionSkew() + ", past-maturity=" + getPastMaturity()
+                + ", maturity-days=" + getMaturityDays() + ", seed=" + getSeed();
+    }
+}
@@ -0,0 +1,128 @@
+package com.sushil.poc.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives one endpoint open-loop at a fixed rate. Requests are scheduled on a
+ * fixed timeline and latency is measured from each request's scheduled time,
+ * not from when it was actually sent, so a stalled server shows up in the
+ * percentiles instead of silently lowering the request rate.
+ */
+final class RateDriver implements Runnable {
+    private final String name;
+    private final URI uri;
+    private final HttpClient client;
+    private final TradeGenerator generator;
+    private final SplittableRandom random;
+    private final long intervalNanos;
+    private final int concurrency;
+    private final Semaphore inFlight;
+    private final Histogram latencyMicros = new ConcurrentHistogram(3);
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder clientErrors = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private long startNanos;
+    private long warmupEndNanos;
+    private long endNanos;
+
+    RateDriver(String name, URI uri, HttpClient client, TradeGenerator generator, long seed, int rate,
+            int concurrency) {
+        this.name = name;
+        this.uri = uri;
+        this.client = client;
+        this.generator = generator;
+        this.random = new SplittableRandom(seed);
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        this.concurrency = concurrency;
+        this.inFlight = new Semaphore(concurrency);
+    }
+
+    void schedule(long startNanos, long warmupEndNanos, long endNanos) {
+        this.startNanos = startNanos;
+        this.warmupEndNanos = warmupEndNanos;
+        this.endNanos = endNanos;
+    }
+
+    @Override
+    public void run() {
+        for (long i = 0;; i++) {
+            long intended = startNanos + i * intervalNanos;
+            if (intended >= endNanos) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.acquireUninterruptibly();
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(generator.next(random)))
+                    .build();
+            sent.increment();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> complete(intended, response, error));
+        }
+        // Wait for the stragglers
+        inFlight.acquireUninterruptibly(concurrency);
+    }
+
+    private void complete(long intended, HttpResponse<Void> response, Throwable error) {
+        long latencyNanos = System.nanoTime() - intended;
+        if (intended >= warmupEndNanos) {
+            latencyMicros.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+        }
+        if (error != null) {
+            failures.increment();
+        } else if (response.statusCode() < 400) {
+            succeeded.increment();
+        } else if (response.statusCode() < 500) {
+            clientErrors.increment();
+        } else {
+            serverErrors.increment();
+        }
+        inFlight.release();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Histogram getLatencyMicros() {
+        return latencyMicros;
+    }
+
+    long getSent() {
+        return sent.sum();
+    }
+
+    long getSucceeded() {
+        return succeeded.sum();
+    }
+
+    long getClientErrors() {
+        return clientErrors.sum();
+    }
+
+    long getServerErrors() {
+        return serverErrors.sum();
+    }
+
+    long getFailures() {
+        return failures.sum();
+    }
+}
@@ -0,0 +1,50 @@
+package com.sushil.poc.loadtest;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Synthetic trade requests as JSON. Trades are spread uniformly over a fixed
+ * set of tradeIds; each tradeId normally moves to its next version, but a
+ * configurable share is sent with a stale (lower) version or an already passed
+ * maturity date, so rejections are exercised as well.
+ */
+final class TradeGenerator {
+    private final int tradeIds;
+    private final double versionSkew;
+    private final double pastMaturity;
+    private final int maturityDays;
+    private final LocalDate today = LocalDate.now();
+    // Latest version handed out per tradeId, shared by all drivers
+    private final AtomicIntegerArray versions;
+
+    TradeGenerator(LoadTestOptions options) {
+        this.tradeIds = options.getTradeIds();
+        this.versionSkew = options.getVersionSkew();
+        this.pastMaturity = options.getPastMaturity();
+        this.maturityDays = options.getMaturityDays();
+        this.versions = new AtomicIntegerArray(tradeIds);
+    }
+
+    /**
+     * @param random the calling driver's own random source
+     * @return request body accepted by both the REST and queue endpoints
+     */
+    String next(SplittableRandom random) {
+        int id = random.nextInt(tradeIds);
+        int current = versions.get(id);
+        int version;
+        if (current > 0 && random.nextDouble() < versionSkew) {
+            version = random.nextInt(current);
+        } else {
+            version = versions.incrementAndGet(id);
+        }
+        LocalDate maturity = random.nextDouble() < pastMaturity
+                ? today.minusDays(1 + random.nextInt(30))
+                : today.plusDays(random.nextInt(maturityDays + 1));
+        return "{\"tradeId\":\"LT-" + id + "\",\"version\":" + version
+                + ",\"counterPartyId\":\"CP-" + (id % 100) + "\",\"bookId\":\"B" + (id % 10)
+                + "\",\"maturityDate\":\"" + maturity + "\"}";
+    }
+}
@@ -0,0 +1,101 @@
+package com.sushil.poc.mapper;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sushil.poc.dto.TradeRequestDTO;
+import com.sushil.poc.dto.TradeResponseDTO;
+import com.sushil.poc.model.Trade;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * DTO mapping in {@link TradeMapper}, and the response body of
+ * {@code GET /api/v1/trades/{tradeId}} and {@code GET /api/v1/trades}: a list
+ * of trades mapped to DTOs and serialized by Jackson, as before, against
+ * {@link TradeJsonWriter}. Run with {@code -prof gc} to compare allocation per
+ * request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TradeMappingBenchmark {
+    // 1 for a typical getTrades, 20 for a default getAllTrades page
+    @Param({ "1", "20" })
+    private int listSize;
+
+    private TradeMapper mapper;
+    private ObjectMapper objectMapper;
+    private OutputStream out;
+    private TradeRequestDTO request;
+    private Trade trade;
+    private List<Trade> trades;
+
+    @Setup
+    public void setUp() {
+        mapper = new TradeMapper();
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+        out = new DiscardingOutputStream();
+        request = new TradeRequestDTO();
+        request.setTradeId("T1");
+        request.setVersion(1);
+        request.setCounterPartyId("CP-1");
+        request.setBookId("B1");
+        request.setMaturityDate(LocalDate.now().plusYears(1));
+        request.setCreatedDate(LocalDate.now());
+        trade = mapper.toEntity(request);
+        trade.setId(1L);
+        trades = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            Trade t = mapper.toEntity(request);
+            t.setId((long) i);
+            t.setTradeId("T" + i);
+            trades.add(t);
+        }
+    }
+
+    @Benchmark
+    public Trade toEntity() {
+        return mapper.toEntity(request);
+    }
+
+    @Benchmark
+    public TradeResponseDTO toResponseDTO() {
+        return mapper.toResponseDTO(trade);
+    }
+
+    @Benchmark
+    public void dtoListJson() throws IOException {
+        List<TradeResponseDTO> dtos = trades.stream().map(mapper::toResponseDTO).collect(Collectors.toList());
+        objectMapper.writeValue(out, dtos);
+    }
+
+    @Benchmark
+    public void streamedJson() throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            TradeJsonWriter.writeArray(generator, trades);
+        }
+    }
+
+    // Unlike OutputStream.nullOutputStream(), keeps accepting writes after close()
+    private static final class DiscardingOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -2,14 +2,16 @@ package com.sushil.poc;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 @EnableScheduling
-@EnableAsync // Enable async processing for non-blocking MongoDB writes
+@EnableAsync // @Async methods run on the bounded AsyncWorkExecutor
 @EnableJpaRepositories(basePackages = "com.sushil.poc.repository.jpa")
 @EnableMongoRepositories(basePackages = "com.sushil.poc.repository.mongo")
 public class SushilPocApplication {
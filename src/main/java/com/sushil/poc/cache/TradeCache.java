@@ -0,0 +1,261 @@
+package com.sushil.poc.cache;
+
+import com.sushil.poc.model.Trade;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded, in-process LRU cache keyed by tradeId. Each entry holds the latest
+ * known version and row id of the trade, used to skip the SELECT in version
+ * checks, and optionally a snapshot of all its versions for GET lookups.
+ * <p>
+ * The cache only ever moves forward: a latest version is never replaced by a
+ * lower one. Entries expire after {@code trade.cache.ttl-ms} so writes made by
+ * other application instances are picked up eventually.
+ * <p>
+ * Until then a cached version may be older than one written by another
+ * instance, which would let a lower version through a version check. Latest
+ * versions are therefore only served ({@code trade.cache.version-checks}) in
+ * single-writer deployments, as with {@link TradeIndex}; GET snapshots are
+ * served either way.
+ */
+@Component
+public class TradeCache {
+    private static final int UNKNOWN_VERSION = Integer.MIN_VALUE;
+
+    private final boolean enabled;
+    private final boolean versionChecks;
+    private final long ttlMs;
+    private final Map<String, Entry> entries;
+    private final Counter versionHits;
+    private final Counter versionMisses;
+    private final Counter tradesHits;
+    private final Counter tradesMisses;
+    // Incremented on every write; guards trade snapshots against racing writes. Guarded by this.
+    private long writeStamp;
+    private long clearedAtStamp;
+
+    public TradeCache(MeterRegistry meterRegistry,
+            @Value("${trade.cache.enabled:true}") boolean enabled,
+            @Value("${trade.cache.capacity:100000}") int capacity,
+            @Value("${trade.cache.ttl-ms:300000}") long ttlMs,
+            @Value("${trade.cache.version-checks:false}") boolean versionChecks) {
+        this.enabled = enabled;
+        this.versionChecks = versionChecks;
+        this.ttlMs = ttlMs;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.versionHits = meterRegistry.counter("trade.cache.hits", "lookup", "version");
+        this.versionMisses = meterRegistry.counter("trade.cache.misses", "lookup", "version");
+        this.tradesHits = meterRegistry.counter("trade.cache.hits", "lookup", "trades");
+        this.tradesMisses = meterRegistry.counter("trade.cache.misses", "lookup", "trades");
+        Gauge.builder("trade.cache.size", this, TradeCache::size)
+                .description("Trade ids held in the in-process trade cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return whether {@link #getLatest(String)} serves version checks
+     */
+    public boolean isVersionChecksEnabled() {
+        return enabled && versionChecks;
+    }
+
+    /**
+     * @return latest known version of the trade, or null on a miss or if
+     *         version checks are not served
+     */
+    public CachedVersion getLatest(String tradeId) {
+        if (!isVersionChecksEnabled()) {
+            return null;
+        }
+        Entry entry = getLive(tradeId);
+        if (entry == null || entry.version == UNKNOWN_VERSION) {
+            versionMisses.increment();
+            return null;
+        }
+        versionHits.increment();
+        return new CachedVersion(entry.version, entry.id);
+    }
+
+    /**
+     * Records a committed version of a trade. Ignored if a higher version is
+     * already cached; drops any cached snapshot of the trade's versions.
+     */
+    public synchronized void putLatest(String tradeId, int version, Long id) {
+        if (!enabled) {
+            return;
+        }
+        Entry entry = entries.get(tradeId);
+        if (entry != null && entry.version > version && !isExpired(entry)) {
+            return;
+        }
+        entries.put(tradeId, new Entry(version, id, null, ++writeStamp, System.currentTimeMillis()));
+    }
+
+    /**
+     * Records a version read from the database, unless the trade was written
+     * or invalidated since {@code stamp} was taken (the read may then be
+     * stale). Ignored if a higher version is already cached.
+     */
+    public synchronized void putLatest(String tradeId, int version, Long id, long stamp) {
+        if (!enabled || clearedAtStamp > stamp) {
+            return;
+        }
+        Entry entry = entries.get(tradeId);
+        if (entry != null && (entry.writeStamp > stamp || (entry.version > version && !isExpired(entry)))) {
+            return;
+        }
+        entries.put(tradeId, new Entry(version, id, null, entry == null ? stamp : entry.writeStamp,
+                System.currentTimeMillis()));
+    }
+
+    /**
+     * @return snapshot of all versions of the trade, or null on a miss. The
+     *         returned trades are shared and must not be modified.
+     */
+    public List<Trade> getTrades(String tradeId) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = getLive(tradeId);
+        if (entry == null || entry.trades == null) {
+            tradesMisses.increment();
+            return null;
+        }
+        tradesHits.increment();
+        return entry.trades;
+    }
+
+    /**
+     * @return stamp to pass to {@link #putTrades(String, List, long)} or
+     *         {@link #putLatest(String, int, Long, long)}; take it before
+     *         reading from the database
+     */
+    public synchronized long stamp() {
+        return writeStamp;
+    }
+
+    /**
+     * Caches a snapshot of all versions of a trade, unless the trade was
+     * written since {@code stamp} was taken (the snapshot may then be stale).
+     */
+    public synchronized void putTrades(String tradeId, List<Trade> trades, long stamp) {
+        if (!enabled || trades.isEmpty() || clearedAtStamp > stamp) {
+            return;
+        }
+        Entry entry = entries.get(tradeId);
+        if (entry != null && entry.writeStamp > stamp) {
+            return;
+        }
+        List<Trade> copies = new ArrayList<>(trades.size());
+        Trade latest = null;
+        for (Trade trade : trades) {
+            Trade copy = copyOf(trade);
+            copies.add(copy);
+            if (latest == null || copy.getVersion() > latest.getVersion()) {
+                latest = copy;
+            }
+        }
+        entries.put(tradeId, new Entry(latest.getVersion(), latest.getId(), Collections.unmodifiableList(copies),
+                entry == null ? stamp : entry.writeStamp, System.currentTimeMillis()));
+    }
+
+    /**
+     * Forgets everything known about a trade, e.g. after it was deleted.
+     */
+    public synchronized void invalidate(String tradeId) {
+        if (!enabled) {
+            return;
+        }
+        // Keep a versionless marker so snapshots read before the delete are rejected
+        entries.put(tradeId, new Entry(UNKNOWN_VERSION, null, null, ++writeStamp, System.currentTimeMillis()));
+    }
+
+    /**
+     * Forgets everything, e.g. after a bulk update touched many trades.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        clearedAtStamp = ++writeStamp;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized Entry getLive(String tradeId) {
+        Entry entry = entries.get(tradeId);
+        if (entry != null && isExpired(entry)) {
+            entries.remove(tradeId);
+            return null;
+        }
+        return entry;
+    }
+
+    private boolean isExpired(Entry entry) {
+        return ttlMs > 0 && System.currentTimeMillis() - entry.cachedAt > ttlMs;
+    }
+
+    private static Trade copyOf(Trade trade) {
+        Trade copy = new Trade();
+        copy.setId(trade.getId());
+        copy.setTradeId(trade.getTradeId());
+        copy.setVersion(trade.getVersion());
+        copy.setCounterPartyId(trade.getCounterPartyId());
+        copy.setBookId(trade.getBookId());
+        copy.setMaturityDate(trade.getMaturityDate());
+        copy.setCreatedDate(trade.getCreatedDate());
+        copy.setExpired(trade.isExpired());
+        return copy;
+    }
+
+    private static final class Entry {
+        private final int version;
+        private final Long id;
+        private final List<Trade> trades;
+        private final long writeStamp;
+        private final long cachedAt;
+
+        Entry(int version, Long id, List<Trade> trades, long writeStamp, long cachedAt) {
+            this.version = version;
+            this.id = id;
+            this.trades = trades;
+            this.writeStamp = writeStamp;
+            this.cachedAt = cachedAt;
+        }
+    }
+
+    /**
+     * Latest known version and row id of a trade.
+     */
+    public static final class CachedVersion {
+        private final int version;
+        private final Long id;
+
+        CachedVersion(int version, Long id) {
+            this.version = version;
+            this.id = id;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public Long getId() {
+            return id;
+        }
+    }
+}
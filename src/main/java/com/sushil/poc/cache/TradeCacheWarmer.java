@@ -0,0 +1,54 @@
+package com.sushil.poc.cache;
+
+import com.sushil.poc.repository.jpa.TradeRepository;
+import com.sushil.poc.repository.jpa.TradeVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import java.util.List;
+
+/**
+ * Loads the latest versions of the most recently written trades into the
+ * {@link TradeCache} once the application has started. Runs on the async
+ * executor so startup does not wait for it.
+ */
+@Component
+public class TradeCacheWarmer {
+    private static final Logger logger = LoggerFactory.getLogger(TradeCacheWarmer.class);
+
+    private final TradeRepository repo;
+    private final TradeCache cache;
+    private final int warmSize;
+
+    public TradeCacheWarmer(TradeRepository repo, TradeCache cache,
+            @Value("${trade.cache.warm-size:10000}") int warmSize) {
+        this.repo = repo;
+        this.cache = cache;
+        this.warmSize = warmSize;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        // Only version checks read the latest versions warmed here
+        if (warmSize <= 0 || !cache.isVersionChecksEnabled()) {
+            return;
+        }
+        try {
+            // Trades written or deleted while the query runs keep what those writes cached
+            long stamp = cache.stamp();
+            List<TradeVersion> latest = repo.findRecentLatestVersions(Limit.of(warmSize));
+            for (TradeVersion row : latest) {
+                cache.putLatest(row.getTradeId(), row.getVersion(), row.getId(), stamp);
+            }
+            logger.info("Warmed trade cache with {} trade ids", latest.size());
+        } catch (Exception e) {
+            logger.warn("Failed to warm trade cache; it will fill on demand", e);
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package com.sushil.poc.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compact index of every trade in the store: for each tradeId the latest
+ * version, its row id and maturity date, whether it is expired, and the
+ * earliest maturity date among the trade's unexpired versions.
+ * <p>
+ * Unlike {@link TradeCache} the index is complete, so once it is ready a
+ * tradeId it does not know is a new trade and version checks never need the
+ * database. To hold tens of millions of trades, ids are dictionary-encoded
+ * into one UTF-8 byte arena and all other fields live in primitive arrays
+ * (about 40 bytes per trade plus the id), addressed through an open-addressing
+ * hash table. It is filled by {@link TradeIndexLoader} at startup and kept
+ * current with committed writes.
+ * <p>
+ * Only enable it ({@code trade.index.enabled}) when this instance is the only
+ * writer: writes made elsewhere are never seen.
+ */
+@Component
+public class TradeIndex {
+    /**
+     * Returned by {@link #getLatest(String)} for a tradeId that has no versions.
+     */
+    public static final TradeCache.CachedVersion NOT_FOUND = new TradeCache.CachedVersion(Integer.MIN_VALUE, null);
+
+    // Slot states kept in versions[]: all versions deleted, or not trustworthy (consult the database)
+    private static final int NO_VERSION = Integer.MIN_VALUE;
+    private static final int UNKNOWN_VERSION = Integer.MIN_VALUE + 1;
+    private static final int NO_EXPIRY = Integer.MAX_VALUE;
+    private static final int ANY_EXPIRY = Integer.MIN_VALUE;
+
+    private final boolean enabled;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Counter hits;
+    private final Counter absent;
+    private final Counter fallbacks;
+
+    // Guarded by lock. table holds slot + 1 (0 is empty); slot arrays grow together.
+    private int[] table;
+    private int size;
+    private byte[] keyBytes;
+    private int keyBytesUsed;
+    private int[] keyEnds;
+    private int[] hashes;
+    private int[] versions;
+    private long[] ids;
+    private int[] maturities;
+    private int[] nextExpiries;
+    private long[] expiredBits;
+    private boolean ready;
+    private boolean rebuilding;
+
+    public TradeIndex(MeterRegistry meterRegistry,
+            @Value("${trade.index.enabled:false}") boolean enabled,
+            @Value("${trade.index.initial-capacity:65536}") int initialCapacity) {
+        this.enabled = enabled;
+        int capacity = Math.max(16, Integer.highestOneBit(Math.max(1, initialCapacity - 1)) << 1);
+        this.table = new int[capacity * 2];
+        this.keyBytes = new byte[capacity * 16];
+        this.keyEnds = new int[capacity];
+        this.hashes = new int[capacity];
+        this.versions = new int[capacity];
+        this.ids = new long[capacity];
+        this.maturities = new int[capacity];
+        this.nextExpiries = new int[capacity];
+        this.expiredBits = new long[(capacity + 63) / 64];
+        this.hits = meterRegistry.counter("trade.index.lookups", "result", "found");
+        this.absent = meterRegistry.counter("trade.index.lookups", "result", "absent");
+        this.fallbacks = meterRegistry.counter("trade.index.lookups", "result", "fallback");
+        Gauge.builder("trade.index.size", this, TradeIndex::size)
+                .description("Trade ids held in the compact trade index")
+                .register(meterRegistry);
+        Gauge.builder("trade.index.bytes", this, TradeIndex::footprintBytes)
+                .description("Approximate heap used by the compact trade index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return true once the startup load has finished; until then the index
+     *         answers nothing
+     */
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return ready;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return latest version of the trade, {@link #NOT_FOUND} if the trade has
+     *         no versions, or null if the index cannot tell and the database
+     *         must be asked
+     */
+    public TradeCache.CachedVersion getLatest(String tradeId) {
+        if (!enabled) {
+            return null;
+        }
+        byte[] key = tradeId.getBytes(StandardCharsets.UTF_8);
+        lock.readLock().lock();
+        try {
+            if (!ready) {
+                fallbacks.increment();
+                return null;
+            }
+            int slot = find(key, hash(tradeId));
+            if (slot < 0 || versions[slot] == NO_VERSION) {
+                absent.increment();
+                return NOT_FOUND;
+            }
+            if (versions[slot] == UNKNOWN_VERSION) {
+                fallbacks.increment();
+                return null;
+            }
+            hits.increment();
+            return new TradeCache.CachedVersion(versions[slot], ids[slot] == 0 ? null : ids[slot]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records a committed, unexpired version of a trade. Its row id and
+     * maturity date become the latest unless a higher version is known.
+     */
+    public void put(String tradeId, int version, Long id, LocalDate maturityDate) {
+        if (!enabled) {
+            return;
+        }
+        int maturity = (int) maturityDate.toEpochDay();
+        byte[] key = tradeId.getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        try {
+            int slot = findOrAdd(key, hash(tradeId));
+            int current = versions[slot];
+            if (current == UNKNOWN_VERSION && rebuilding) {
+                // Deleted while loading: the load may still read older rows of the trade
+                return;
+            }
+            if (current == NO_VERSION || current == UNKNOWN_VERSION) {
+                // Versions written before an unknown state may still be unexpired
+                nextExpiries[slot] = current == UNKNOWN_VERSION ? ANY_EXPIRY : maturity;
+                setLatest(slot, version, id, maturity, false);
+                return;
+            }
+            nextExpiries[slot] = Math.min(nextExpiries[slot], maturity);
+            if (version >= current) {
+                setLatest(slot, version, id, maturity, false);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records that all versions of a trade were deleted.
+     */
+    public void remove(String tradeId) {
+        if (!enabled) {
+            return;
+        }
+        byte[] key = tradeId.getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        try {
+            int slot = find(key, hash(tradeId));
+            if (slot < 0 && !rebuilding) {
+                return;
+            }
+            if (slot < 0) {
+                slot = findOrAdd(key, hash(tradeId));
+            }
+            // Rows already read by a running load must not bring the trade back
+            versions[slot] = rebuilding ? UNKNOWN_VERSION : NO_VERSION;
+            ids[slot] = 0;
+            nextExpiries[slot] = NO_EXPIRY;
+            setExpired(slot, false);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if some trade may have an unexpired version maturing before
+     *         {@code today}, or if the index cannot tell
+     */
+    public boolean hasExpiryCandidates(LocalDate today) {
+        if (!enabled) {
+            return true;
+        }
+        int day = (int) today.toEpochDay();
+        lock.readLock().lock();
+        try {
+            if (!ready) {
+                return true;
+            }
+            for (int slot = 0; slot < size; slot++) {
+                if (nextExpiries[slot] < day) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records the outcome of the expiry job for a trade whose versions maturing
+     * before {@code today} have all been expired.
+     *
+     * @param nextMaturity earliest maturity date of the trade's remaining
+     *                     unexpired versions, or null if none are left
+     */
+    public void expired(String tradeId, LocalDate nextMaturity, LocalDate today) {
+        if (!enabled) {
+            return;
+        }
+        int day = (int) today.toEpochDay();
+        byte[] key = tradeId.getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        try {
+            int slot = find(key, hash(tradeId));
+            if (slot < 0 || versions[slot] == NO_VERSION || versions[slot] == UNKNOWN_VERSION) {
+                return;
+            }
+            // Versions written since nextMaturity was read keep their own maturity
+            int written = nextExpiries[slot] >= day ? nextExpiries[slot] : NO_EXPIRY;
+            int remaining = nextMaturity == null ? NO_EXPIRY : (int) nextMaturity.toEpochDay();
+            nextExpiries[slot] = Math.min(written, remaining);
+            if (maturities[slot] < day) {
+                setExpired(slot, true);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Starts a load from the database. Until {@link #finishLoad()} the index
+     * answers nothing, while committed writes keep being recorded.
+     */
+    public void startLoad() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            rebuilding = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Merges one row read by the load. Writes recorded while the load runs
+     * take precedence over the rows it reads.
+     */
+    public void load(String tradeId, int version, long id, LocalDate maturityDate, boolean expired) {
+        // Rows without a maturity date never expire
+        int maturity = maturityDate == null ? NO_EXPIRY : (int) maturityDate.toEpochDay();
+        byte[] key = tradeId.getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        try {
+            int slot = findOrAdd(key, hash(tradeId));
+            if (versions[slot] == UNKNOWN_VERSION) {
+                return;
+            }
+            if (!expired) {
+                nextExpiries[slot] = Math.min(nextExpiries[slot], maturity);
+            }
+            if (version > versions[slot]) {
+                setLatest(slot, version, id, maturity, expired);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void finishLoad() {
+        lock.writeLock().lock();
+        try {
+            rebuilding = false;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long footprintBytes() {
+        lock.readLock().lock();
+        try {
+            return 4L * table.length + keyBytes.length
+                    + (4L * 5 + 8) * versions.length + 8L * expiredBits.length;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void setLatest(int slot, int version, Long id, int maturity, boolean expired) {
+        versions[slot] = version;
+        ids[slot] = id == null ? 0 : id;
+        maturities[slot] = maturity;
+        setExpired(slot, expired);
+    }
+
+    private void setExpired(int slot, boolean expired) {
+        if (expired) {
+            expiredBits[slot >>> 6] |= 1L << slot;
+        } else {
+            expiredBits[slot >>> 6] &= ~(1L << slot);
+        }
+    }
+
+    private int find(byte[] key, int hash) {
+        int mask = table.length - 1;
+        for (int i = hash & mask; table[i] != 0; i = (i + 1) & mask) {
+            int slot = table[i] - 1;
+            if (hashes[slot] == hash && keyEquals(slot, key)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int findOrAdd(byte[] key, int hash) {
+        int mask = table.length - 1;
+        int i = hash & mask;
+        for (; table[i] != 0; i = (i + 1) & mask) {
+            int slot = table[i] - 1;
+            if (hashes[slot] == hash && keyEquals(slot, key)) {
+                return slot;
+            }
+        }
+        if (size == versions.length) {
+            growSlots();
+        }
+        if (keyBytesUsed + key.length > keyBytes.length) {
+            keyBytes = Arrays.copyOf(keyBytes, Math.max(keyBytes.length * 2, keyBytesUsed + key.length));
+        }
+        int slot = size++;
+        System.arraycopy(key, 0, keyBytes, keyBytesUsed, key.length);
+        keyBytesUsed += key.length;
+        keyEnds[slot] = keyBytesUsed;
+        hashes[slot] = hash;
+        versions[slot] = NO_VERSION;
+        nextExpiries[slot] = NO_EXPIRY;
+        table[i] = slot + 1;
+        // Keep the table at most half full
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return slot;
+    }
+
+    private boolean keyEquals(int slot, byte[] key) {
+        int start = slot == 0 ? 0 : keyEnds[slot - 1];
+        return Arrays.equals(keyBytes, start, keyEnds[slot], key, 0, key.length);
+    }
+
+    private void growSlots() {
+        int capacity = versions.length * 2;
+        keyEnds = Arrays.copyOf(keyEnds, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        maturities = Arrays.copyOf(maturities, capacity);
+        nextExpiries = Arrays.copyOf(nextExpiries, capacity);
+        expiredBits = Arrays.copyOf(expiredBits, (capacity + 63) / 64);
+    }
+
+    private void rehash(int length) {
+        int[] rehashed = new int[length];
+        int mask = length - 1;
+        for (int slot = 0; slot < size; slot++) {
+            int i = hashes[slot] & mask;
+            while (rehashed[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            rehashed[i] = slot + 1;
+        }
+        table = rehashed;
+    }
+
+    private static int hash(String tradeId) {
+        int h = tradeId.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
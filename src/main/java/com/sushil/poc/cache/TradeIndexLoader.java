@@ -0,0 +1,66 @@
+package com.sushil.poc.cache;
+
+import com.sushil.poc.repository.jpa.TradeIndexRow;
+import com.sushil.poc.repository.jpa.TradeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Fills the {@link TradeIndex} from SQL in one streaming pass once the
+ * application has started. Version checks use the database until it is done.
+ */
+@Component
+public class TradeIndexLoader {
+    private static final Logger logger = LoggerFactory.getLogger(TradeIndexLoader.class);
+
+    private final TradeRepository repo;
+    private final TradeIndex index;
+    private final TransactionTemplate readTx;
+
+    public TradeIndexLoader(TradeRepository repo, TradeIndex index, PlatformTransactionManager transactionManager) {
+        this.repo = repo;
+        this.index = index;
+        this.readTx = new TransactionTemplate(transactionManager);
+        this.readTx.setReadOnly(true);
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!index.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        index.startLoad();
+        try {
+            long rows = readTx.execute(status -> loadRows());
+            index.finishLoad();
+            logger.info("Loaded trade index with {} trade ids from {} rows in {} ms", index.size(), rows,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            logger.error("Failed to load trade index; version checks will keep using the database", e);
+        }
+    }
+
+    private long loadRows() {
+        long count = 0;
+        try (Stream<TradeIndexRow> rows = repo.streamIndexRows()) {
+            Iterator<TradeIndexRow> it = rows.iterator();
+            while (it.hasNext()) {
+                TradeIndexRow row = it.next();
+                index.load(row.getTradeId(), row.getVersion(), row.getId(), row.getMaturityDate(), row.isExpired());
+                count++;
+            }
+        }
+        return count;
+    }
+}
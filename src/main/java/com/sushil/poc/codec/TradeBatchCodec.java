@@ -0,0 +1,98 @@
+package com.sushil.poc.codec;
+
+import com.sushil.poc.model.Trade;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary batch of trades for high-rate publishing, sent with content type
+ * {@value #CONTENT_TYPE}. Dates travel as epoch days, so decoding costs no
+ * JSON or date parsing.
+ * <p>
+ * Layout, big-endian: 4-byte trade count, then per trade a 4-byte length
+ * followed by that many bytes holding the trade in {@link TradeCodec} format.
+ */
+public final class TradeBatchCodec {
+    public static final String CONTENT_TYPE = "application/x-trade-batch";
+
+    private static final int COUNT_BYTES = 4;
+    private static final int LENGTH_BYTES = 4;
+
+    private TradeBatchCodec() {
+    }
+
+    /**
+     * Encodes a batch, e.g. on the producer side.
+     *
+     * @throws IllegalArgumentException if a string field is longer than 32767 bytes in UTF-8
+     */
+    public static byte[] encode(List<Trade> trades) {
+        int capacity = 256 * Math.max(1, trades.size());
+        while (true) {
+            ByteBuffer buffer = ByteBuffer.allocate(capacity);
+            try {
+                buffer.putInt(trades.size());
+                for (Trade trade : trades) {
+                    int lengthAt = buffer.position();
+                    buffer.putInt(0);
+                    TradeCodec.write(trade, buffer);
+                    buffer.putInt(lengthAt, buffer.position() - lengthAt - LENGTH_BYTES);
+                }
+            } catch (BufferOverflowException e) {
+                capacity *= 2;
+                continue;
+            }
+            byte[] bytes = new byte[buffer.position()];
+            buffer.flip();
+            buffer.get(bytes);
+            return bytes;
+        }
+    }
+
+    /**
+     * Decodes a whole batch.
+     *
+     * @param maxTrades largest trade count accepted
+     * @throws IllegalArgumentException if the batch is malformed, holds a date
+     *         out of range or more than {@code maxTrades} trades
+     */
+    public static List<Trade> decode(ByteBuffer buffer, int maxTrades) {
+        try {
+            int count = buffer.getInt();
+            if (count < 0 || count > maxTrades) {
+                throw new IllegalArgumentException("Trade count " + count + " not between 0 and " + maxTrades);
+            }
+            // Every trade needs at least its length prefix, so a bogus count cannot size a huge list
+            if ((long) count * LENGTH_BYTES > buffer.remaining()) {
+                throw new IllegalArgumentException("Batch of " + count + " trades truncated");
+            }
+            List<Trade> trades = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new IllegalArgumentException("Corrupt length " + length + " for trade " + i);
+                }
+                int end = buffer.position() + length;
+                ByteBuffer record = buffer.duplicate();
+                record.limit(end);
+                trades.add(TradeCodec.read(record));
+                if (record.position() != end) {
+                    throw new IllegalArgumentException("Trade " + i + " is shorter than its length " + length);
+                }
+                buffer.position(end);
+            }
+            if (buffer.hasRemaining()) {
+                throw new IllegalArgumentException(buffer.remaining() + " bytes after the last trade");
+            }
+            return trades;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Trade batch truncated", e);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Date out of range: " + e.getMessage(), e);
+        }
+    }
+}
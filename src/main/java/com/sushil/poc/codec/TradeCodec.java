@@ -0,0 +1,93 @@
+package com.sushil.poc.codec;
+
+import com.sushil.poc.model.Trade;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Compact binary encoding of a trade's business fields, used where JSON would
+ * cost too much space or CPU. The row id is not encoded.
+ * <p>
+ * Layout, big-endian: tradeId, counterPartyId and bookId as a 2-byte length
+ * followed by UTF-8 bytes (length -1 for null); version as a 4-byte int;
+ * maturityDate and createdDate as 4-byte epoch days ({@link Integer#MIN_VALUE}
+ * for null); expired as one byte.
+ */
+public final class TradeCodec {
+    private static final int NULL_STRING = -1;
+    private static final int NULL_DATE = Integer.MIN_VALUE;
+
+    private TradeCodec() {
+    }
+
+    /**
+     * Writes a trade at the buffer's position.
+     *
+     * @throws java.nio.BufferOverflowException if the buffer has too little room left;
+     *         the buffer's position is then undefined
+     * @throws IllegalArgumentException if a string field is longer than 32767 bytes in UTF-8
+     */
+    public static void write(Trade trade, ByteBuffer buffer) {
+        writeString(trade.getTradeId(), buffer);
+        buffer.putInt(trade.getVersion());
+        writeString(trade.getCounterPartyId(), buffer);
+        writeString(trade.getBookId(), buffer);
+        writeDate(trade.getMaturityDate(), buffer);
+        writeDate(trade.getCreatedDate(), buffer);
+        buffer.put(trade.isExpired() ? (byte) 1 : (byte) 0);
+    }
+
+    /**
+     * Reads a trade written by {@link #write(Trade, ByteBuffer)} from the
+     * buffer's position.
+     *
+     * @throws java.nio.BufferUnderflowException if the buffer ends mid-trade
+     */
+    public static Trade read(ByteBuffer buffer) {
+        Trade trade = new Trade();
+        trade.setTradeId(readString(buffer));
+        trade.setVersion(buffer.getInt());
+        trade.setCounterPartyId(readString(buffer));
+        trade.setBookId(readString(buffer));
+        trade.setMaturityDate(readDate(buffer));
+        trade.setCreatedDate(readDate(buffer));
+        trade.setExpired(buffer.get() != 0);
+        return trade;
+    }
+
+    private static void writeString(String value, ByteBuffer buffer) {
+        if (value == null) {
+            buffer.putShort((short) NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("String field too long to encode: " + bytes.length + " bytes");
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Corrupt string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(LocalDate date, ByteBuffer buffer) {
+        buffer.putInt(date == null ? NULL_DATE : Math.toIntExact(date.toEpochDay()));
+    }
+
+    private static LocalDate readDate(ByteBuffer buffer) {
+        int epochDay = buffer.getInt();
+        return epochDay == NULL_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+}
@@ -0,0 +1,115 @@
+package com.sushil.poc.config;
+
+import com.sushil.poc.metrics.AsyncExecutorMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.stereotype.Component;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded executor for Mongo sync and housekeeping work, and the executor
+ * behind {@code @Async}.
+ * <p>
+ * Up to {@code async.executor.queue-capacity} tasks wait for one of
+ * {@code async.executor.core-size} threads; once the queue is full the pool
+ * grows to {@code async.executor.max-size}, and beyond that
+ * {@code async.executor.saturation-policy} decides what happens to the task.
+ * With {@code spring.threads.virtual.enabled} the threads are virtual, but the
+ * bounds still apply: they cap how much work the stores see at once.
+ * <p>
+ * This is deliberately not exposed as an {@link Executor} bean, so Spring MVC
+ * keeps Boot's {@code applicationTaskExecutor} for streamed responses.
+ */
+@Component
+public class AsyncWorkExecutor implements AsyncConfigurer {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncWorkExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+    private final AsyncExecutorMetrics metrics;
+    private final SaturationPolicy saturationPolicy;
+    private final long shutdownTimeoutMs;
+
+    public AsyncWorkExecutor(AsyncExecutorMetrics metrics,
+            @Value("${async.executor.core-size:2}") int coreSize,
+            @Value("${async.executor.max-size:8}") int maxSize,
+            @Value("${async.executor.queue-capacity:500}") int queueCapacity,
+            @Value("${async.executor.keep-alive-ms:60000}") long keepAliveMs,
+            @Value("${async.executor.saturation-policy:caller-runs}") String saturationPolicy,
+            @Value("${async.executor.shutdown-timeout-ms:10000}") long shutdownTimeoutMs,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.metrics = metrics;
+        this.saturationPolicy = SaturationPolicy.fromName(saturationPolicy);
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.executor = new ThreadPoolExecutor(coreSize, Math.max(coreSize, maxSize), keepAliveMs,
+                TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                VirtualThreads.factory(VirtualThreads.isActive(virtualThreads), "async-"), new SaturationHandler());
+        metrics.bind(executor);
+    }
+
+    /**
+     * Runs the task on a pool thread, or applies the saturation policy if the
+     * executor is full.
+     */
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    public SaturationPolicy getSaturationPolicy() {
+        return saturationPolicy;
+    }
+
+    @Override
+    public Executor getAsyncExecutor() {
+        return executor;
+    }
+
+    @Override
+    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+        return (e, method, params) -> logger.error("Unexpected error in async {}.{}",
+                method.getDeclaringClass().getSimpleName(), method.getName(), e);
+    }
+
+    /**
+     * Lets queued tasks finish for up to {@code async.executor.shutdown-timeout-ms}.
+     * Beans that submit here depend on this one, so they have stopped by now.
+     */
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+                logger.warn("Async executor did not finish in time, {} queued tasks abandoned",
+                        executor.shutdownNow().size());
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class SaturationHandler implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (saturationPolicy == SaturationPolicy.CALLER_RUNS && !executor.isShutdown()) {
+                metrics.incrementCallerRuns();
+                task.run();
+                return;
+            }
+            metrics.incrementDropped();
+            if (task instanceof FailureRecordingTask) {
+                ((FailureRecordingTask) task).recordFailure(executor.isShutdown()
+                        ? "Async executor shut down" : "Async executor saturated");
+            } else {
+                logger.warn("Async executor saturated ({} queued), dropping task {}", executor.getQueue().size(), task);
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.sushil.poc.config;
+
+/**
+ * Task that can account for itself when {@link AsyncWorkExecutor} drops it
+ * under {@link SaturationPolicy#DROP_TO_FAILURE_TABLE}, e.g. by recording the
+ * trades it would have synced as Mongo sync failures.
+ */
+public interface FailureRecordingTask extends Runnable {
+
+    /**
+     * Called on the submitting thread instead of {@link #run()}.
+     *
+     * @param reason why the task was not run
+     */
+    void recordFailure(String reason);
+}
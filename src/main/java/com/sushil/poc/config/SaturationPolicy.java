@@ -0,0 +1,30 @@
+package com.sushil.poc.config;
+
+/**
+ * What {@link AsyncWorkExecutor} does with a task once all its threads are busy
+ * and its queue is full. Selected by {@code async.executor.saturation-policy}.
+ */
+public enum SaturationPolicy {
+    /**
+     * Runs the task on the submitting thread, which slows the producer down to
+     * the rate the executor can sustain.
+     */
+    CALLER_RUNS,
+    /**
+     * Drops the task. Mongo sync tasks first record their trades in
+     * {@code mongo_sync_failures} so the reconciler replays them later.
+     */
+    DROP_TO_FAILURE_TABLE;
+
+    /**
+     * @param name {@code caller-runs} or {@code drop-to-failure-table}, case-insensitive
+     */
+    public static SaturationPolicy fromName(String name) {
+        for (SaturationPolicy policy : values()) {
+            if (policy.name().replace('_', '-').equalsIgnoreCase(name)) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown async.executor.saturation-policy: " + name);
+    }
+}
@@ -0,0 +1,50 @@
+package com.sushil.poc.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factories that follow {@code spring.threads.virtual.enabled}, so the
+ * application's own threads switch to virtual threads together with Tomcat
+ * and the {@code @Async} executor. Virtual threads need Java 21 (build with
+ * {@code -Pjava21}); on older runtimes platform threads are used instead.
+ */
+public final class VirtualThreads {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if virtual threads were requested and the runtime supports them
+     */
+    public static boolean isActive(boolean requested) {
+        if (requested && !JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+            logger.warn("spring.threads.virtual.enabled is set but Java {} has no virtual threads; using platform threads",
+                    JavaVersion.getJavaVersion());
+            return false;
+        }
+        return requested;
+    }
+
+    /**
+     * @param virtual    create virtual threads, see {@link #isActive(boolean)}
+     * @param namePrefix thread names are the prefix followed by a counter
+     * @return factory for virtual threads, or for platform daemon threads
+     */
+    public static ThreadFactory factory(boolean virtual, String namePrefix) {
+        if (virtual) {
+            return new VirtualThreadTaskExecutor(namePrefix).getVirtualThreadFactory();
+        }
+        AtomicInteger index = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, namePrefix + index.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
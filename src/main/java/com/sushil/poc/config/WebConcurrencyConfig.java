@@ -0,0 +1,50 @@
+package com.sushil.poc.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import javax.sql.DataSource;
+
+/**
+ * Registers the {@link ConcurrencyLimitFilter} on {@code /api/*}. On by default
+ * with virtual threads, off otherwise (Tomcat's thread pool already bounds
+ * concurrency); override with {@code web.concurrency.limit.enabled}.
+ * <p>
+ * The limit defaults to {@code web.concurrency.requests-per-connection} times
+ * the Hikari pool size: every API request needs a SQL connection, so letting
+ * far more than that run only moves the queueing into the pool, where waiters
+ * hold memory and fail after the connection timeout. MongoDB needs no separate
+ * limit: it is written off the request path, by write-behind flush batches on
+ * the {@link AsyncWorkExecutor}, the outbox relay and the reconciler, and the
+ * reads routed to it run on request threads this filter already bounds.
+ */
+@Configuration
+@ConditionalOnExpression("${web.concurrency.limit.enabled:${spring.threads.virtual.enabled:false}}")
+public class WebConcurrencyConfig {
+    private static final Logger logger = LoggerFactory.getLogger(WebConcurrencyConfig.class);
+
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(DataSource dataSource,
+            MeterRegistry meterRegistry,
+            @Value("${web.concurrency.max-in-flight:0}") int maxInFlight,
+            @Value("${web.concurrency.requests-per-connection:2}") int requestsPerConnection,
+            @Value("${web.concurrency.acquire-timeout-ms:2000}") long acquireTimeoutMs) {
+        int limit = maxInFlight;
+        if (limit <= 0) {
+            int poolSize = dataSource instanceof HikariDataSource
+                    ? ((HikariDataSource) dataSource).getMaximumPoolSize() : 10;
+            limit = poolSize * requestsPerConnection;
+        }
+        logger.info("Limiting concurrent API requests to {}", limit);
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(
+                new ConcurrencyLimitFilter(limit, acquireTimeoutMs, meterRegistry));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
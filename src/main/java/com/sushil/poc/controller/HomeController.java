@@ -1,5 +1,12 @@
 package com.sushil.poc.controller;
 
+import com.sushil.poc.health.QueueConsumersHealthIndicator;
+import com.sushil.poc.health.QueueHealthIndicator;
+import com.sushil.poc.health.StoreLatencyHealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.actuate.health.StatusAggregator;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 import io.swagger.v3.oas.annotations.Operation;
@@ -8,9 +15,23 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import com.sushil.poc.dto.HomeResponseDTO;
 import com.sushil.poc.dto.HealthResponseDTO;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @RestController
 public class HomeController {
+    private final QueueHealthIndicator queueHealth;
+    private final QueueConsumersHealthIndicator queueConsumersHealth;
+    private final StoreLatencyHealthIndicator storeLatencyHealth;
+
+    public HomeController(QueueHealthIndicator queueHealth, QueueConsumersHealthIndicator queueConsumersHealth,
+            StoreLatencyHealthIndicator storeLatencyHealth) {
+        this.queueHealth = queueHealth;
+        this.queueConsumersHealth = queueConsumersHealth;
+        this.storeLatencyHealth = storeLatencyHealth;
+    }
+
     /**
      * Home endpoint for health check and welcome message.
      * 
@@ -25,16 +46,32 @@ public class HomeController {
     }
 
     /**
-     * Health check endpoint for readiness/liveness probes.
+     * Health check combining queue readiness, consumer liveness and SQL
+     * latency. Kubernetes probes should prefer /actuator/health/readiness and
+     * /actuator/health/liveness, which split these apart.
      * 
      * @return HealthResponseDTO with health status and details
      */
-    @Operation(summary = "Health endpoint", description = "Returns application health status.", responses = {
-            @ApiResponse(responseCode = "200", description = "Health status", content = @Content(schema = @Schema(implementation = HealthResponseDTO.class)))
+    @Operation(summary = "Health endpoint", description = "Returns application health status from the queue, its consumers and SQL latency.", responses = {
+            @ApiResponse(responseCode = "200", description = "Application is up", content = @Content(schema = @Schema(implementation = HealthResponseDTO.class))),
+            @ApiResponse(responseCode = "503", description = "Application is down or out of service", content = @Content(schema = @Schema(implementation = HealthResponseDTO.class)))
     })
     @GetMapping("/api/v1/health")
-    public HealthResponseDTO health() {
-        // In a real app, you might check DB, queue, etc. Here we return static info.
-        return new HealthResponseDTO("UP", "All systems operational.");
+    public ResponseEntity<HealthResponseDTO> health() {
+        Map<String, Status> statuses = new LinkedHashMap<>();
+        statuses.put("queue", queueHealth.health().getStatus());
+        statuses.put("queueConsumers", queueConsumersHealth.health().getStatus());
+        statuses.put("storeLatency", storeLatencyHealth.health().getStatus());
+        Status status = StatusAggregator.getDefault().getAggregateStatus(new HashSet<>(statuses.values()));
+        StringBuilder details = new StringBuilder();
+        for (Map.Entry<String, Status> entry : statuses.entrySet()) {
+            if (details.length() > 0) {
+                details.append(", ");
+            }
+            details.append(entry.getKey()).append(": ").append(entry.getValue().getCode());
+        }
+        HealthResponseDTO body = new HealthResponseDTO(status.getCode(), details.toString());
+        return Status.UP.equals(status) ? ResponseEntity.ok(body)
+                : ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(body);
     }
 }
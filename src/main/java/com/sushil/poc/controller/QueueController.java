@@ -1,15 +1,31 @@
 package com.sushil.poc.controller;
 
+import com.sushil.poc.codec.TradeBatchCodec;
+import com.sushil.poc.dto.BatchPublishResponseDTO;
 import com.sushil.poc.dto.QueuePublishRequestDTO;
 import com.sushil.poc.dto.QueueStatusResponseDTO;
+import com.sushil.poc.dto.StreamPublishResponseDTO;
+import com.sushil.poc.mapper.TradeMapper;
 import com.sushil.poc.model.Trade;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
-import java.time.LocalDate;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.format.DateTimeParseException;
+import java.util.List;
 import com.sushil.poc.queue.InMemoryQueue;
+import com.sushil.poc.queue.TradePublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,45 +33,188 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api/v1/queue")
 public class QueueController {
     private final InMemoryQueue inMemoryQueue;
+    private final TradePublisher tradePublisher;
+    private final ObjectMapper objectMapper;
+    private final TradeMapper tradeMapper;
+    private final long streamOfferTimeoutMs;
+    private final int batchMaxTrades;
 
-    public QueueController(InMemoryQueue inMemoryQueue) {
+    public QueueController(InMemoryQueue inMemoryQueue, TradePublisher tradePublisher, ObjectMapper objectMapper,
+            TradeMapper tradeMapper,
+            @Value("${queue.stream.offer-timeout-ms:5000}") long streamOfferTimeoutMs,
+            @Value("${queue.publish.batch.max-trades:10000}") int batchMaxTrades) {
         this.inMemoryQueue = inMemoryQueue;
+        this.tradePublisher = tradePublisher;
+        this.objectMapper = objectMapper;
+        this.tradeMapper = tradeMapper;
+        this.streamOfferTimeoutMs = streamOfferTimeoutMs;
+        this.batchMaxTrades = batchMaxTrades;
     }
 
     /**
-     * Publishes a trade to the in-memory queue.
+     * Publishes a trade to the in-memory queue. When the queue is full the
+     * configured backpressure policy decides whether the call waits, spills the
+     * trade to disk or is rejected with 429 and a Retry-After header.
      * 
      * @param requestDTO Trade publish request DTO
      * @return Success message
      */
-    @Operation(summary = "Publish a trade to the queue", description = "Publishes a trade to the in-memory queue for processing.", requestBody = @RequestBody(required = true, content = @Content(schema = @Schema(implementation = QueuePublishRequestDTO.class))), responses = {
-            @ApiResponse(responseCode = "200", description = "Trade published successfully", content = @Content(schema = @Schema(implementation = String.class)))
+    @Operation(summary = "Publish a trade to the queue", description = "Publishes a trade to the in-memory queue for processing, applying the configured backpressure policy when the queue is full.", requestBody = @RequestBody(required = true, content = @Content(schema = @Schema(implementation = QueuePublishRequestDTO.class))), responses = {
+            @ApiResponse(responseCode = "200", description = "Trade published successfully", content = @Content(schema = @Schema(implementation = String.class))),
+            @ApiResponse(responseCode = "202", description = "Queue full; trade spilled to disk and will be queued later", content = @Content(schema = @Schema(implementation = String.class))),
+            @ApiResponse(responseCode = "429", description = "Queue full; retry after the number of seconds in the Retry-After header", content = @Content(schema = @Schema(implementation = String.class))),
+            @ApiResponse(responseCode = "503", description = "Queue draining for shutdown, or interrupted while waiting for queue space", content = @Content(schema = @Schema(implementation = String.class)))
     })
     @PostMapping("/publish")
     public ResponseEntity<String> publishTrade(
             @org.springframework.web.bind.annotation.RequestBody QueuePublishRequestDTO requestDTO) {
-        Trade trade = new Trade();
-        trade.setTradeId(requestDTO.getTradeId());
-        trade.setVersion(requestDTO.getVersion());
-        trade.setCounterPartyId(requestDTO.getCounterPartyId());
-        trade.setBookId(requestDTO.getBookId());
-        trade.setMaturityDate(LocalDate.parse(requestDTO.getMaturityDate()));
-        trade.setCreatedDate(LocalDate.parse(requestDTO.getCreatedDate()));
-        trade.setExpired("Y".equalsIgnoreCase(requestDTO.getExpired()));
-        inMemoryQueue.send(trade);
-        return ResponseEntity.ok("Trade published to queue");
+        TradePublisher.PublishResult result;
+        try {
+            result = tradePublisher.publish(tradeMapper.toEntity(requestDTO));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Interrupted");
+        }
+        switch (result) {
+            case ENQUEUED:
+                return ResponseEntity.ok("Trade published to queue");
+            case SPILLED:
+                return ResponseEntity.accepted().body("Queue full, trade spilled to disk");
+            case DRAINING:
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .body("Queue is draining for shutdown, trade not published");
+            default:
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(tradePublisher.retryAfterSeconds()))
+                        .body("Queue full, trade not published");
+        }
     }
 
     /**
-     * Gets the current queue size.
+     * Publishes a binary batch of trades ({@link TradeBatchCodec}) to the queue
+     * in one call, applying the configured backpressure policy. Trades are
+     * decoded straight from the body, without JSON or date parsing, and queued
+     * in order; those that do not fit are the tail of the batch.
+     * 
+     * @param body Encoded batch of at most queue.publish.batch.max-trades trades
+     * @return Counts of enqueued, spilled and rejected trades
+     */
+    @Operation(summary = "Publish a binary batch of trades", description = "Decodes a length-prefixed binary batch of trades with epoch-day dates (content type " + TradeBatchCodec.CONTENT_TYPE + ") and publishes it to the in-memory queue in order, applying the configured backpressure policy.", responses = {
+            @ApiResponse(responseCode = "200", description = "Whole batch published", content = @Content(schema = @Schema(implementation = BatchPublishResponseDTO.class))),
+            @ApiResponse(responseCode = "202", description = "Queue full; the tail of the batch was spilled to disk and will be queued later", content = @Content(schema = @Schema(implementation = BatchPublishResponseDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Malformed batch; nothing was published", content = @Content(schema = @Schema(implementation = BatchPublishResponseDTO.class))),
+            @ApiResponse(responseCode = "429", description = "Queue full; the rejected tail can be resent after the number of seconds in the Retry-After header", content = @Content(schema = @Schema(implementation = BatchPublishResponseDTO.class))),
+            @ApiResponse(responseCode = "503", description = "Queue draining for shutdown, or interrupted while waiting for queue space", content = @Content(schema = @Schema(implementation = BatchPublishResponseDTO.class)))
+    })
+    @PostMapping(value = "/publish", consumes = TradeBatchCodec.CONTENT_TYPE)
+    public ResponseEntity<BatchPublishResponseDTO> publishBatch(
+            @org.springframework.web.bind.annotation.RequestBody byte[] body) {
+        List<Trade> trades;
+        try {
+            trades = TradeBatchCodec.decode(ByteBuffer.wrap(body), batchMaxTrades);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new BatchPublishResponseDTO(0, 0, 0, "Malformed trade batch: " + e.getMessage()));
+        }
+        if (inMemoryQueue.isDraining()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new BatchPublishResponseDTO(0, 0, trades.size(), "Queue is draining for shutdown"));
+        }
+        TradePublisher.BatchResult result;
+        try {
+            result = tradePublisher.publishAll(trades);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new BatchPublishResponseDTO(0, 0, 0, "Interrupted, the batch may be partly published"));
+        }
+        if (result.getRejected() > 0) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(tradePublisher.retryAfterSeconds()))
+                    .body(new BatchPublishResponseDTO(result.getEnqueued(), result.getSpilled(), result.getRejected(),
+                            "Queue full, trades not published"));
+        }
+        BatchPublishResponseDTO response = new BatchPublishResponseDTO(result.getEnqueued(), result.getSpilled(), 0,
+                null);
+        return result.getSpilled() > 0 ? ResponseEntity.accepted().body(response) : ResponseEntity.ok(response);
+    }
+
+    /**
+     * Publishes a stream of newline-delimited JSON trades to the queue. The body
+     * is read incrementally; when the queue is full, reading pauses (up to
+     * queue.stream.offer-timeout-ms per trade) so the producer is slowed down
+     * rather than trades being dropped. After that the configured backpressure
+     * policy applies: under {@code spill} the trade is spilled to disk and the
+     * stream goes on, otherwise the stream is cut short.
+     * 
+     * @param body NDJSON request body, one QueuePublishRequestDTO per line
+     * @return Counts of published, spilled and rejected trades
+     */
+    @Operation(summary = "Publish an NDJSON stream of trades", description = "Reads newline-delimited JSON trades incrementally and publishes them to the in-memory queue with backpressure, then the configured backpressure policy.", responses = {
+            @ApiResponse(responseCode = "200", description = "Whole stream published", content = @Content(schema = @Schema(implementation = StreamPublishResponseDTO.class))),
+            @ApiResponse(responseCode = "202", description = "Whole stream taken; some trades were spilled to disk and will be queued later", content = @Content(schema = @Schema(implementation = StreamPublishResponseDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Malformed JSON; trades before it were published", content = @Content(schema = @Schema(implementation = StreamPublishResponseDTO.class))),
+            @ApiResponse(responseCode = "429", description = "Queue stayed full; trades before it were published, resend the rest after the number of seconds in the Retry-After header", content = @Content(schema = @Schema(implementation = StreamPublishResponseDTO.class))),
+            @ApiResponse(responseCode = "503", description = "Queue draining for shutdown; trades before it were published", content = @Content(schema = @Schema(implementation = StreamPublishResponseDTO.class)))
+    })
+    @PostMapping(value = "/publish/stream", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamPublishResponseDTO> publishStream(InputStream body) throws IOException {
+        long published = 0;
+        long spilled = 0;
+        long rejected = 0;
+        try (MappingIterator<QueuePublishRequestDTO> lines = objectMapper.readerFor(QueuePublishRequestDTO.class)
+                .readValues(body)) {
+            while (lines.hasNextValue()) {
+                Trade trade;
+                try {
+                    trade = tradeMapper.toEntity(lines.nextValue());
+                } catch (DateTimeParseException e) {
+                    rejected++;
+                    continue;
+                }
+                switch (tradePublisher.publish(trade, streamOfferTimeoutMs)) {
+                    case ENQUEUED:
+                        published++;
+                        break;
+                    case SPILLED:
+                        spilled++;
+                        break;
+                    case DRAINING:
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new StreamPublishResponseDTO(
+                                published, spilled, rejected, "Queue is draining for shutdown"));
+                    default:
+                        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                                .header(HttpHeaders.RETRY_AFTER, String.valueOf(tradePublisher.retryAfterSeconds()))
+                                .body(new StreamPublishResponseDTO(published, spilled, rejected,
+                                        "Queue stayed full for " + streamOfferTimeoutMs + " ms"));
+                }
+            }
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.badRequest().body(new StreamPublishResponseDTO(published, spilled, rejected,
+                    "Malformed NDJSON: " + e.getOriginalMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new StreamPublishResponseDTO(published, spilled, rejected, "Interrupted"));
+        }
+        StreamPublishResponseDTO response = new StreamPublishResponseDTO(published, spilled, rejected, null);
+        return spilled > 0 ? ResponseEntity.accepted().body(response) : ResponseEntity.ok(response);
+    }
+
+    /**
+     * Gets the current queue size, remaining capacity and estimated drain
+     * time, so producers can pace themselves.
      * 
      * @return Queue status response DTO
      */
-    @Operation(summary = "Get queue status", description = "Returns the current size of the in-memory queue.", responses = {
+    @Operation(summary = "Get queue status", description = "Returns the current size, remaining capacity, drain rate and estimated drain time of the in-memory queue.", responses = {
             @ApiResponse(responseCode = "200", description = "Queue status returned", content = @Content(schema = @Schema(implementation = QueueStatusResponseDTO.class)))
     })
     @GetMapping("/status")
     public ResponseEntity<QueueStatusResponseDTO> getQueueStatus() {
-        return ResponseEntity.ok(new QueueStatusResponseDTO(inMemoryQueue.size()));
+        long drainMs = inMemoryQueue.estimatedDrainMillis();
+        return ResponseEntity.ok(new QueueStatusResponseDTO(inMemoryQueue.size(), inMemoryQueue.capacity(),
+                inMemoryQueue.remainingCapacity(), inMemoryQueue.drainRatePerSecond(), drainMs < 0 ? null : drainMs,
+                tradePublisher.getPolicy().name().toLowerCase(), tradePublisher.spilled()));
     }
 }
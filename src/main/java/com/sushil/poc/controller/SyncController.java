@@ -0,0 +1,43 @@
+package com.sushil.poc.controller;
+
+import com.sushil.poc.dto.ReplayResponseDTO;
+import com.sushil.poc.sync.MongoSyncReconciler;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/sync")
+public class SyncController {
+    private final MongoSyncReconciler reconciler;
+
+    public SyncController(MongoSyncReconciler reconciler) {
+        this.reconciler = reconciler;
+    }
+
+    /**
+     * Replays recorded Mongo sync failures now instead of waiting for the
+     * scheduled run.
+     * 
+     * @return Replay summary
+     */
+    @Operation(summary = "Replay Mongo sync failures", description = "Replays every due record in mongo_sync_failures to MongoDB.", responses = {
+            @ApiResponse(responseCode = "200", description = "Replay completed", content = @Content(schema = @Schema(implementation = ReplayResponseDTO.class))),
+            @ApiResponse(responseCode = "409", description = "A replay is already running")
+    })
+    @PostMapping("/replay")
+    public ResponseEntity<ReplayResponseDTO> replay() {
+        MongoSyncReconciler.ReplayResult result = reconciler.replay();
+        if (result == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.ok(
+                new ReplayResponseDTO(result.getReplayed(), result.getRescheduled(), result.getRemaining()));
+    }
+}
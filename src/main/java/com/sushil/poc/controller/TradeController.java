@@ -1,19 +1,43 @@
 
 package com.sushil.poc.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sushil.poc.dto.BulkTradeResponseDTO;
+import com.sushil.poc.dto.BulkTradeResultDTO;
 import com.sushil.poc.dto.TradeRequestDTO;
 import com.sushil.poc.dto.TradeResponseDTO;
+import com.sushil.poc.job.TradeExpiryJob;
+import com.sushil.poc.mapper.TradeJsonWriter;
+import com.sushil.poc.mapper.TradeMapper;
+import com.sushil.poc.mapper.TradeResponseList;
 import com.sushil.poc.model.Trade;
+import com.sushil.poc.service.TradeCursor;
+import com.sushil.poc.service.TradeOutcome;
 import com.sushil.poc.service.TradeService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -23,10 +47,24 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/v1/trades")
 @Tag(name = "Trade API", description = "Endpoints for managing trades")
 public class TradeController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final TradeService tradeService;
+    private final TradeExpiryJob tradeExpiryJob;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TradeMapper tradeMapper;
+    private final int bulkMaxSize;
 
-    public TradeController(TradeService tradeService) {
+    public TradeController(TradeService tradeService, TradeExpiryJob tradeExpiryJob, Validator validator,
+            ObjectMapper objectMapper, TradeMapper tradeMapper,
+            @Value("${trade.bulk.max-size:10000}") int bulkMaxSize) {
         this.tradeService = tradeService;
+        this.tradeExpiryJob = tradeExpiryJob;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.tradeMapper = tradeMapper;
+        this.bulkMaxSize = bulkMaxSize;
     }
 
     /**
@@ -39,34 +77,117 @@ public class TradeController {
     })
     @PostMapping
     public ResponseEntity<TradeResponseDTO> addTrade(@Valid @RequestBody TradeRequestDTO tradeDto) {
-        Trade trade = toEntity(tradeDto);
+        Trade trade = tradeMapper.toEntity(tradeDto);
         Trade saved = tradeService.acceptTrade(trade);
-        return ResponseEntity.ok(toResponseDTO(saved));
+        return ResponseEntity.ok(tradeMapper.toResponseDTO(saved));
+    }
+
+    /**
+     * Create or replace many trades in one request. Each trade is validated and
+     * checked on its own; one bad trade does not fail the others.
+     */
+    @Operation(summary = "Add trades in bulk", description = "Accepts a list of trades, checks all versions in a single pass and returns a result per trade.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Trades processed; see per-trade results"),
+            @ApiResponse(responseCode = "413", description = "More trades than trade.bulk.max-size")
+    })
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkTradeResponseDTO> addTrades(@RequestBody List<TradeRequestDTO> tradeDtos) {
+        if (tradeDtos.size() > bulkMaxSize) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        BulkTradeResultDTO[] results = new BulkTradeResultDTO[tradeDtos.size()];
+        List<Trade> trades = new ArrayList<>(tradeDtos.size());
+        List<Integer> tradeIndexes = new ArrayList<>(tradeDtos.size());
+        for (int i = 0; i < tradeDtos.size(); i++) {
+            TradeRequestDTO dto = tradeDtos.get(i);
+            String violations = validate(dto);
+            if (violations != null) {
+                results[i] = new BulkTradeResultDTO(i, dto == null ? null : dto.getTradeId(),
+                        dto == null ? null : dto.getVersion(), "INVALID", violations);
+            } else {
+                trades.add(tradeMapper.toEntity(dto));
+                tradeIndexes.add(i);
+            }
+        }
+
+        List<TradeOutcome> outcomes = tradeService.acceptTrades(trades);
+        int accepted = 0;
+        for (int j = 0; j < outcomes.size(); j++) {
+            TradeOutcome outcome = outcomes.get(j);
+            Trade trade = trades.get(j);
+            int index = tradeIndexes.get(j);
+            results[index] = new BulkTradeResultDTO(index, trade.getTradeId(), trade.getVersion(), outcome.name(),
+                    rejectionMessage(outcome));
+            if (outcome == TradeOutcome.ACCEPTED) {
+                accepted++;
+            }
+        }
+        return ResponseEntity.ok(new BulkTradeResponseDTO(accepted, results.length - accepted, Arrays.asList(results)));
     }
 
     /**
-     * Get all trades for a tradeId.
+     * Get all trades for a tradeId. The trades are written straight to the
+     * response as TradeResponseDTO JSON.
      */
     @Operation(summary = "Get trades by tradeId", description = "Returns all trades for a given tradeId.")
+    @ApiResponse(responseCode = "200", description = "Trades for the tradeId, possibly none", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = TradeResponseDTO.class))))
     @GetMapping("/{tradeId}")
-    public ResponseEntity<List<TradeResponseDTO>> getTrades(
+    public ResponseEntity<TradeResponseList> getTrades(
             @Parameter(description = "Trade identifier") @PathVariable("tradeId") String tradeId) {
-        List<Trade> trades = tradeService.getTradesById(tradeId);
-        return ResponseEntity.ok(trades.stream().map(this::toResponseDTO).collect(Collectors.toList()));
+        return ResponseEntity.ok(new TradeResponseList(tradeService.getTradesById(tradeId)));
     }
 
     /**
-     * List all trades.
+     * List all trades. Offset paging by default; passing {@code cursor} (empty
+     * for the first page) switches to keyset paging, with the token for the
+     * next page returned in the {@code X-Next-Cursor} header. Like
+     * {@link #getTrades(String)}, pages are written straight to the response.
      */
-    @Operation(summary = "List all trades", description = "Returns all trades in the store with paging support.")
+    @Operation(summary = "List all trades", description = "Returns all trades in the store with paging support. "
+            + "Pass cursor (empty for the first page) for keyset paging; the next page's cursor is returned in the X-Next-Cursor header and is absent on the last page.")
+    @ApiResponse(responseCode = "200", description = "One page of trades", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = TradeResponseDTO.class))))
     @GetMapping
-    public ResponseEntity<List<TradeResponseDTO>> getAllTrades(
+    public ResponseEntity<TradeResponseList> getAllTrades(
             @RequestParam(value = "page", defaultValue = "0") int page,
-            @RequestParam(value = "size", defaultValue = "20") int size) {
-        List<Trade> trades = tradeService.getAllTrades(page, size);
-        return ResponseEntity.ok()
-                .header("Cache-Control", "max-age=60, public")
-                .body(trades.stream().map(this::toResponseDTO).collect(Collectors.toList()));
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @Parameter(description = "Opaque keyset cursor from X-Next-Cursor") @RequestParam(value = "cursor", required = false) String cursor) {
+        if (cursor == null) {
+            List<Trade> trades = tradeService.getAllTrades(page, size);
+            return ResponseEntity.ok()
+                    .header("Cache-Control", "max-age=60, public")
+                    .body(new TradeResponseList(trades));
+        }
+        List<Trade> trades = tradeService.getTradesAfter(cursor, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().header("Cache-Control", "max-age=60, public");
+        if (trades.size() == size && size > 0) {
+            response.header(NEXT_CURSOR_HEADER, TradeCursor.encode(trades.get(trades.size() - 1).getId()));
+        }
+        return response.body(new TradeResponseList(trades));
+    }
+
+    /**
+     * Export the whole trade store as newline-delimited JSON, streamed in
+     * constant memory.
+     */
+    @Operation(summary = "Export all trades", description = "Streams every trade as newline-delimited JSON (one TradeResponseDTO per line), in id order.")
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportTrades() {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                char[] dateBuffer = TradeJsonWriter.newDateBuffer();
+                tradeService.exportTrades(trade -> {
+                    try {
+                        TradeJsonWriter.write(generator, trade, dateBuffer);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     /**
@@ -77,10 +198,10 @@ public class TradeController {
     public ResponseEntity<TradeResponseDTO> updateTrade(
             @Parameter(description = "Trade identifier") @PathVariable("tradeId") String tradeId,
             @Valid @RequestBody TradeRequestDTO tradeDto) {
-        Trade trade = toEntity(tradeDto);
+        Trade trade = tradeMapper.toEntity(tradeDto);
         trade.setTradeId(tradeId);
         Trade updated = tradeService.acceptTrade(trade);
-        return ResponseEntity.ok(toResponseDTO(updated));
+        return ResponseEntity.ok(tradeMapper.toResponseDTO(updated));
     }
 
     /**
@@ -97,34 +218,48 @@ public class TradeController {
     /**
      * Mark expired trades.
      */
-    @Operation(summary = "Mark expired trades", description = "Marks all trades with maturity date before today as expired.")
+    @Operation(summary = "Mark expired trades", description = "Runs the trade expiry job now, marking all trades with maturity date before today as expired.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Expiry run finished"),
+            @ApiResponse(responseCode = "409", description = "An expiry run is already in progress")
+    })
     @PostMapping("/markExpired")
     public ResponseEntity<String> markExpiredTrades() {
-        int count = tradeService.markExpiredTrades();
-        return ResponseEntity.ok("Marked " + count + " trade(s) as expired.");
+        TradeExpiryJob.ExpiryResult result = tradeExpiryJob.run();
+        if (result == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Trade expiry is already running.");
+        }
+        String message = "Marked " + result.getExpired() + " trade(s) as expired.";
+        if (!result.isCompleted()) {
+            message += " The run stopped early and will resume on the next run.";
+        }
+        return ResponseEntity.ok(message);
     }
 
-    // --- DTO Mappers ---
-    private Trade toEntity(TradeRequestDTO dto) {
-        Trade t = new Trade();
-        t.setTradeId(dto.getTradeId());
-        t.setVersion(dto.getVersion());
-        t.setCounterPartyId(dto.getCounterPartyId());
-        t.setBookId(dto.getBookId());
-        t.setMaturityDate(dto.getMaturityDate());
-        t.setCreatedDate(dto.getCreatedDate());
-        return t;
+    private String validate(TradeRequestDTO dto) {
+        if (dto == null) {
+            return "Trade must not be null";
+        }
+        Set<ConstraintViolation<TradeRequestDTO>> violations = validator.validate(dto);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
     }
 
-    private TradeResponseDTO toResponseDTO(Trade t) {
-        TradeResponseDTO dto = new TradeResponseDTO();
-        dto.setTradeId(t.getTradeId());
-        dto.setVersion(t.getVersion());
-        dto.setCounterPartyId(t.getCounterPartyId());
-        dto.setBookId(t.getBookId());
-        dto.setMaturityDate(t.getMaturityDate());
-        dto.setCreatedDate(t.getCreatedDate());
-        dto.setExpired(t.isExpired());
-        return dto;
+    private static String rejectionMessage(TradeOutcome outcome) {
+        switch (outcome) {
+            case ACCEPTED:
+                return null;
+            case LOWER_VERSION:
+                return "Version too low";
+            case MATURITY_REJECTED:
+                return "Maturity date must be today or in the future";
+            default:
+                return "Trade could not be processed";
+        }
     }
 }
@@ -0,0 +1,54 @@
+package com.sushil.poc.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Response DTO for a binary batch publish. Trades are taken in order: the first `enqueued` were queued, the next `spilled` spilled to disk, the remaining `rejected` can be resent")
+public class BatchPublishResponseDTO {
+    @Schema(description = "Trades published to the queue", example = "1000")
+    private int enqueued;
+    @Schema(description = "Trades spilled to disk, to be queued later", example = "0")
+    private int spilled;
+    @Schema(description = "Trades at the end of the batch that were not published", example = "0")
+    private int rejected;
+    @Schema(description = "Why the batch was not fully published, if it was not", example = "Queue full")
+    private String error;
+
+    public BatchPublishResponseDTO(int enqueued, int spilled, int rejected, String error) {
+        this.enqueued = enqueued;
+        this.spilled = spilled;
+        this.rejected = rejected;
+        this.error = error;
+    }
+
+    public int getEnqueued() {
+        return enqueued;
+    }
+
+    public void setEnqueued(int enqueued) {
+        this.enqueued = enqueued;
+    }
+
+    public int getSpilled() {
+        return spilled;
+    }
+
+    public void setSpilled(int spilled) {
+        this.spilled = spilled;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(int rejected) {
+        this.rejected = rejected;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
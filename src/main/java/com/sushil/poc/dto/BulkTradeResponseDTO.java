@@ -0,0 +1,47 @@
+package com.sushil.poc.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+
+@Schema(description = "Response DTO for bulk trade ingestion")
+public class BulkTradeResponseDTO {
+    @Schema(description = "Number of trades accepted", example = "998")
+    private int accepted;
+
+    @Schema(description = "Number of trades not accepted", example = "2")
+    private int rejected;
+
+    @Schema(description = "Result for each trade, in request order")
+    private List<BulkTradeResultDTO> results;
+
+    public BulkTradeResponseDTO(int accepted, int rejected, List<BulkTradeResultDTO> results) {
+        this.accepted = accepted;
+        this.rejected = rejected;
+        this.results = results;
+    }
+
+    // Getters and setters
+    public int getAccepted() {
+        return accepted;
+    }
+
+    public void setAccepted(int accepted) {
+        this.accepted = accepted;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(int rejected) {
+        this.rejected = rejected;
+    }
+
+    public List<BulkTradeResultDTO> getResults() {
+        return results;
+    }
+
+    public void setResults(List<BulkTradeResultDTO> results) {
+        this.results = results;
+    }
+}
@@ -0,0 +1,70 @@
+package com.sushil.poc.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Result for one trade of a bulk request")
+public class BulkTradeResultDTO {
+    @Schema(description = "Position of the trade in the request", example = "0")
+    private int index;
+
+    @Schema(description = "Trade identifier", example = "T1")
+    private String tradeId;
+
+    @Schema(description = "Trade version", example = "1")
+    private Integer version;
+
+    @Schema(description = "ACCEPTED, LOWER_VERSION, MATURITY_REJECTED, INVALID or FAILED", example = "ACCEPTED")
+    private String status;
+
+    @Schema(description = "Reason the trade was not accepted", example = "Version too low")
+    private String message;
+
+    public BulkTradeResultDTO(int index, String tradeId, Integer version, String status, String message) {
+        this.index = index;
+        this.tradeId = tradeId;
+        this.version = version;
+        this.status = status;
+        this.message = message;
+    }
+
+    // Getters and setters
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getTradeId() {
+        return tradeId;
+    }
+
+    public void setTradeId(String tradeId) {
+        this.tradeId = tradeId;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -6,9 +6,28 @@ import io.swagger.v3.oas.annotations.media.Schema;
 public class QueueStatusResponseDTO {
     @Schema(description = "Current queue size", example = "5")
     private int queueSize;
+    @Schema(description = "Total queue capacity, summed over all lanes", example = "1000")
+    private int capacity;
+    @Schema(description = "Free slots, summed over all lanes", example = "995")
+    private int remainingCapacity;
+    @Schema(description = "Trades taken off the queue per second, smoothed over the last few seconds", example = "850.5")
+    private double drainRatePerSecond;
+    @Schema(description = "Estimated time to work off the current backlog; null until a drain rate is known", example = "6")
+    private Long estimatedDrainMs;
+    @Schema(description = "Backpressure policy applied when the queue is full", example = "reject")
+    private String policy;
+    @Schema(description = "Trades spilled to disk and not yet moved into the queue", example = "0")
+    private long spilled;
 
-    public QueueStatusResponseDTO(int queueSize) {
+    public QueueStatusResponseDTO(int queueSize, int capacity, int remainingCapacity, double drainRatePerSecond,
+            Long estimatedDrainMs, String policy, long spilled) {
         this.queueSize = queueSize;
+        this.capacity = capacity;
+        this.remainingCapacity = remainingCapacity;
+        this.drainRatePerSecond = drainRatePerSecond;
+        this.estimatedDrainMs = estimatedDrainMs;
+        this.policy = policy;
+        this.spilled = spilled;
     }
 
     public int getQueueSize() {
@@ -18,4 +37,52 @@ public class QueueStatusResponseDTO {
     public void setQueueSize(int queueSize) {
         this.queueSize = queueSize;
     }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getRemainingCapacity() {
+        return remainingCapacity;
+    }
+
+    public void setRemainingCapacity(int remainingCapacity) {
+        this.remainingCapacity = remainingCapacity;
+    }
+
+    public double getDrainRatePerSecond() {
+        return drainRatePerSecond;
+    }
+
+    public void setDrainRatePerSecond(double drainRatePerSecond) {
+        this.drainRatePerSecond = drainRatePerSecond;
+    }
+
+    public Long getEstimatedDrainMs() {
+        return estimatedDrainMs;
+    }
+
+    public void setEstimatedDrainMs(Long estimatedDrainMs) {
+        this.estimatedDrainMs = estimatedDrainMs;
+    }
+
+    public String getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(String policy) {
+        this.policy = policy;
+    }
+
+    public long getSpilled() {
+        return spilled;
+    }
+
+    public void setSpilled(long spilled) {
+        this.spilled = spilled;
+    }
 }
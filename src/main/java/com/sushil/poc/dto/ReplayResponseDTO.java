@@ -0,0 +1,43 @@
+package com.sushil.poc.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Response DTO for a Mongo sync failure replay")
+public class ReplayResponseDTO {
+    @Schema(description = "Failure records replayed to MongoDB and deleted", example = "120")
+    private int replayed;
+    @Schema(description = "Failure records that failed again and were rescheduled", example = "0")
+    private int rescheduled;
+    @Schema(description = "Failure records still recorded after the replay", example = "3")
+    private long remaining;
+
+    public ReplayResponseDTO(int replayed, int rescheduled, long remaining) {
+        this.replayed = replayed;
+        this.rescheduled = rescheduled;
+        this.remaining = remaining;
+    }
+
+    public int getReplayed() {
+        return replayed;
+    }
+
+    public void setReplayed(int replayed) {
+        this.replayed = replayed;
+    }
+
+    public int getRescheduled() {
+        return rescheduled;
+    }
+
+    public void setRescheduled(int rescheduled) {
+        this.rescheduled = rescheduled;
+    }
+
+    public long getRemaining() {
+        return remaining;
+    }
+
+    public void setRemaining(long remaining) {
+        this.remaining = remaining;
+    }
+}
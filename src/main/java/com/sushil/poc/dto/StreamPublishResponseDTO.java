@@ -0,0 +1,54 @@
+package com.sushil.poc.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Response DTO for a streamed NDJSON publish")
+public class StreamPublishResponseDTO {
+    @Schema(description = "Trades published to the queue", example = "10000")
+    private long published;
+    @Schema(description = "Trades spilled to disk, to be queued later", example = "0")
+    private long spilled;
+    @Schema(description = "Lines skipped because their fields could not be converted", example = "2")
+    private long rejected;
+    @Schema(description = "Why the stream was cut short, if it was", example = "Queue stayed full for 5000 ms")
+    private String error;
+
+    public StreamPublishResponseDTO(long published, long spilled, long rejected, String error) {
+        this.published = published;
+        this.spilled = spilled;
+        this.rejected = rejected;
+        this.error = error;
+    }
+
+    public long getPublished() {
+        return published;
+    }
+
+    public void setPublished(long published) {
+        this.published = published;
+    }
+
+    public long getSpilled() {
+        return spilled;
+    }
+
+    public void setSpilled(long spilled) {
+        this.spilled = spilled;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
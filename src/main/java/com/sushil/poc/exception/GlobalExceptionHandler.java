@@ -20,6 +20,18 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Version error: " + ex.getMessage());
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseBody
+    public ResponseEntity<String> handleInvalidCursorException(InvalidCursorException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Cursor error: " + ex.getMessage());
+    }
+
+    @ExceptionHandler(TradeLockTimeoutException.class)
+    @ResponseBody
+    public ResponseEntity<String> handleTradeLockTimeoutException(TradeLockTimeoutException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("Concurrent update: " + ex.getMessage());
+    }
+
     // Optionally handle other exceptions
     @ExceptionHandler(Exception.class)
     @ResponseBody
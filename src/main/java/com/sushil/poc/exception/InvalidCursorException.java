@@ -0,0 +1 @@
+package com.sushil.poc.exception; public class InvalidCursorException extends RuntimeException { public InvalidCursorException(String msg) { super(msg); }}
\ No newline at end of file
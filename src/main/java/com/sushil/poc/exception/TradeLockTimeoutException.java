@@ -0,0 +1 @@
+package com.sushil.poc.exception; public class TradeLockTimeoutException extends RuntimeException { public TradeLockTimeoutException(String msg) { super(msg); }}
\ No newline at end of file
@@ -0,0 +1,47 @@
+package com.sushil.poc.health;
+
+import com.sushil.poc.queue.InMemoryQueue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Liveness of the queue consumers: down if a consumer thread has died or has
+ * not polled for {@code queue.health.consumer-stall-ms}, e.g. because it hangs
+ * on the database. Restarting the instance is then the only way to drain its
+ * queue.
+ */
+@Component("queueConsumers")
+public class QueueConsumersHealthIndicator implements HealthIndicator {
+    private final InMemoryQueue queue;
+    private final long stallMs;
+
+    public QueueConsumersHealthIndicator(InMemoryQueue queue,
+            @Value("${queue.health.consumer-stall-ms:60000}") long stallMs) {
+        this.queue = queue;
+        this.stallMs = stallMs;
+    }
+
+    @Override
+    public Health health() {
+        if (!queue.isRunning()) {
+            return Health.unknown().withDetail("reason", "Consumers not running").build();
+        }
+        int live = queue.liveConsumers();
+        int expected = queue.expectedConsumers();
+        long heartbeatAgeMs = queue.oldestConsumerHeartbeatAgeMillis();
+        Health.Builder builder;
+        if (live < expected) {
+            builder = Health.down().withDetail("reason", (expected - live) + " consumer thread(s) died");
+        } else if (heartbeatAgeMs > stallMs) {
+            builder = Health.down().withDetail("reason", "A consumer has not polled for " + heartbeatAgeMs + " ms");
+        } else {
+            builder = Health.up();
+        }
+        return builder.withDetail("liveConsumers", live)
+                .withDetail("expectedConsumers", expected)
+                .withDetail("oldestHeartbeatAgeMs", heartbeatAgeMs)
+                .build();
+    }
+}
@@ -0,0 +1,43 @@
+package com.sushil.poc.health;
+
+import com.sushil.poc.queue.InMemoryQueue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Readiness of the in-memory queue: out of service while it is draining for
+ * shutdown or filled beyond {@code queue.health.max-fill-ratio}, so the load
+ * balancer sends publishes to less loaded instances instead.
+ */
+@Component("queue")
+public class QueueHealthIndicator implements HealthIndicator {
+    private final InMemoryQueue queue;
+    private final double maxFillRatio;
+
+    public QueueHealthIndicator(InMemoryQueue queue,
+            @Value("${queue.health.max-fill-ratio:0.9}") double maxFillRatio) {
+        this.queue = queue;
+        this.maxFillRatio = maxFillRatio;
+    }
+
+    @Override
+    public Health health() {
+        int size = queue.size();
+        int capacity = queue.capacity();
+        double fill = capacity == 0 ? 0 : (double) size / capacity;
+        Health.Builder builder;
+        if (queue.isDraining()) {
+            builder = Health.outOfService().withDetail("reason", "Draining for shutdown");
+        } else if (fill >= maxFillRatio) {
+            builder = Health.outOfService().withDetail("reason", "Queue more than " + Math.round(maxFillRatio * 100) + "% full");
+        } else {
+            builder = Health.up();
+        }
+        return builder.withDetail("size", size)
+                .withDetail("capacity", capacity)
+                .withDetail("drainRatePerSecond", queue.drainRatePerSecond())
+                .build();
+    }
+}
@@ -0,0 +1,65 @@
+package com.sushil.poc.health;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round-trip latency to SQL and MongoDB, for readiness. The instance is out of
+ * service when SQL is unreachable or slower than {@code health.max-db-latency-ms},
+ * since every write path waits on it. MongoDB latency is reported but never
+ * takes the instance out: it is written off the request path, by the outbox
+ * relay or the write-behind stage, and reads routed to it
+ * ({@code trade.read.mongo.enabled}) fall back to SQL when it fails.
+ */
+@Component("storeLatency")
+public class StoreLatencyHealthIndicator implements HealthIndicator {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DataSource dataSource;
+    private final MongoTemplate mongoTemplate;
+    private final long maxDbLatencyMs;
+
+    public StoreLatencyHealthIndicator(DataSource dataSource, MongoTemplate mongoTemplate,
+            @Value("${health.max-db-latency-ms:500}") long maxDbLatencyMs) {
+        this.dataSource = dataSource;
+        this.mongoTemplate = mongoTemplate;
+        this.maxDbLatencyMs = maxDbLatencyMs;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = Health.up();
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            boolean valid = connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            long dbMs = elapsedMs(start);
+            builder.withDetail("dbLatencyMs", dbMs);
+            if (!valid) {
+                builder.outOfService().withDetail("reason", "SQL connection failed validation");
+            } else if (dbMs > maxDbLatencyMs) {
+                builder.outOfService().withDetail("reason", "SQL slower than " + maxDbLatencyMs + " ms");
+            }
+        } catch (Exception e) {
+            builder.outOfService().withDetail("reason", "SQL unreachable: " + e.getMessage());
+        }
+        start = System.nanoTime();
+        try {
+            mongoTemplate.executeCommand(new Document("ping", 1));
+            builder.withDetail("mongoLatencyMs", elapsedMs(start));
+        } catch (Exception e) {
+            builder.withDetail("mongoError", e.getClass().getSimpleName());
+        }
+        return builder.build();
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,319 @@
+package com.sushil.poc.job;
+
+import com.sushil.poc.cache.TradeCache;
+import com.sushil.poc.cache.TradeIndex;
+import com.sushil.poc.metrics.ExpiryMetrics;
+import com.sushil.poc.model.JobCheckpoint;
+import com.sushil.poc.model.Trade;
+import com.sushil.poc.model.TradeOutboxEvent;
+import com.sushil.poc.repository.jpa.JobCheckpointRepository;
+import com.sushil.poc.repository.jpa.TradeMaturity;
+import com.sushil.poc.repository.jpa.TradeRepository;
+import com.sushil.poc.repository.jpa.TradeVersion;
+import com.sushil.poc.sync.MongoTradeWriter;
+import com.sushil.poc.sync.MongoWriteBehind;
+import com.sushil.poc.sync.TradeOutbox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Marks trades whose maturity date has passed as expired, in SQL and in the
+ * MongoDB read model.
+ * <p>
+ * Trades are expired in id order, one chunk per short transaction: the chunk's
+ * rows are selected and locked, flagged by primary key and the job checkpoint
+ * is advanced, all in the same commit. A run that is interrupted (a lock
+ * timeout, a restart) resumes after the last committed chunk on its next run
+ * the same day. With the outbox, each chunk records its trades there in the
+ * same commit; otherwise, once a chunk has committed it is pushed to Mongo with
+ * a single updateMany, and if that fails the trades go through the write-behind
+ * instead.
+ * <p>
+ * With the {@link TradeIndex} enabled, a run the index shows has nothing to
+ * expire completes without scanning the table.
+ */
+@Component
+public class TradeExpiryJob {
+    private static final Logger logger = LoggerFactory.getLogger(TradeExpiryJob.class);
+    static final String JOB_NAME = "trade-expiry";
+
+    private final TradeRepository tradeRepo;
+    private final JobCheckpointRepository checkpointRepo;
+    private final MongoTradeWriter writer;
+    private final MongoWriteBehind mongoWriteBehind;
+    private final TradeOutbox tradeOutbox;
+    private final TradeCache tradeCache;
+    private final TradeIndex tradeIndex;
+    private final ExpiryMetrics metrics;
+    private final TransactionTemplate chunkTx;
+    private final int chunkSize;
+    private final long chunkPauseMs;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public TradeExpiryJob(TradeRepository tradeRepo, JobCheckpointRepository checkpointRepo,
+            MongoTradeWriter writer, MongoWriteBehind mongoWriteBehind, TradeOutbox tradeOutbox,
+            TradeCache tradeCache, TradeIndex tradeIndex, ExpiryMetrics metrics, PlatformTransactionManager transactionManager,
+            @Value("${trade.expiry.chunk-size:1000}") int chunkSize,
+            @Value("${trade.expiry.chunk-pause-ms:0}") long chunkPauseMs) {
+        this.tradeRepo = tradeRepo;
+        this.checkpointRepo = checkpointRepo;
+        this.writer = writer;
+        this.mongoWriteBehind = mongoWriteBehind;
+        this.tradeOutbox = tradeOutbox;
+        this.tradeCache = tradeCache;
+        this.tradeIndex = tradeIndex;
+        this.metrics = metrics;
+        this.chunkTx = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.chunkPauseMs = chunkPauseMs;
+    }
+
+    /**
+     * Scheduled run. Resumes an interrupted run of the day; does nothing if
+     * today's run has already completed.
+     */
+    @Scheduled(cron = "${trade.expiry.cron:0 5 * * * *}")
+    public void scheduledRun() {
+        run(false);
+    }
+
+    /**
+     * Runs the job now: resumes an interrupted run of the day, or starts a new
+     * pass over all trades. Only one run happens at a time.
+     *
+     * @return summary of the run, or {@code null} if a run was already in progress
+     */
+    public ExpiryResult run() {
+        return run(true);
+    }
+
+    private ExpiryResult run(boolean rerunIfCompleted) {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            return expire(LocalDate.now(), rerunIfCompleted);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ExpiryResult expire(LocalDate today, boolean rerunIfCompleted) {
+        JobCheckpoint checkpoint = checkpointRepo.findById(JOB_NAME).orElse(null);
+        boolean startedToday = checkpoint != null && today.equals(checkpoint.getRunDate());
+        if (startedToday && checkpoint.isCompleted() && !rerunIfCompleted) {
+            return new ExpiryResult(0, 0, true);
+        }
+        if (!tradeIndex.hasExpiryCandidates(today)) {
+            logger.debug("Trade index has no trades due to expire, skipping the scan");
+            chunkTx.executeWithoutResult(status -> saveCheckpoint(today,
+                    startedToday ? checkpoint.getLastId() : 0, true));
+            return new ExpiryResult(0, 0, true);
+        }
+        long afterId = 0;
+        if (startedToday && !checkpoint.isCompleted()) {
+            afterId = checkpoint.getLastId();
+            logger.info("Resuming trade expiry after id {}", afterId);
+        }
+
+        int expired = 0;
+        int chunks = 0;
+        while (true) {
+            long lastId = afterId;
+            long start = System.nanoTime();
+            List<TradeVersion> chunk;
+            try {
+                chunk = chunkTx.execute(status -> expireChunk(today, lastId));
+            } catch (PessimisticLockingFailureException e) {
+                metrics.incrementLockFailures();
+                logger.warn("Trade expiry stopped on a lock conflict after id {}; the next run resumes from there",
+                        afterId, e);
+                return new ExpiryResult(expired, chunks, false);
+            }
+            metrics.getChunkTimer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            expired += chunk.size();
+            chunks++;
+            afterId = chunk.get(chunk.size() - 1).getId();
+            if (!pause()) {
+                return new ExpiryResult(expired, chunks, false);
+            }
+        }
+
+        long lastId = afterId;
+        chunkTx.executeWithoutResult(status -> saveCheckpoint(today, lastId, true));
+        if (expired > 0) {
+            logger.info("Marked {} trades as expired in {} chunks", expired, chunks);
+        }
+        return new ExpiryResult(expired, chunks, true);
+    }
+
+    /**
+     * Expires the next chunk of due trades after {@code afterId} in the
+     * current transaction.
+     *
+     * @return the expired trades in id order, empty when none are left
+     */
+    private List<TradeVersion> expireChunk(LocalDate today, long afterId) {
+        long lockStart = System.nanoTime();
+        List<TradeVersion> due = tradeRepo.findExpiringAfter(afterId, today, Limit.of(chunkSize));
+        metrics.getLockWaitTimer().record(System.nanoTime() - lockStart, TimeUnit.NANOSECONDS);
+        if (due.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = new ArrayList<>(due.size());
+        List<String> tradeIds = new ArrayList<>(due.size());
+        for (TradeVersion trade : due) {
+            ids.add(trade.getId());
+            tradeIds.add(trade.getTradeId());
+        }
+        tradeRepo.markExpired(ids);
+        if (tradeOutbox.isEnabled()) {
+            tradeOutbox.record(TradeOutboxEvent.ChangeType.EXPIRE, tradeIds);
+        }
+        saveCheckpoint(today, ids.get(ids.size() - 1), false);
+        metrics.incrementExpired(ids.size());
+        afterCommit(() -> syncChunk(today, due, ids));
+        return due;
+    }
+
+    private void saveCheckpoint(LocalDate today, long lastId, boolean completed) {
+        JobCheckpoint checkpoint = new JobCheckpoint(JOB_NAME);
+        checkpoint.setRunDate(today);
+        checkpoint.setLastId(lastId);
+        checkpoint.setCompleted(completed);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpointRepo.save(checkpoint);
+    }
+
+    private void syncChunk(LocalDate today, List<TradeVersion> due, List<Long> ids) {
+        for (TradeVersion trade : due) {
+            tradeCache.invalidate(trade.getTradeId());
+        }
+        updateIndex(today, due);
+        if (tradeOutbox.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            writer.markExpired(ids);
+        } catch (Exception e) {
+            metrics.incrementMongoFailures();
+            logger.warn("Failed to mark {} expired trades in MongoDB, handing them to the write-behind",
+                    ids.size(), e);
+            for (Trade trade : tradeRepo.findAllById(ids)) {
+                mongoWriteBehind.enqueue(trade);
+            }
+        } finally {
+            metrics.getMongoUpdateTimer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Tells the trade index when each expired trade's remaining versions
+     * mature. On failure the trades stay candidates for the next run.
+     */
+    private void updateIndex(LocalDate today, List<TradeVersion> due) {
+        if (!tradeIndex.isEnabled()) {
+            return;
+        }
+        Set<String> tradeIds = new LinkedHashSet<>();
+        for (TradeVersion trade : due) {
+            tradeIds.add(trade.getTradeId());
+        }
+        try {
+            Map<String, LocalDate> next = new HashMap<>();
+            for (TradeMaturity maturity : tradeRepo.findNextMaturities(tradeIds)) {
+                next.put(maturity.getTradeId(), maturity.getMaturityDate());
+            }
+            for (String tradeId : tradeIds) {
+                tradeIndex.expired(tradeId, next.get(tradeId), today);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to update the trade index for {} expired trades", tradeIds.size(), e);
+        }
+    }
+
+    /**
+     * Gives concurrent writers room between chunks.
+     *
+     * @return false if interrupted
+     */
+    private boolean pause() {
+        if (chunkPauseMs <= 0) {
+            return true;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(chunkPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Outcome of one expiry run.
+     */
+    public static final class ExpiryResult {
+        private final int expired;
+        private final int chunks;
+        private final boolean completed;
+
+        ExpiryResult(int expired, int chunks, boolean completed) {
+            this.expired = expired;
+            this.chunks = chunks;
+            this.completed = completed;
+        }
+
+        public int getExpired() {
+            return expired;
+        }
+
+        public int getChunks() {
+            return chunks;
+        }
+
+        /**
+         * @return false if the run stopped early; the next run resumes where it stopped
+         */
+        public boolean isCompleted() {
+            return completed;
+        }
+    }
+}
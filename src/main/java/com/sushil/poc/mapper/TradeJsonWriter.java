@@ -0,0 +1,85 @@
+package com.sushil.poc.mapper;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sushil.poc.dto.TradeResponseDTO;
+import com.sushil.poc.model.Trade;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Writes trades as JSON in the shape of {@link TradeResponseDTO}, straight from
+ * {@link Trade}: same property names and order, dates as yyyy-MM-dd, nulls
+ * written out. Skips the DTO and the list it would be collected into, and
+ * formats dates into a reused buffer instead of a String per date.
+ */
+public final class TradeJsonWriter {
+    private static final int DATE_LENGTH = 10;
+
+    private TradeJsonWriter() {
+    }
+
+    /**
+     * Writes the trades as a JSON array.
+     */
+    public static void writeArray(JsonGenerator generator, List<Trade> trades) throws IOException {
+        char[] dateBuffer = newDateBuffer();
+        generator.writeStartArray(trades, trades.size());
+        for (int i = 0; i < trades.size(); i++) {
+            write(generator, trades.get(i), dateBuffer);
+        }
+        generator.writeEndArray();
+    }
+
+    /**
+     * Writes one trade as a JSON object.
+     *
+     * @param dateBuffer scratch space of at least 10 chars, reused across calls
+     */
+    public static void write(JsonGenerator generator, Trade trade, char[] dateBuffer) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("tradeId", trade.getTradeId());
+        generator.writeNumberField("version", trade.getVersion());
+        generator.writeStringField("counterPartyId", trade.getCounterPartyId());
+        generator.writeStringField("bookId", trade.getBookId());
+        writeDateField(generator, "maturityDate", trade.getMaturityDate(), dateBuffer);
+        writeDateField(generator, "createdDate", trade.getCreatedDate(), dateBuffer);
+        generator.writeBooleanField("expired", trade.isExpired());
+        generator.writeEndObject();
+    }
+
+    /**
+     * @return a scratch buffer for {@link #write(JsonGenerator, Trade, char[])}
+     */
+    public static char[] newDateBuffer() {
+        return new char[DATE_LENGTH];
+    }
+
+    private static void writeDateField(JsonGenerator generator, String name, LocalDate date, char[] buffer)
+            throws IOException {
+        generator.writeFieldName(name);
+        if (date == null) {
+            generator.writeNull();
+            return;
+        }
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            // ISO-8601 adds a sign and more digits outside 0000-9999
+            generator.writeString(date.toString());
+            return;
+        }
+        writeDigits(buffer, 0, year, 4);
+        buffer[4] = '-';
+        writeDigits(buffer, 5, date.getMonthValue(), 2);
+        buffer[7] = '-';
+        writeDigits(buffer, 8, date.getDayOfMonth(), 2);
+        generator.writeString(buffer, 0, DATE_LENGTH);
+    }
+
+    private static void writeDigits(char[] buffer, int offset, int value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.sushil.poc.mapper;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+
+/**
+ * Writes a {@link TradeResponseList} as JSON with {@link TradeJsonWriter},
+ * streaming to the response as it goes. Registered ahead of the default
+ * converters by Spring Boot, like any {@code HttpMessageConverter} bean; it
+ * handles no other type.
+ */
+@Component
+public class TradeListHttpMessageConverter extends AbstractHttpMessageConverter<TradeResponseList> {
+    private final ObjectMapper objectMapper;
+
+    public TradeListHttpMessageConverter(ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return TradeResponseList.class == clazz;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected TradeResponseList readInternal(Class<? extends TradeResponseList> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Trade lists are only written", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(TradeResponseList body, HttpOutputMessage outputMessage) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(outputMessage.getBody());
+        // The servlet container closes the response stream
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try {
+            TradeJsonWriter.writeArray(generator, body.getTrades());
+        } finally {
+            generator.close();
+        }
+    }
+}
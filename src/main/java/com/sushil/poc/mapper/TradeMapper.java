@@ -0,0 +1,59 @@
+package com.sushil.poc.mapper;
+
+import com.sushil.poc.dto.QueuePublishRequestDTO;
+import com.sushil.poc.dto.TradeRequestDTO;
+import com.sushil.poc.dto.TradeResponseDTO;
+import com.sushil.poc.model.Trade;
+import org.springframework.stereotype.Component;
+import java.time.LocalDate;
+
+/**
+ * Maps between the API DTOs and {@link Trade}, for every controller. Plain
+ * field copies, no reflection. Lists of trades are written to responses by
+ * {@link TradeJsonWriter} without going through {@link TradeResponseDTO}.
+ */
+@Component
+public class TradeMapper {
+
+    public Trade toEntity(TradeRequestDTO dto) {
+        Trade t = new Trade();
+        t.setTradeId(dto.getTradeId());
+        t.setVersion(dto.getVersion());
+        t.setCounterPartyId(dto.getCounterPartyId());
+        t.setBookId(dto.getBookId());
+        t.setMaturityDate(dto.getMaturityDate());
+        t.setCreatedDate(dto.getCreatedDate());
+        return t;
+    }
+
+    /**
+     * @throws java.time.format.DateTimeParseException if a date is not yyyy-MM-dd
+     */
+    public Trade toEntity(QueuePublishRequestDTO dto) {
+        Trade t = new Trade();
+        t.setTradeId(dto.getTradeId());
+        t.setVersion(dto.getVersion());
+        t.setCounterPartyId(dto.getCounterPartyId());
+        t.setBookId(dto.getBookId());
+        t.setMaturityDate(parseDate(dto.getMaturityDate()));
+        t.setCreatedDate(parseDate(dto.getCreatedDate()));
+        t.setExpired("Y".equalsIgnoreCase(dto.getExpired()));
+        return t;
+    }
+
+    public TradeResponseDTO toResponseDTO(Trade t) {
+        TradeResponseDTO dto = new TradeResponseDTO();
+        dto.setTradeId(t.getTradeId());
+        dto.setVersion(t.getVersion());
+        dto.setCounterPartyId(t.getCounterPartyId());
+        dto.setBookId(t.getBookId());
+        dto.setMaturityDate(t.getMaturityDate());
+        dto.setCreatedDate(t.getCreatedDate());
+        dto.setExpired(t.isExpired());
+        return dto;
+    }
+
+    private static LocalDate parseDate(String date) {
+        return date == null ? null : LocalDate.parse(date);
+    }
+}
@@ -0,0 +1,22 @@
+package com.sushil.poc.mapper;
+
+import com.sushil.poc.dto.TradeResponseDTO;
+import com.sushil.poc.model.Trade;
+import java.util.List;
+
+/**
+ * Response body holding trades to be returned as a JSON array of
+ * {@link TradeResponseDTO}. Written by {@link TradeListHttpMessageConverter}
+ * straight from the trades, without mapping each one to a DTO first.
+ */
+public final class TradeResponseList {
+    private final List<Trade> trades;
+
+    public TradeResponseList(List<Trade> trades) {
+        this.trades = trades;
+    }
+
+    public List<Trade> getTrades() {
+        return trades;
+    }
+}
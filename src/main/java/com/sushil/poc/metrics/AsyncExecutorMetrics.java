@@ -0,0 +1,56 @@
+package com.sushil.poc.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Component
+public class AsyncExecutorMetrics {
+    private final MeterRegistry meterRegistry;
+    private final Counter callerRuns;
+    private final Counter dropped;
+
+    public AsyncExecutorMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.callerRuns = Counter.builder("async.executor.rejected")
+                .description("Tasks the saturated async executor ran on the submitting thread or dropped")
+                .tag("policy", "caller-runs")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("async.executor.rejected")
+                .description("Tasks the saturated async executor ran on the submitting thread or dropped")
+                .tag("policy", "drop-to-failure-table")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registers the gauges and counters reading the executor's own statistics.
+     */
+    public void bind(ThreadPoolExecutor executor) {
+        Gauge.builder("async.executor.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Async tasks currently running")
+                .register(meterRegistry);
+        Gauge.builder("async.executor.queued", executor, e -> e.getQueue().size())
+                .description("Async tasks waiting for a thread")
+                .register(meterRegistry);
+        Gauge.builder("async.executor.queue.remaining", executor, e -> e.getQueue().remainingCapacity())
+                .description("Async tasks that can still be queued before the saturation policy applies")
+                .register(meterRegistry);
+        Gauge.builder("async.executor.pool.size", executor, ThreadPoolExecutor::getPoolSize)
+                .description("Threads currently in the async executor")
+                .register(meterRegistry);
+        FunctionCounter.builder("async.executor.completed", executor, ThreadPoolExecutor::getCompletedTaskCount)
+                .description("Async tasks completed")
+                .register(meterRegistry);
+    }
+
+    public void incrementCallerRuns() {
+        callerRuns.increment();
+    }
+
+    public void incrementDropped() {
+        dropped.increment();
+    }
+}
@@ -0,0 +1,57 @@
+package com.sushil.poc.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ExpiryMetrics {
+    private final Timer chunkTimer;
+    private final Timer lockWaitTimer;
+    private final Timer mongoUpdateTimer;
+    private final Counter expiredTrades;
+    private final Counter lockFailures;
+    private final Counter mongoFailures;
+
+    public ExpiryMetrics(MeterRegistry meterRegistry) {
+        this.chunkTimer = Timer.builder("trade.expiry.chunk")
+                .description("Time taken to expire one chunk of trades, including its commit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.lockWaitTimer = Timer.builder("trade.expiry.lock.wait")
+                .description("Time spent selecting and row-locking one chunk of trades to expire")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.mongoUpdateTimer = Timer.builder("trade.expiry.mongo.update")
+                .description("Time taken by the Mongo updateMany for one expired chunk")
+                .register(meterRegistry);
+        this.expiredTrades = meterRegistry.counter("trade.expiry.expired");
+        this.lockFailures = meterRegistry.counter("trade.expiry.lock.failures");
+        this.mongoFailures = meterRegistry.counter("trade.expiry.mongo.failures");
+    }
+
+    public Timer getChunkTimer() {
+        return chunkTimer;
+    }
+
+    public Timer getLockWaitTimer() {
+        return lockWaitTimer;
+    }
+
+    public Timer getMongoUpdateTimer() {
+        return mongoUpdateTimer;
+    }
+
+    public void incrementExpired(int count) {
+        expiredTrades.increment(count);
+    }
+
+    public void incrementLockFailures() {
+        lockFailures.increment();
+    }
+
+    public void incrementMongoFailures() {
+        mongoFailures.increment();
+    }
+}
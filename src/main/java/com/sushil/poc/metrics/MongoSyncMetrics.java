@@ -0,0 +1,137 @@
+package com.sushil.poc.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import java.util.function.Supplier;
+
+@Component
+public class MongoSyncMetrics {
+    private final MeterRegistry meterRegistry;
+    private final Timer flushTimer;
+    private final Timer delayTimer;
+    private final Counter writtenTrades;
+    private final Counter flushFailures;
+    private final Counter overflowTrades;
+    private final Counter exhaustedTrades;
+    private final Counter droppedTrades;
+    private final Timer replayBatchTimer;
+    private final Counter replayedTrades;
+    private final Counter replayFailures;
+    private final Timer outboxBatchTimer;
+    private final Counter outboxRelayed;
+    private final Counter outboxFailures;
+    private volatile long replayBacklog;
+
+    public MongoSyncMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.flushTimer = Timer.builder("mongo.writebehind.flush")
+                .description("Time taken by one bulk flush of the Mongo write-behind buffer")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.delayTimer = Timer.builder("mongo.writebehind.delay")
+                .description("Time from handing a committed trade to the write-behind buffer until it was written to Mongo")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.writtenTrades = meterRegistry.counter("mongo.writebehind.written");
+        this.flushFailures = meterRegistry.counter("mongo.writebehind.flush.failures");
+        this.overflowTrades = meterRegistry.counter("mongo.writebehind.failed", "reason", "overflow");
+        this.exhaustedTrades = meterRegistry.counter("mongo.writebehind.failed", "reason", "retries-exhausted");
+        this.droppedTrades = meterRegistry.counter("mongo.writebehind.failed", "reason", "executor-saturated");
+        this.replayBatchTimer = Timer.builder("mongo.replay.batch")
+                .description("Time taken to replay one batch of recorded Mongo sync failures")
+                .register(meterRegistry);
+        this.replayedTrades = meterRegistry.counter("mongo.replay.replayed");
+        this.replayFailures = meterRegistry.counter("mongo.replay.failures");
+        this.outboxBatchTimer = Timer.builder("mongo.outbox.batch")
+                .description("Time taken to relay one batch of outbox changes to the read model")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.outboxRelayed = meterRegistry.counter("mongo.outbox.relayed");
+        this.outboxFailures = meterRegistry.counter("mongo.outbox.failures");
+        Gauge.builder("mongo.replay.backlog", this, MongoSyncMetrics::getReplayBacklog)
+                .description("Recorded Mongo sync failures still waiting to be replayed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registers the gauge reporting how many trades are waiting to be written.
+     */
+    public void registerDepth(Supplier<Number> depth) {
+        Gauge.builder("mongo.writebehind.depth", depth)
+                .description("Trades buffered for the next Mongo bulk write")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registers the gauge reporting how far the Mongo read model is behind SQL.
+     */
+    public void registerLag(Supplier<Number> lagMillis) {
+        Gauge.builder("mongo.sync.lag", lagMillis)
+                .description("Age of the oldest committed trade change not yet applied to Mongo")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    public Timer getFlushTimer() {
+        return flushTimer;
+    }
+
+    public Timer getDelayTimer() {
+        return delayTimer;
+    }
+
+    public void incrementWritten(int count) {
+        writtenTrades.increment(count);
+    }
+
+    public void incrementFlushFailures() {
+        flushFailures.increment();
+    }
+
+    public void incrementOverflow() {
+        overflowTrades.increment();
+    }
+
+    public void incrementRetriesExhausted(int count) {
+        exhaustedTrades.increment(count);
+    }
+
+    public void incrementDropped(int count) {
+        droppedTrades.increment(count);
+    }
+
+    public Timer getReplayBatchTimer() {
+        return replayBatchTimer;
+    }
+
+    public void incrementReplayed(int count) {
+        replayedTrades.increment(count);
+    }
+
+    public void incrementReplayFailures(int count) {
+        replayFailures.increment(count);
+    }
+
+    public Timer getOutboxBatchTimer() {
+        return outboxBatchTimer;
+    }
+
+    public void incrementOutboxRelayed(int count) {
+        outboxRelayed.increment(count);
+    }
+
+    public void incrementOutboxFailures() {
+        outboxFailures.increment();
+    }
+
+    public long getReplayBacklog() {
+        return replayBacklog;
+    }
+
+    public void setReplayBacklog(long backlog) {
+        this.replayBacklog = backlog;
+    }
+}
@@ -1,21 +1,65 @@
 package com.sushil.poc.metrics;
 
+import com.sushil.poc.service.TradeOutcome;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Component;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Component
 public class QueueMetrics {
     private final Counter processedTrades;
     private final Counter failedTrades;
     private final Counter droppedTrades;
+    private final Counter rejectedTrades;
+    private final Counter spilledTrades;
+    private final Map<TradeOutcome, Counter> outcomeCounters = new EnumMap<>(TradeOutcome.class);
+    private final DistributionSummary batchSize;
+    private final Timer sendEnqueued;
+    private final Timer sendRejected;
+    private final Timer walFsync;
+    private final Map<TradeOutcome, Timer> waitTimers = new EnumMap<>(TradeOutcome.class);
+    private final Map<TradeOutcome, Timer> latencyTimers = new EnumMap<>(TradeOutcome.class);
+    private final MeterRegistry meterRegistry;
     private volatile int queueSize;
 
     public QueueMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
         this.processedTrades = meterRegistry.counter("queue.trades.processed");
         this.failedTrades = meterRegistry.counter("queue.trades.failed");
         this.droppedTrades = meterRegistry.counter("queue.trades.dropped");
+        this.rejectedTrades = meterRegistry.counter("queue.trades.rejected");
+        this.spilledTrades = meterRegistry.counter("queue.trades.spilled");
+        for (TradeOutcome outcome : TradeOutcome.values()) {
+            outcomeCounters.put(outcome, meterRegistry.counter("queue.trades.outcome", "outcome", outcome.getTag()));
+        }
+        this.batchSize = DistributionSummary.builder("queue.batch.size")
+                .description("Number of trades drained per consumer batch")
+                .register(meterRegistry);
+        this.sendEnqueued = sendTimer(meterRegistry, "enqueued");
+        this.sendRejected = sendTimer(meterRegistry, "rejected");
+        this.walFsync = Timer.builder("queue.wal.fsync")
+                .description("Time taken by one group-commit fsync of the trade write-ahead log")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        for (TradeOutcome outcome : TradeOutcome.values()) {
+            waitTimers.put(outcome, Timer.builder("queue.trades.wait")
+                    .description("Time a trade spent waiting in the queue before a consumer took it")
+                    .tag("outcome", outcome.getTag())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+            latencyTimers.put(outcome, Timer.builder("queue.trades.latency")
+                    .description("Time from enqueueing a trade until its processing finished")
+                    .tag("outcome", outcome.getTag())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
         Gauge.builder("queue.size", this, QueueMetrics::getQueueSize)
                 .description("Current size of the in-memory trade queue")
                 .register(meterRegistry);
@@ -33,6 +77,105 @@ public class QueueMetrics {
         droppedTrades.increment();
     }
 
+    public void incrementRejected() {
+        rejectedTrades.increment();
+    }
+
+    public void incrementRejected(int count) {
+        rejectedTrades.increment(count);
+    }
+
+    public void incrementSpilled() {
+        spilledTrades.increment();
+    }
+
+    /**
+     * Registers the gauge reporting how many trades wait in the spill file.
+     */
+    public void registerSpillPending(Supplier<Number> pending) {
+        Gauge.builder("queue.spill.pending", pending)
+                .description("Trades spilled to disk and not yet moved into the queue")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records the outcome of a single dequeued trade. Accepted trades count as
+     * processed, every other outcome counts as failed.
+     */
+    public void recordOutcome(TradeOutcome outcome) {
+        outcomeCounters.get(outcome).increment();
+        if (outcome == TradeOutcome.ACCEPTED) {
+            incrementProcessed();
+        } else {
+            incrementFailed();
+        }
+    }
+
+    public void recordBatch(int size) {
+        batchSize.record(size);
+    }
+
+    /**
+     * Records the time taken by a send call.
+     *
+     * @param enqueued false if the trade was dropped or the send timed out
+     */
+    public void recordSend(boolean enqueued, long nanos) {
+        (enqueued ? sendEnqueued : sendRejected).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records how long a processed trade waited in the queue and how long it
+     * took overall, tagged with its outcome.
+     *
+     * @param waitNanos    time from enqueue until a consumer took the trade
+     * @param latencyNanos time from enqueue until processing finished
+     */
+    public void recordQueued(TradeOutcome outcome, long waitNanos, long latencyNanos) {
+        waitTimers.get(outcome).record(waitNanos, TimeUnit.NANOSECONDS);
+        latencyTimers.get(outcome).record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordWalFsync(long nanos) {
+        walFsync.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Registers the gauge reporting how many write-ahead log segments are kept.
+     */
+    public void registerWalSegments(Supplier<Number> segments) {
+        Gauge.builder("queue.wal.segments", segments)
+                .description("Segment files of the trade write-ahead log, including the one being written")
+                .register(meterRegistry);
+    }
+
+    private static Timer sendTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("queue.send")
+                .description("Time taken to offer a trade to the queue, including any wait for space")
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registers depth and lag gauges for one lane of the queue.
+     *
+     * @param lane  lane index, used as the {@code lane} tag
+     * @param depth supplier of the number of trades waiting in the lane
+     * @param lagMs supplier of the age in milliseconds of the oldest waiting trade
+     */
+    public void registerLane(int lane, Supplier<Number> depth, Supplier<Number> lagMs) {
+        Gauge.builder("queue.lane.size", depth)
+                .description("Current number of trades waiting in a queue lane")
+                .tag("lane", String.valueOf(lane))
+                .register(meterRegistry);
+        Gauge.builder("queue.lane.lag", lagMs)
+                .description("Age of the oldest trade waiting in a queue lane")
+                .tag("lane", String.valueOf(lane))
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
     public int getQueueSize() {
         return queueSize;
     }
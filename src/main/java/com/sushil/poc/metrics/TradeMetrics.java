@@ -0,0 +1,110 @@
+package com.sushil.poc.metrics;
+
+import com.sushil.poc.service.TradeOutcome;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers for the stages of {@code TradeService} writes, so slow ingestion can
+ * be pinned on waiting for the per-trade lock, the version lookup, the SQL
+ * write, the commit or the Mongo hand-off.
+ */
+@Component
+public class TradeMetrics {
+    /**
+     * Stage of accepting a trade, used as the {@code step} tag.
+     */
+    public enum Step {
+        LOCK_WAIT("lock-wait"),
+        VERSION_LOOKUP("version-lookup"),
+        SQL_WRITE("sql-write"),
+        COMMIT("commit"),
+        MONGO_HANDOFF("mongo-handoff");
+
+        private final String tag;
+
+        Step(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * Write path a step belongs to, used as the {@code path} tag. Deletes only
+     * record their lock wait, under their own path so they do not skew the
+     * accept paths.
+     */
+    public enum Path {
+        SINGLE("single"),
+        BATCH("batch"),
+        DELETE("delete");
+
+        private final String tag;
+
+        Path(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final Map<TradeOutcome, Timer> acceptTimers = new EnumMap<>(TradeOutcome.class);
+    private final Map<Path, Map<Step, Timer>> stepTimers = new EnumMap<>(Path.class);
+    private final Timer batchTimer;
+    private final Counter lockContended;
+    private final Counter lockTimeouts;
+
+    public TradeMetrics(MeterRegistry meterRegistry) {
+        for (TradeOutcome outcome : TradeOutcome.values()) {
+            acceptTimers.put(outcome, Timer.builder("trade.accept")
+                    .description("Time taken to apply a single trade, excluding the commit")
+                    .tag("outcome", outcome.getTag())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        for (Path path : Path.values()) {
+            Map<Step, Timer> timers = new EnumMap<>(Step.class);
+            for (Step step : Step.values()) {
+                timers.put(step, Timer.builder("trade.accept.step")
+                        .description("Time taken by one stage of accepting a trade or batch")
+                        .tag("path", path.tag)
+                        .tag("step", step.tag)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+            }
+            stepTimers.put(path, timers);
+        }
+        this.batchTimer = Timer.builder("trade.accept.batch")
+                .description("Time taken to apply a batch of trades, excluding the commit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.lockContended = Counter.builder("trade.lock.contended")
+                .description("Per-trade lock acquisitions that had to wait for another write")
+                .register(meterRegistry);
+        this.lockTimeouts = Counter.builder("trade.lock.timeouts")
+                .description("Writes that gave up waiting for a per-trade lock")
+                .register(meterRegistry);
+    }
+
+    public void recordAccept(TradeOutcome outcome, long nanos) {
+        acceptTimers.get(outcome).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordStep(Path path, Step step, long nanos) {
+        stepTimers.get(path).get(step).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBatch(long nanos) {
+        batchTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void incrementLockContended() {
+        lockContended.increment();
+    }
+
+    public void incrementLockTimeouts() {
+        lockTimeouts.increment();
+    }
+}
@@ -22,6 +22,12 @@ public class MongoSyncFailure {
     @Column(nullable = false, length = 1024)
     private String reason;
 
+    // Replay attempts so far, and the earliest time the next one may run (null = due now)
+    @Column(nullable = false)
+    private int attempts;
+
+    private LocalDateTime nextAttemptAt;
+
     public MongoSyncFailure() {
     }
 
@@ -72,4 +78,20 @@ public class MongoSyncFailure {
     public void setReason(String reason) {
         this.reason = reason;
     }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
 }
@@ -6,7 +6,10 @@ import org.springframework.data.mongodb.core.mapping.Document;
 
 @Entity
 @Document(collection = "trades")
-@Table(name = "trades")
+// Mirrors the indexes created by the db/migration scripts
+@Table(name = "trades",
+        uniqueConstraints = @UniqueConstraint(name = "ux_trades_trade_id_version", columnNames = {"trade_id", "version"}),
+        indexes = @Index(name = "ix_trades_expired_maturity_date", columnList = "expired, maturity_date"))
 public class Trade {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,55 @@
+package com.sushil.poc.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Change to a trade that the outbox relay has not yet applied to the read
+ * model. Only the tradeId is recorded: the relay reads the trade's current
+ * state from SQL when it applies the change.
+ */
+@Entity
+@Table(name = "trade_outbox")
+public class TradeOutboxEvent {
+    /**
+     * What happened to the trade; informational, the relay treats all alike.
+     */
+    public enum ChangeType {
+        UPSERT,
+        DELETE,
+        EXPIRE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String tradeId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ChangeType changeType;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    public TradeOutboxEvent() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTradeId() {
+        return tradeId;
+    }
+
+    public ChangeType getChangeType() {
+        return changeType;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
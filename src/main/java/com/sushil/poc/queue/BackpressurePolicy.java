@@ -0,0 +1,33 @@
+package com.sushil.poc.queue;
+
+/**
+ * What {@link TradePublisher} does with a trade when its queue lane is full.
+ * Selected by {@code queue.publish.policy}.
+ */
+public enum BackpressurePolicy {
+    /**
+     * Waits up to {@code queue.publish.block-timeout-ms} for space, then rejects.
+     */
+    BLOCK,
+    /**
+     * Rejects at once, so the caller can retry after the advertised delay.
+     */
+    REJECT,
+    /**
+     * Appends the trade to a spill file on disk, replayed into the queue as
+     * space frees up. Rejects only once the spill file is full.
+     */
+    SPILL;
+
+    /**
+     * @param name {@code block}, {@code reject} or {@code spill}, case-insensitive
+     */
+    public static BackpressurePolicy fromName(String name) {
+        for (BackpressurePolicy policy : values()) {
+            if (policy.name().equalsIgnoreCase(name)) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown queue.publish.policy: " + name);
+    }
+}
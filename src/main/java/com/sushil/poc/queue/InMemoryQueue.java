@@ -1,133 +1,653 @@
 package com.sushil.poc.queue;
 
+import com.sushil.poc.exception.LowerVersionException;
+import com.sushil.poc.exception.MaturityDateException;
 import com.sushil.poc.model.Trade;
+import com.sushil.poc.service.TradeOutcome;
 import com.sushil.poc.service.TradeService;
-import jakarta.annotation.PostConstruct;
-import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.stereotype.Component;
+import com.sushil.poc.config.VirtualThreads;
 import com.sushil.poc.metrics.QueueMetrics;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * In-memory queue for trade processing. For demo purposes only.
  * In production, use a distributed streaming platform (e.g., Kafka).
  * Thread-safe, observable, and extensible for future enhancements.
+ * <p>
+ * Runs in one of two modes, selected by {@code queue.mode}:
+ * <ul>
+ * <li>{@code shared} (default): a single lane drained by {@code queue.consumers}
+ * threads. Highest throughput, but with more than one consumer two versions of
+ * the same trade may be applied out of order.</li>
+ * <li>{@code partitioned}: trades are hashed by tradeId onto
+ * {@code queue.partitions} bounded lanes, each drained by exactly one consumer,
+ * so every version of a trade is applied in the order it was sent.</li>
+ * </ul>
+ * Each lane is a {@code LinkedBlockingQueue} by default, or with
+ * {@code queue.type=ring} a preallocated lock-free {@link RingBufferQueue}
+ * whose idle threads wait according to {@code queue.wait-strategy}.
+ * <p>
+ * With {@code queue.wal.enabled} every trade is logged to the {@link TradeWal}
+ * before it is queued and acknowledged once processed; trades still
+ * unprocessed at a crash or shutdown are queued again at the next start.
+ * <p>
+ * The queue is a {@link SmartLifecycle} stopped after the web server: on
+ * shutdown it refuses new trades and gives the consumers up to
+ * {@code queue.shutdown.drain-timeout-ms} to work off what is left.
  */
 @Component
-public class InMemoryQueue {
+public class InMemoryQueue implements SmartLifecycle {
     private static final Logger logger = LoggerFactory.getLogger(InMemoryQueue.class);
+    private static final long RATE_SAMPLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // Weight of the latest sample in the smoothed drain rate
+    private static final double RATE_SMOOTHING = 0.5;
 
-    // Configurable queue capacity for backpressure (default: 1000)
-    private final BlockingQueue<Trade> queue;
+    // Configurable queue capacity for backpressure (default: 1000), split evenly across lanes
+    private final Lane[] lanes;
+    private final int capacity;
     private final ExecutorService consumerExecutor;
     private final TradeService tradeService;
     private final QueueMetrics queueMetrics;
+    private final TradeWal wal;
+    private final int consumersPerLane;
+    private final int batchSize;
+    private final long batchMaxWaitNanos;
     private volatile boolean running = true;
+    private volatile boolean accepting = true;
+    private volatile boolean started;
+    private final long drainTimeoutMs;
+    private final int drainThreads;
+    // Last time each consumer thread was seen polling or finishing a batch
+    private final AtomicLongArray heartbeats;
+    private final AtomicInteger liveConsumers = new AtomicInteger();
+    private final LongAdder drainedTotal = new LongAdder();
+    private final Object rateLock = new Object();
+    // Guarded by rateLock
+    private long rateSampledAt = System.nanoTime();
+    private long rateSampledCount;
+    private volatile double drainRate;
 
     /**
      * Constructor for dependency injection.
      * 
-     * @param tradeService  TradeService for processing trades
-     * @param queueCapacity Optional queue capacity (default: 1000)
+     * @param tradeService    TradeService for processing trades
+     * @param properties      Queue settings, bound from {@code queue.*}
+     * @param virtualThreads  Run consumers on virtual threads, on Java 21 (default: spring.threads.virtual.enabled)
      */
-    public InMemoryQueue(TradeService tradeService, QueueMetrics queueMetrics,
-            @Value("${queue.capacity:1000}") int queueCapacity) {
+    public InMemoryQueue(TradeService tradeService, QueueMetrics queueMetrics, TradeWal wal,
+            QueueProperties properties,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        int queueCapacity = properties.getCapacity();
+        String mode = properties.getMode();
+        int partitions = properties.getPartitions();
+        int consumerCount = properties.getConsumers();
+        int batchSize = properties.getBatch().getSize();
+        long batchMaxWaitMs = properties.getBatch().getMaxWaitMs();
+        String type = properties.getType();
+        String waitStrategy = properties.getWaitStrategy();
+        long drainTimeoutMs = properties.getShutdown().getDrainTimeoutMs();
+        int drainThreads = properties.getShutdown().getDrainThreads();
+        if (consumerCount < 1 || partitions < 1 || batchSize < 1 || batchMaxWaitMs < 0 || drainTimeoutMs < 0
+                || drainThreads < 0) {
+            throw new IllegalArgumentException("queue.consumers, queue.partitions and queue.batch.size must be positive, "
+                    + "queue.batch.max-wait-ms, queue.shutdown.drain-timeout-ms and queue.shutdown.drain-threads non-negative");
+        }
+        boolean partitioned;
+        if ("partitioned".equalsIgnoreCase(mode)) {
+            partitioned = true;
+        } else if ("shared".equalsIgnoreCase(mode)) {
+            partitioned = false;
+        } else {
+            throw new IllegalArgumentException("Unknown queue.mode: " + mode);
+        }
+        boolean ring;
+        if ("ring".equalsIgnoreCase(type)) {
+            ring = true;
+        } else if ("linked".equalsIgnoreCase(type)) {
+            ring = false;
+        } else {
+            throw new IllegalArgumentException("Unknown queue.type: " + type);
+        }
+        WaitStrategy strategy = WaitStrategy.fromName(waitStrategy);
         this.tradeService = Objects.requireNonNull(tradeService);
         this.queueMetrics = Objects.requireNonNull(queueMetrics);
-        this.queue = new LinkedBlockingQueue<>(queueCapacity);
-        this.consumerExecutor = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r, "InMemoryQueue-Consumer");
-            t.setDaemon(true);
-            return t;
-        });
+        this.wal = Objects.requireNonNull(wal);
+        int laneCount = partitioned ? partitions : 1;
+        int laneCapacity = Math.max(1, (queueCapacity + laneCount - 1) / laneCount);
+        this.lanes = new Lane[laneCount];
+        this.capacity = laneCapacity * laneCount;
+        for (int i = 0; i < laneCount; i++) {
+            BlockingQueue<QueuedTrade> queue = ring
+                    ? new RingBufferQueue<QueuedTrade>(laneCapacity, strategy)
+                    : new LinkedBlockingQueue<QueuedTrade>(laneCapacity);
+            lanes[i] = new Lane(i, queue);
+            queueMetrics.registerLane(i, lanes[i]::size, lanes[i]::lagMillis);
+        }
+        this.consumersPerLane = partitioned ? 1 : consumerCount;
+        this.batchSize = batchSize;
+        this.batchMaxWaitNanos = TimeUnit.MILLISECONDS.toNanos(batchMaxWaitMs);
+        this.drainTimeoutMs = drainTimeoutMs;
+        // Partitioned lanes keep a single consumer each to preserve per-trade order
+        this.drainThreads = partitioned ? 0 : drainThreads;
+        this.heartbeats = new AtomicLongArray(laneCount * consumersPerLane + this.drainThreads);
+        this.consumerExecutor = Executors.newFixedThreadPool(laneCount * consumersPerLane + this.drainThreads,
+                VirtualThreads.factory(VirtualThreads.isActive(virtualThreads), "InMemoryQueue-Consumer-"));
     }
 
     /**
      * Enqueue a trade for processing. Returns true if accepted, false if full.
      * 
      * @param trade Trade to enqueue
-     * @return true if enqueued, false if queue is full
+     * @return true if enqueued, false if queue is full or draining for shutdown
      */
     public boolean send(Trade trade) {
-        boolean offered = queue.offer(trade);
-        queueMetrics.setQueueSize(queue.size());
+        if (!accepting) {
+            logger.warn("Queue is draining for shutdown. Not enqueuing trade: {}", trade);
+            return false;
+        }
+        Lane lane = laneFor(trade);
+        long start = System.nanoTime();
+        long sequence = wal.append(trade);
+        boolean offered = lane.queue.offer(new QueuedTrade(trade, start, sequence));
+        afterOffer(offered, sequence);
+        queueMetrics.recordSend(offered, System.nanoTime() - start);
+        queueMetrics.setQueueSize(totalSize());
         if (!offered) {
-            logger.warn("Queue is full. Dropping trade: {}", trade);
+            logger.warn("Queue lane {} is full. Dropping trade: {}", lane.index, trade);
             queueMetrics.incrementDropped();
         } else {
-            logger.info("Trade enqueued: {}", trade);
+            logger.debug("Trade enqueued: {}", trade);
+        }
+        return offered;
+    }
+
+    /**
+     * Enqueue a trade, waiting up to the given time for space in its lane. Lets
+     * streaming producers slow down instead of losing trades when the queue is full.
+     * 
+     * @param trade   Trade to enqueue
+     * @param timeout How long to wait for space
+     * @param unit    Unit of the timeout
+     * @return true if enqueued, false if the lane stayed full for the whole timeout or the
+     *         queue is draining for shutdown
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean send(Trade trade, long timeout, TimeUnit unit) throws InterruptedException {
+        if (!accepting) {
+            logger.debug("Queue is draining for shutdown. Not enqueuing trade: {}", trade);
+            return false;
+        }
+        Lane lane = laneFor(trade);
+        long start = System.nanoTime();
+        long sequence = wal.append(trade);
+        boolean offered;
+        try {
+            offered = lane.queue.offer(new QueuedTrade(trade, start, sequence), timeout, unit);
+        } catch (InterruptedException e) {
+            wal.cancel(sequence);
+            throw e;
+        }
+        afterOffer(offered, sequence);
+        queueMetrics.recordSend(offered, System.nanoTime() - start);
+        queueMetrics.setQueueSize(totalSize());
+        if (!offered) {
+            logger.warn("Queue lane {} stayed full for {} {}. Not enqueuing trade: {}", lane.index, timeout, unit,
+                    trade);
+        } else {
+            logger.debug("Trade enqueued: {}", trade);
         }
         return offered;
     }
 
     /**
-     * @return current queue size
+     * Enqueue trades in order, waiting up to the given time in total for space.
+     * Stops at the first trade that does not fit, so the trades not enqueued are
+     * always the tail of the list and can be resent as they are. With
+     * {@code queue.wal.sync} the call waits for one fsync covering the whole
+     * batch rather than one per trade.
+     *
+     * @param trades  Trades to enqueue
+     * @param timeout How long to wait for space, for the whole batch
+     * @param unit    Unit of the timeout
+     * @return number of trades enqueued, from the start of the list
+     * @throws InterruptedException if interrupted while waiting; earlier trades stay enqueued
+     */
+    public int sendAll(List<Trade> trades, long timeout, TimeUnit unit) throws InterruptedException {
+        if (!accepting) {
+            logger.debug("Queue is draining for shutdown. Not enqueuing {} trades", trades.size());
+            return 0;
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long lastSequence = TradeWal.NO_SEQUENCE;
+        int sent = 0;
+        try {
+            for (Trade trade : trades) {
+                Lane lane = laneFor(trade);
+                long start = System.nanoTime();
+                long sequence = wal.append(trade);
+                boolean offered;
+                try {
+                    offered = lane.queue.offer(new QueuedTrade(trade, start, sequence), Math.max(0, deadline - start),
+                            TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    wal.cancel(sequence);
+                    throw e;
+                }
+                queueMetrics.recordSend(offered, System.nanoTime() - start);
+                if (!offered) {
+                    wal.cancel(sequence);
+                    logger.warn("Queue lane {} stayed full for {} {}. Enqueued {} of {} trades", lane.index, timeout,
+                            unit, sent, trades.size());
+                    break;
+                }
+                lastSequence = sequence;
+                sent++;
+            }
+        } finally {
+            wal.awaitDurable(lastSequence);
+            queueMetrics.setQueueSize(totalSize());
+        }
+        return sent;
+    }
+
+    private void afterOffer(boolean offered, long walSequence) {
+        if (offered) {
+            wal.awaitDurable(walSequence);
+        } else {
+            wal.cancel(walSequence);
+        }
+    }
+
+    /**
+     * @return current queue size, summed over all lanes
      */
     public int size() {
-        int size = queue.size();
+        int size = totalSize();
         queueMetrics.setQueueSize(size);
         return size;
     }
 
     /**
-     * Start the background consumer thread for processing trades.
+     * @return total capacity, summed over all lanes
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return free slots, summed over all lanes. In partitioned mode a trade can
+     *         still be refused when only its own lane is full.
+     */
+    public int remainingCapacity() {
+        int remaining = 0;
+        for (Lane lane : lanes) {
+            remaining += lane.queue.remainingCapacity();
+        }
+        return remaining;
+    }
+
+    /**
+     * @return trades taken off the queue per second, smoothed over the last
+     *         few seconds; 0 until the consumers have processed anything
+     */
+    public double drainRatePerSecond() {
+        sampleDrainRate(System.nanoTime());
+        return drainRate;
+    }
+
+    /**
+     * @return estimated time in milliseconds for the consumers to work off the
+     *         trades now waiting, 0 if none are waiting, or -1 if the drain
+     *         rate is not known yet
+     */
+    public long estimatedDrainMillis() {
+        int size = size();
+        if (size == 0) {
+            return 0;
+        }
+        double rate = drainRatePerSecond();
+        return rate > 0 ? (long) Math.ceil(size * 1000 / rate) : -1;
+    }
+
+    private void sampleDrainRate(long now) {
+        synchronized (rateLock) {
+            long elapsed = now - rateSampledAt;
+            if (elapsed < RATE_SAMPLE_NANOS) {
+                return;
+            }
+            long count = drainedTotal.sum();
+            double instant = (count - rateSampledCount) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+            drainRate = RATE_SMOOTHING * instant + (1 - RATE_SMOOTHING) * drainRate;
+            rateSampledAt = now;
+            rateSampledCount = count;
+        }
+    }
+
+    private int totalSize() {
+        int size = 0;
+        for (Lane lane : lanes) {
+            size += lane.size();
+        }
+        return size;
+    }
+
+    private Lane laneFor(Trade trade) {
+        if (lanes.length == 1 || trade.getTradeId() == null) {
+            return lanes[0];
+        }
+        return lanes[Math.floorMod(trade.getTradeId().hashCode(), lanes.length)];
+    }
+
+    /**
+     * @return true once shutdown has begun and new trades are refused
+     */
+    public boolean isDraining() {
+        return !accepting;
+    }
+
+    /**
+     * @return consumer threads currently running
+     */
+    public int liveConsumers() {
+        return liveConsumers.get();
+    }
+
+    /**
+     * @return number of consumer threads the queue runs outside of shutdown
+     */
+    public int expectedConsumers() {
+        return lanes.length * consumersPerLane;
+    }
+
+    /**
+     * @return milliseconds since the least recently active consumer last polled
+     *         or finished a batch; a large value means a consumer is stuck
+     */
+    public long oldestConsumerHeartbeatAgeMillis() {
+        long now = System.nanoTime();
+        long oldest = 0;
+        for (int i = 0; i < expectedConsumers(); i++) {
+            oldest = Math.max(oldest, now - heartbeats.get(i));
+        }
+        return TimeUnit.NANOSECONDS.toMillis(oldest);
+    }
+
+    @Override
+    public void start() {
+        startConsumer();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return started;
+    }
+
+    /**
+     * Stops after the web server, so no publish is in flight while draining.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    /**
+     * Start the background consumer threads for processing trades.
      */
-    @PostConstruct
     public void startConsumer() {
-        logger.info("Starting InMemoryQueue consumer thread");
+        started = true;
+        logger.info("Starting InMemoryQueue with {} {} lane(s) x {} consumer thread(s), batch size {}, max wait {}ms",
+                lanes.length, lanes[0].queue.getClass().getSimpleName(), consumersPerLane, batchSize,
+                TimeUnit.NANOSECONDS.toMillis(batchMaxWaitNanos));
+        int slot = 0;
+        for (Lane lane : lanes) {
+            for (int i = 0; i < consumersPerLane; i++) {
+                startConsumer(lane, slot++);
+            }
+        }
+        requeueRecovered();
+    }
+
+    /**
+     * Queues the trades recovered from the write-ahead log, waiting for space
+     * as the consumers drain them, before any new trade is accepted.
+     */
+    private void requeueRecovered() {
+        List<QueuedTrade> recovered = wal.takeRecovered();
+        if (recovered.isEmpty()) {
+            return;
+        }
+        logger.info("Re-queueing {} trades recovered from the write-ahead log", recovered.size());
+        try {
+            for (QueuedTrade queued : recovered) {
+                laneFor(queued.getTrade()).queue.put(queued);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while re-queueing recovered trades; the rest are replayed on the next start");
+        }
+        queueMetrics.setQueueSize(totalSize());
+    }
+
+    private void startConsumer(Lane lane, int slot) {
+        heartbeats.set(slot, System.nanoTime());
+        liveConsumers.incrementAndGet();
         consumerExecutor.submit(() -> {
-            while (running) {
-                try {
-                    Trade trade = queue.poll(500, TimeUnit.MILLISECONDS);
-                    if (trade != null) {
-                        processTrade(trade);
+            try {
+                consume(lane, slot);
+            } finally {
+                liveConsumers.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Consumer loop: waits for a first trade, then drains until the batch is
+     * full or the batch wait time has elapsed, whichever comes first.
+     */
+    private void consume(Lane lane, int slot) {
+        BlockingQueue<QueuedTrade> queue = lane.queue;
+        List<QueuedTrade> drained = new ArrayList<>(batchSize);
+        List<Trade> batch = new ArrayList<>(batchSize);
+        while (running) {
+            heartbeats.set(slot, System.nanoTime());
+            try {
+                QueuedTrade first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                drained.add(first);
+                long deadline = System.nanoTime() + batchMaxWaitNanos;
+                while (drained.size() < batchSize) {
+                    if (queue.drainTo(drained, batchSize - drained.size()) > 0) {
+                        continue;
                     }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    logger.warn("Consumer thread interrupted, shutting down");
-                    break;
-                } catch (Exception e) {
-                    logger.error("Unexpected error in consumer thread", e);
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    QueuedTrade next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    drained.add(next);
+                }
+                queueMetrics.setQueueSize(totalSize());
+                processBatch(drained, batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Consumer thread interrupted, shutting down");
+                if (!drained.isEmpty()) {
+                    processBatch(drained, batch);
                 }
+                break;
+            } catch (Exception e) {
+                logger.error("Unexpected error in consumer thread", e);
+            } finally {
+                drained.clear();
+                batch.clear();
             }
-            logger.info("InMemoryQueue consumer thread stopped");
-        });
+        }
+        logger.info("InMemoryQueue consumer thread stopped");
+    }
+
+    /**
+     * Process a batch of trades in a single transaction. If the batch as a
+     * whole fails, each trade is retried on its own so that one bad trade
+     * cannot take the others down with it.
+     * 
+     * @param drained Queue entries taken by the consumer
+     * @param batch   Scratch list to hold their trades
+     */
+    private void processBatch(List<QueuedTrade> drained, List<Trade> batch) {
+        long dequeuedAt = System.nanoTime();
+        batch.clear();
+        for (QueuedTrade queued : drained) {
+            batch.add(queued.getTrade());
+        }
+        queueMetrics.recordBatch(batch.size());
+        List<TradeOutcome> outcomes;
+        try {
+            outcomes = tradeService.acceptTrades(batch);
+            logger.info("Processed batch of {} trades", batch.size());
+        } catch (Exception ex) {
+            logger.error("Failed to process batch of {} trades, retrying individually", batch.size(), ex);
+            outcomes = new ArrayList<>(batch.size());
+            for (Trade trade : batch) {
+                outcomes.add(processTrade(trade));
+            }
+        }
+        long processedAt = System.nanoTime();
+        drainedTotal.add(drained.size());
+        sampleDrainRate(processedAt);
+        for (int i = 0; i < outcomes.size(); i++) {
+            long enqueuedAt = drained.get(i).getEnqueuedAtNanos();
+            wal.ack(drained.get(i).getWalSequence());
+            queueMetrics.recordOutcome(outcomes.get(i));
+            queueMetrics.recordQueued(outcomes.get(i), dequeuedAt - enqueuedAt, processedAt - enqueuedAt);
+        }
     }
 
     /**
      * Process a single trade with robust error handling.
      * 
      * @param trade Trade to process
+     * @return outcome of the trade
      */
-    private void processTrade(Trade trade) {
+    private TradeOutcome processTrade(Trade trade) {
         try {
             tradeService.acceptTrade(trade);
             logger.info("Trade processed: {}", trade);
-            queueMetrics.incrementProcessed();
+            return TradeOutcome.ACCEPTED;
+        } catch (MaturityDateException ex) {
+            logger.warn("Rejected trade: {}: {}", trade, ex.getMessage());
+            return TradeOutcome.MATURITY_REJECTED;
+        } catch (LowerVersionException ex) {
+            logger.warn("Rejected trade: {}: {}", trade, ex.getMessage());
+            return TradeOutcome.LOWER_VERSION;
         } catch (Exception ex) {
             logger.error("Failed to process trade: {}", trade, ex);
-            queueMetrics.incrementFailed();
+            return TradeOutcome.FAILED;
         }
     }
 
     /**
-     * Cleanly stop the consumer thread and shutdown the executor.
+     * Stops accepting trades and lets the consumers drain what is queued, for
+     * up to {@code queue.shutdown.drain-timeout-ms}, before stopping them. In
+     * shared mode {@code queue.shutdown.drain-threads} extra consumers help
+     * drain. Trades left over are lost, or replayed on the next start if the
+     * write-ahead log is enabled.
      */
-    @PreDestroy
+    @Override
     public void stop() {
-        logger.info("Stopping InMemoryQueue consumer thread");
+        if (!started) {
+            return;
+        }
+        accepting = false;
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMs);
+        int remaining = totalSize();
+        logger.info("Draining InMemoryQueue: {} trades queued, up to {} ms", remaining, drainTimeoutMs);
+        if (remaining > 0) {
+            for (int i = 0; i < drainThreads; i++) {
+                startConsumer(lanes[0], expectedConsumers() + i);
+            }
+        }
+        long nextReport = startedAt + TimeUnit.SECONDS.toNanos(1);
+        while (remaining > 0 && System.nanoTime() - deadline < 0) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            remaining = totalSize();
+            if (System.nanoTime() - nextReport >= 0) {
+                logger.info("Draining InMemoryQueue: {} trades left, {} ms elapsed", remaining,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+                nextReport += TimeUnit.SECONDS.toNanos(1);
+            }
+        }
+
+        logger.info("Stopping InMemoryQueue consumer threads");
         running = false;
-        consumerExecutor.shutdownNow();
+        // Consumers finish the batch in hand and exit at their next poll
+        consumerExecutor.shutdown();
         try {
-            if (!consumerExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                logger.warn("Consumer executor did not terminate in time");
+            long waitMs = Math.max(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()), 1000);
+            if (!consumerExecutor.awaitTermination(waitMs, TimeUnit.MILLISECONDS)) {
+                consumerExecutor.shutdownNow();
+                if (!consumerExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    logger.warn("Consumer executor did not terminate in time");
+                }
             }
         } catch (InterruptedException e) {
+            consumerExecutor.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        started = false;
+        remaining = totalSize();
+        if (remaining > 0) {
+            logger.warn("InMemoryQueue stopped with {} trades undrained{}", remaining,
+                    wal.isEnabled() ? "; they will be replayed from the write-ahead log on the next start" : "");
+        } else {
+            logger.info("InMemoryQueue drained in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        }
+    }
+
+    /**
+     * A bounded lane of the queue. In partitioned mode every tradeId maps to
+     * exactly one lane.
+     */
+    private static final class Lane {
+        private final int index;
+        private final BlockingQueue<QueuedTrade> queue;
+
+        Lane(int index, BlockingQueue<QueuedTrade> queue) {
+            this.index = index;
+            this.queue = queue;
+        }
+
+        int size() {
+            return queue.size();
+        }
+
+        /**
+         * @return age in milliseconds of the oldest trade waiting in this lane, 0 if empty
+         */
+        long lagMillis() {
+            QueuedTrade head = queue.peek();
+            return head == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - head.getEnqueuedAtNanos());
+        }
     }
-}
\ No newline at end of file
+}
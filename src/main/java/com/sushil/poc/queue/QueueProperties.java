@@ -0,0 +1,148 @@
+package com.sushil.poc.queue;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the {@link InMemoryQueue} itself, bound from {@code queue.*}.
+ * The write-ahead log, spill, publish policy and health settings under the
+ * same prefix belong to their own components and are not bound here.
+ */
+@ConfigurationProperties(prefix = "queue")
+public class QueueProperties {
+    /**
+     * Total capacity, split evenly across lanes.
+     */
+    private int capacity = 1000;
+    /**
+     * {@code shared} or {@code partitioned}.
+     */
+    private String mode = "shared";
+    /**
+     * Number of lanes in partitioned mode.
+     */
+    private int partitions = Runtime.getRuntime().availableProcessors();
+    /**
+     * Number of consumer threads in shared mode.
+     */
+    private int consumers = 1;
+    /**
+     * {@code linked} or {@code ring}.
+     */
+    private String type = "linked";
+    /**
+     * {@code busy-spin}, {@code yielding} or {@code parking}, for the ring type.
+     */
+    private String waitStrategy = "parking";
+    private final Batch batch = new Batch();
+    private final Shutdown shutdown = new Shutdown();
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public void setPartitions(int partitions) {
+        this.partitions = partitions;
+    }
+
+    public int getConsumers() {
+        return consumers;
+    }
+
+    public void setConsumers(int consumers) {
+        this.consumers = consumers;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public void setWaitStrategy(String waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    public Batch getBatch() {
+        return batch;
+    }
+
+    public Shutdown getShutdown() {
+        return shutdown;
+    }
+
+    public static class Batch {
+        /**
+         * Maximum trades per batch handed to TradeService.
+         */
+        private int size = 100;
+        /**
+         * Maximum time to wait for a batch to fill.
+         */
+        private long maxWaitMs = 50;
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public long getMaxWaitMs() {
+            return maxWaitMs;
+        }
+
+        public void setMaxWaitMs(long maxWaitMs) {
+            this.maxWaitMs = maxWaitMs;
+        }
+    }
+
+    public static class Shutdown {
+        /**
+         * How long shutdown waits for the queue to drain.
+         */
+        private long drainTimeoutMs = 20000;
+        /**
+         * Extra consumer threads started to drain a shared queue on shutdown.
+         */
+        private int drainThreads;
+
+        public long getDrainTimeoutMs() {
+            return drainTimeoutMs;
+        }
+
+        public void setDrainTimeoutMs(long drainTimeoutMs) {
+            this.drainTimeoutMs = drainTimeoutMs;
+        }
+
+        public int getDrainThreads() {
+            return drainThreads;
+        }
+
+        public void setDrainThreads(int drainThreads) {
+            this.drainThreads = drainThreads;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.sushil.poc.queue;
+
+import com.sushil.poc.model.Trade;
+
+/**
+ * Queue entry carrying a trade together with the time it was enqueued, so
+ * that consumers and metrics can tell how long it waited, and its position in
+ * the write-ahead log, if enabled.
+ */
+public final class QueuedTrade {
+    private final Trade trade;
+    private final long enqueuedAtNanos;
+    private final long walSequence;
+
+    public QueuedTrade(Trade trade, long enqueuedAtNanos, long walSequence) {
+        this.trade = trade;
+        this.enqueuedAtNanos = enqueuedAtNanos;
+        this.walSequence = walSequence;
+    }
+
+    public Trade getTrade() {
+        return trade;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} at the moment the trade was enqueued
+     */
+    public long getEnqueuedAtNanos() {
+        return enqueuedAtNanos;
+    }
+
+    /**
+     * @return sequence of the trade's record in the {@link TradeWal}, or
+     *         {@link TradeWal#NO_SEQUENCE} if the log is disabled
+     */
+    public long getWalSequence() {
+        return walSequence;
+    }
+}
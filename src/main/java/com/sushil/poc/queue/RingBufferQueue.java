@@ -0,0 +1,217 @@
+package com.sushil.poc.queue;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free multi-producer multi-consumer queue on a preallocated
+ * ring of slots (Vyukov's bounded MPMC algorithm, as used by the Disruptor).
+ * Unlike {@link java.util.concurrent.LinkedBlockingQueue} it allocates nothing
+ * per element and never takes a lock; producers and consumers only contend on
+ * a compare-and-set of the tail or head sequence.
+ * <p>
+ * Each slot carries a sequence number telling whose turn it is: a producer may
+ * fill slot {@code p % capacity} when its sequence equals {@code p}, and a
+ * consumer may empty it when the sequence equals {@code p + 1}. Blocking
+ * operations wait with the configured {@link WaitStrategy} rather than on a
+ * condition, so there is no signalling cost on the fast path.
+ * <p>
+ * {@link #size()}, {@link #peek()} and {@link #iterator()} are weakly
+ * consistent, which is enough for metrics. {@link #remove(Object)} is not
+ * supported.
+ */
+public final class RingBufferQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+    private final int capacity;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final WaitStrategy waitStrategy;
+    private final PaddedSequence tail = new PaddedSequence();
+    private final PaddedSequence head = new PaddedSequence();
+
+    public RingBufferQueue(int capacity, WaitStrategy waitStrategy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.waitStrategy = Objects.requireNonNull(waitStrategy);
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        while (true) {
+            long pos = tail.get();
+            int index = (int) (pos % capacity);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    elements.lazySet(index, e);
+                    // Publishes the element to consumers
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                // The slot still holds the element from one lap ago
+                return false;
+            }
+            // Another producer claimed pos; retry with the new tail
+        }
+    }
+
+    @Override
+    public E poll() {
+        while (true) {
+            long pos = head.get();
+            int index = (int) (pos % capacity);
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    E e = elements.get(index);
+                    elements.lazySet(index, null);
+                    // Hands the slot to the producer one lap ahead
+                    sequences.set(index, pos + capacity);
+                    return e;
+                }
+            } else if (diff < 0) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (int attempt = 0; !offer(e); attempt = Math.min(attempt + 1, WaitStrategy.MAX_ATTEMPT)) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (deadline - System.nanoTime() <= 0) {
+                return false;
+            }
+            waitStrategy.idle(attempt);
+        }
+        return true;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (int attempt = 0;; attempt = Math.min(attempt + 1, WaitStrategy.MAX_ATTEMPT)) {
+            E e = poll();
+            if (e != null) {
+                return e;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (deadline - System.nanoTime() <= 0) {
+                return null;
+            }
+            waitStrategy.idle(attempt);
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        offer(e, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        return poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public E peek() {
+        long pos = head.get();
+        int index = (int) (pos % capacity);
+        if (sequences.get(index) != pos + 1) {
+            return null;
+        }
+        // May be null if a consumer emptied the slot meanwhile
+        return elements.get(index);
+    }
+
+    @Override
+    public int size() {
+        // Read head first so a concurrent poll cannot make the result negative
+        long h = head.get();
+        long t = tail.get();
+        return (int) Math.max(0, Math.min(capacity, t - h));
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int drained = 0;
+        while (drained < maxElements) {
+            E e = poll();
+            if (e == null) {
+                break;
+            }
+            c.add(e);
+            drained++;
+        }
+        return drained;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException("RingBufferQueue does not support removing arbitrary elements");
+    }
+
+    /**
+     * @return iterator over a snapshot of the elements present while it was
+     *         created; does not support {@code remove}
+     */
+    @Override
+    public Iterator<E> iterator() {
+        long from = head.get();
+        long to = tail.get();
+        List<E> snapshot = new ArrayList<>((int) Math.max(0, Math.min(capacity, to - from)));
+        for (long pos = from; pos < to && pos < from + capacity; pos++) {
+            E e = elements.get((int) (pos % capacity));
+            if (e != null) {
+                snapshot.add(e);
+            }
+        }
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    /**
+     * Sequence counter padded onto its own cache line, so that producers
+     * updating the tail do not invalidate the consumers' cached head.
+     */
+    @SuppressWarnings("unused")
+    private static final class PaddedSequence extends AtomicLong {
+        private long p1, p2, p3, p4, p5, p6, p7;
+    }
+}
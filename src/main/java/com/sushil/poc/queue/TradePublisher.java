@@ -0,0 +1,239 @@
+package com.sushil.poc.queue;
+
+import com.sushil.poc.metrics.QueueMetrics;
+import com.sushil.poc.model.Trade;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes trades to the {@link InMemoryQueue}, applying the configured
+ * {@link BackpressurePolicy} when a lane is full instead of silently dropping
+ * the trade.
+ * <p>
+ * With the {@code spill} policy, trades that do not fit are written to the
+ * {@link TradeSpill} and replayed into the queue in the background. While any
+ * trade is waiting there, new trades are spilled too, so that trades are still
+ * queued in the order they were published.
+ */
+@Component
+public class TradePublisher {
+    private static final Logger logger = LoggerFactory.getLogger(TradePublisher.class);
+    private static final long SPILL_OFFER_TIMEOUT_MS = 100;
+
+    /**
+     * What happened to a published trade.
+     */
+    public enum PublishResult {
+        ENQUEUED,
+        SPILLED,
+        REJECTED,
+        /**
+         * Not published because the queue is draining for shutdown; unlike
+         * {@link #REJECTED}, retrying against this instance will not help.
+         */
+        DRAINING
+    }
+
+    private final InMemoryQueue queue;
+    private final TradeSpill spill;
+    private final QueueMetrics queueMetrics;
+    private final BackpressurePolicy policy;
+    private final long blockTimeoutMs;
+    private final int maxRetryAfterSeconds;
+
+    public TradePublisher(InMemoryQueue queue, TradeSpill spill, QueueMetrics queueMetrics,
+            @Value("${queue.publish.policy:reject}") String policy,
+            @Value("${queue.publish.block-timeout-ms:1000}") long blockTimeoutMs,
+            @Value("${queue.publish.max-retry-after-seconds:60}") int maxRetryAfterSeconds) {
+        this.queue = queue;
+        this.spill = spill;
+        this.queueMetrics = queueMetrics;
+        this.policy = BackpressurePolicy.fromName(policy);
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.maxRetryAfterSeconds = maxRetryAfterSeconds;
+        queueMetrics.registerSpillPending(spill::pending);
+    }
+
+    /**
+     * Publishes a trade under the configured policy.
+     *
+     * @throws InterruptedException if interrupted while waiting for space
+     */
+    public PublishResult publish(Trade trade) throws InterruptedException {
+        if (queue.isDraining()) {
+            return PublishResult.DRAINING;
+        }
+        PublishResult result;
+        switch (policy) {
+            case BLOCK:
+                result = queue.send(trade, blockTimeoutMs, TimeUnit.MILLISECONDS)
+                        ? PublishResult.ENQUEUED : PublishResult.REJECTED;
+                break;
+            case SPILL:
+                result = publishOrSpill(trade);
+                break;
+            default:
+                result = queue.send(trade, 0, TimeUnit.MILLISECONDS) ? PublishResult.ENQUEUED : PublishResult.REJECTED;
+                break;
+        }
+        if (result == PublishResult.REJECTED) {
+            queueMetrics.incrementRejected();
+        }
+        return result;
+    }
+
+    /**
+     * Publishes a trade read from a stream, where waiting for space is how the
+     * producer is slowed down: waits up to {@code waitMs} whatever the policy,
+     * then spills the trade under {@code spill} and rejects it otherwise.
+     *
+     * @throws InterruptedException if interrupted while waiting for space
+     */
+    public PublishResult publish(Trade trade, long waitMs) throws InterruptedException {
+        if (queue.isDraining()) {
+            return PublishResult.DRAINING;
+        }
+        PublishResult result;
+        if (policy == BackpressurePolicy.SPILL && spill.pending() > 0) {
+            // Keep publish order: nothing overtakes trades already spilled
+            result = spillOrReject(trade);
+        } else if (queue.send(trade, waitMs, TimeUnit.MILLISECONDS)) {
+            result = PublishResult.ENQUEUED;
+        } else if (queue.isDraining()) {
+            return PublishResult.DRAINING;
+        } else {
+            result = policy == BackpressurePolicy.SPILL ? spillOrReject(trade) : PublishResult.REJECTED;
+        }
+        if (result == PublishResult.REJECTED) {
+            queueMetrics.incrementRejected();
+        }
+        return result;
+    }
+
+    /**
+     * Publishes a batch of trades in order under the configured policy, with
+     * one call into the queue. Trades that are not published are always the
+     * tail of the batch.
+     *
+     * @throws InterruptedException if interrupted while waiting for space
+     */
+    public BatchResult publishAll(List<Trade> trades) throws InterruptedException {
+        int enqueued;
+        int spilled = 0;
+        switch (policy) {
+            case BLOCK:
+                enqueued = queue.sendAll(trades, blockTimeoutMs, TimeUnit.MILLISECONDS);
+                break;
+            case SPILL:
+                enqueued = spill.pending() == 0 ? queue.sendAll(trades, 0, TimeUnit.MILLISECONDS) : 0;
+                while (enqueued + spilled < trades.size() && spill.append(trades.get(enqueued + spilled))) {
+                    queueMetrics.incrementSpilled();
+                    spilled++;
+                }
+                break;
+            default:
+                enqueued = queue.sendAll(trades, 0, TimeUnit.MILLISECONDS);
+                break;
+        }
+        int rejected = trades.size() - enqueued - spilled;
+        if (rejected > 0) {
+            queueMetrics.incrementRejected(rejected);
+        }
+        return new BatchResult(enqueued, spilled, rejected);
+    }
+
+    private PublishResult publishOrSpill(Trade trade) throws InterruptedException {
+        if (spill.pending() == 0 && queue.send(trade, 0, TimeUnit.MILLISECONDS)) {
+            return PublishResult.ENQUEUED;
+        }
+        return spillOrReject(trade);
+    }
+
+    private PublishResult spillOrReject(Trade trade) {
+        if (!spill.append(trade)) {
+            logger.warn("Spill file full, rejecting trade: {}", trade);
+            return PublishResult.REJECTED;
+        }
+        queueMetrics.incrementSpilled();
+        return PublishResult.SPILLED;
+    }
+
+    /**
+     * @return seconds a rejected caller should wait before retrying: the time
+     *         the consumers need to work off the current backlog at their
+     *         recent drain rate, between 1 and {@code queue.publish.max-retry-after-seconds}
+     */
+    public long retryAfterSeconds() {
+        long drainMs = queue.estimatedDrainMillis();
+        if (drainMs < 0) {
+            return maxRetryAfterSeconds;
+        }
+        long seconds = (drainMs + 999) / 1000;
+        return Math.max(1, Math.min(maxRetryAfterSeconds, seconds));
+    }
+
+    public BackpressurePolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return number of trades waiting in the spill file
+     */
+    public long spilled() {
+        return spill.pending();
+    }
+
+    /**
+     * Moves spilled trades into the queue while it has room.
+     */
+    @Scheduled(fixedDelayString = "${queue.spill.drain-interval-ms:500}")
+    public void drainSpill() {
+        if (spill.pending() == 0) {
+            return;
+        }
+        int drained = spill.drain(trade -> {
+            try {
+                return queue.send(trade, SPILL_OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+        if (drained > 0) {
+            logger.info("Moved {} spilled trades into the queue, {} still spilled", drained, spill.pending());
+        }
+    }
+
+    /**
+     * What happened to a published batch: the first {@code enqueued} trades
+     * were queued, the next {@code spilled} spilled to disk and the rest rejected.
+     */
+    public static final class BatchResult {
+        private final int enqueued;
+        private final int spilled;
+        private final int rejected;
+
+        BatchResult(int enqueued, int spilled, int rejected) {
+            this.enqueued = enqueued;
+            this.spilled = spilled;
+            this.rejected = rejected;
+        }
+
+        public int getEnqueued() {
+            return enqueued;
+        }
+
+        public int getSpilled() {
+            return spilled;
+        }
+
+        public int getRejected() {
+            return rejected;
+        }
+    }
+}
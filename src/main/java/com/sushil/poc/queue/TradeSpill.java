@@ -0,0 +1,241 @@
+package com.sushil.poc.queue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sushil.poc.model.Trade;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Overflow area on disk for trades that did not fit in the in-memory queue.
+ * Trades are appended as NDJSON to {@code spill.ndjson} in
+ * {@code queue.spill.dir}; draining first renames that file to
+ * {@code spill.draining.ndjson}, so new trades keep being appended while the
+ * older ones are replayed in order.
+ * <p>
+ * Each append is flushed to the operating system, so spilled trades survive a
+ * process crash (not a power loss). Delivery is at-least-once: after a restart
+ * a partly drained file is replayed from the start, which is harmless because
+ * re-applying the same trade version replaces it in place.
+ */
+@Component
+public class TradeSpill {
+    private static final Logger logger = LoggerFactory.getLogger(TradeSpill.class);
+
+    private final ObjectMapper objectMapper;
+    private final Path current;
+    private final Path draining;
+    private final long maxBytes;
+    private final AtomicLong pending = new AtomicLong();
+    private final Object drainLock = new Object();
+
+    // Guarded by this
+    private BufferedWriter writer;
+    private long currentBytes;
+    private long drainingBytes;
+
+    // Guarded by drainLock
+    private BufferedReader reader;
+
+    public TradeSpill(ObjectMapper objectMapper,
+            @Value("${queue.spill.dir:spill}") String dir,
+            @Value("${queue.spill.max-bytes:1073741824}") long maxBytes) {
+        this.objectMapper = objectMapper;
+        this.current = Paths.get(dir, "spill.ndjson");
+        this.draining = Paths.get(dir, "spill.draining.ndjson");
+        this.maxBytes = maxBytes;
+        this.currentBytes = sizeOf(current);
+        this.drainingBytes = sizeOf(draining);
+        pending.set(countLines(current) + countLines(draining));
+        if (pending.get() > 0) {
+            logger.info("Found {} spilled trades in {} from a previous run", pending.get(), current.getParent());
+        }
+    }
+
+    /**
+     * Appends a trade to the spill file.
+     *
+     * @return false if the spill file is full or could not be written
+     */
+    public boolean append(Trade trade) {
+        byte[] line;
+        try {
+            line = objectMapper.writeValueAsBytes(trade);
+        } catch (IOException e) {
+            logger.error("Failed to serialize trade for the spill file: {}", trade, e);
+            return false;
+        }
+        synchronized (this) {
+            if (currentBytes + drainingBytes + line.length + 1 > maxBytes) {
+                return false;
+            }
+            try {
+                if (writer == null) {
+                    Files.createDirectories(current.getParent());
+                    writer = Files.newBufferedWriter(current, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                            StandardOpenOption.APPEND);
+                }
+                writer.write(new String(line, StandardCharsets.UTF_8));
+                writer.newLine();
+                writer.flush();
+            } catch (IOException e) {
+                logger.error("Failed to append trade to spill file {}", current, e);
+                closeWriter();
+                return false;
+            }
+            currentBytes += line.length + 1;
+        }
+        pending.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Replays spilled trades, oldest first, until the sink refuses one or the
+     * spill is empty. A refused trade is offered again on the next call.
+     *
+     * @param sink receives each trade; returns false if it could not take it
+     * @return number of trades the sink took
+     */
+    public int drain(Predicate<Trade> sink) {
+        synchronized (drainLock) {
+            int drained = 0;
+            try {
+                while (reader != null || rotate()) {
+                    while (true) {
+                        reader.mark(1 << 16);
+                        String line = reader.readLine();
+                        if (line == null) {
+                            break;
+                        }
+                        if (line.isEmpty()) {
+                            continue;
+                        }
+                        Trade trade;
+                        try {
+                            trade = objectMapper.readValue(line, Trade.class);
+                        } catch (IOException e) {
+                            logger.error("Skipping unreadable line in spill file {}: {}", draining, line, e);
+                            pending.decrementAndGet();
+                            continue;
+                        }
+                        if (!sink.test(trade)) {
+                            reader.reset();
+                            return drained;
+                        }
+                        pending.decrementAndGet();
+                        drained++;
+                    }
+                    finishDraining();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read spill file " + draining, e);
+            }
+            return drained;
+        }
+    }
+
+    /**
+     * @return number of trades waiting in the spill file
+     */
+    public long pending() {
+        return pending.get();
+    }
+
+    /**
+     * Opens the file to drain: a leftover draining file from a previous run,
+     * otherwise the current file after renaming it.
+     *
+     * @return false if there is nothing to drain
+     */
+    private boolean rotate() throws IOException {
+        if (!Files.exists(draining)) {
+            synchronized (this) {
+                closeWriter();
+                if (currentBytes == 0 && !Files.exists(current)) {
+                    return false;
+                }
+                if (Files.exists(current)) {
+                    Files.move(current, draining);
+                }
+                drainingBytes = currentBytes;
+                currentBytes = 0;
+            }
+        }
+        if (!Files.exists(draining)) {
+            return false;
+        }
+        reader = Files.newBufferedReader(draining, StandardCharsets.UTF_8);
+        return true;
+    }
+
+    private void finishDraining() throws IOException {
+        reader.close();
+        reader = null;
+        Files.deleteIfExists(draining);
+        synchronized (this) {
+            drainingBytes = 0;
+        }
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close spill file {}", current, e);
+        }
+        writer = null;
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.exists(path) ? Files.size(path) : 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long countLines(Path path) {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        try (Stream<String> lines = Files.lines(path, StandardCharsets.UTF_8)) {
+            return lines.filter(line -> !line.isEmpty()).count();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        synchronized (drainLock) {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    logger.warn("Failed to close spill file {}", draining, e);
+                }
+                reader = null;
+            }
+        }
+        synchronized (this) {
+            closeWriter();
+        }
+    }
+}
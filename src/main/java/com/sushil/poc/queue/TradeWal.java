@@ -0,0 +1,527 @@
+package com.sushil.poc.queue;
+
+import com.sushil.poc.codec.TradeCodec;
+import com.sushil.poc.metrics.QueueMetrics;
+import com.sushil.poc.model.Trade;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log behind the {@link InMemoryQueue}, so trades
+ * accepted by the queue survive a crash or redeploy. Enabled with
+ * {@code queue.wal.enabled}; when disabled every method is a no-op.
+ * <p>
+ * Each trade gets a sequence number and is written with {@link TradeCodec} to
+ * the current memory-mapped segment file ({@code wal-<first sequence>.log},
+ * {@code queue.wal.segment-bytes} each). A background thread forces the
+ * segment to disk every {@code queue.wal.fsync-interval-ms}, so concurrent
+ * senders share one fsync (group commit); with {@code queue.wal.sync} a send
+ * only returns once its record is on disk.
+ * <p>
+ * Consumers acknowledge trades once processed. The same thread records the
+ * lowest unacknowledged sequence in the {@code checkpoint} file and deletes
+ * segments that lie wholly before it. At startup every unacknowledged trade
+ * after the checkpoint is handed back to the queue, so delivery is
+ * at-least-once; re-applying a trade version replaces it in place.
+ * <p>
+ * Record layout: 4-byte length of the rest of the record after the CRC, 4-byte
+ * CRC32 of it, 1-byte type, 8-byte sequence, then the encoded trade. A zero
+ * length marks the end of a segment; a CRC mismatch marks a torn write.
+ */
+@Component
+public class TradeWal {
+    private static final Logger logger = LoggerFactory.getLogger(TradeWal.class);
+
+    /**
+     * Sequence of trades that were never written to the log.
+     */
+    public static final long NO_SEQUENCE = -1;
+
+    private static final int HEADER_BYTES = 4 + 4 + 1 + 8;
+    private static final byte TYPE_TRADE = 1;
+    // Written when a logged trade could not be queued after all, so it is not replayed
+    private static final byte TYPE_CANCEL = 2;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final long SYNC_TIMEOUT_MS = 5000;
+
+    private final boolean enabled;
+    private final Path dir;
+    private final int segmentBytes;
+    private final long fsyncIntervalMs;
+    private final boolean sync;
+    private final QueueMetrics queueMetrics;
+    private final ScheduledExecutorService flusher;
+    // Appended and not yet acknowledged or cancelled
+    private final ConcurrentSkipListSet<Long> outstanding = new ConcurrentSkipListSet<>();
+    private final Object durableLock = new Object();
+
+    // Guarded by this; oldest first, the last one is being written
+    private final List<Segment> segments = new ArrayList<>();
+    private volatile long nextSequence;
+    // Guarded by durableLock; every sequence below it is on disk
+    private long durableBefore;
+    // Only touched by the flusher thread, and by stop() once it has finished
+    private long checkpoint;
+    private FileChannel checkpointChannel;
+    private List<QueuedTrade> recovered = Collections.emptyList();
+
+    public TradeWal(QueueMetrics queueMetrics,
+            @Value("${queue.wal.enabled:false}") boolean enabled,
+            @Value("${queue.wal.dir:wal}") String dir,
+            @Value("${queue.wal.segment-bytes:67108864}") int segmentBytes,
+            @Value("${queue.wal.fsync-interval-ms:10}") long fsyncIntervalMs,
+            @Value("${queue.wal.sync:true}") boolean sync) {
+        if (segmentBytes < 4096 || fsyncIntervalMs < 1) {
+            throw new IllegalArgumentException("queue.wal.segment-bytes must be at least 4096, queue.wal.fsync-interval-ms positive");
+        }
+        this.queueMetrics = queueMetrics;
+        this.enabled = enabled;
+        this.dir = Paths.get(dir);
+        this.segmentBytes = segmentBytes;
+        this.fsyncIntervalMs = fsyncIntervalMs;
+        this.sync = sync;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TradeWal-Flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        if (enabled) {
+            try {
+                open();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open trade WAL in " + this.dir, e);
+            }
+            queueMetrics.registerWalSegments(this::segmentCount);
+            flusher.scheduleWithFixedDelay(this::flushSafely, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Logs a trade about to be queued.
+     *
+     * @return the trade's sequence, or {@link #NO_SEQUENCE} if the log is disabled
+     */
+    public long append(Trade trade) {
+        if (!enabled) {
+            return NO_SEQUENCE;
+        }
+        synchronized (this) {
+            long sequence = nextSequence;
+            write(TYPE_TRADE, sequence, trade);
+            outstanding.add(sequence);
+            // Published after the add so the flusher never checkpoints past an unacknowledged trade
+            nextSequence = sequence + 1;
+            return sequence;
+        }
+    }
+
+    /**
+     * Marks a logged trade as not queued after all, e.g. because its lane was
+     * full, so it is not replayed after a restart.
+     */
+    public void cancel(long sequence) {
+        if (sequence == NO_SEQUENCE) {
+            return;
+        }
+        synchronized (this) {
+            write(TYPE_CANCEL, sequence, null);
+        }
+        outstanding.remove(sequence);
+    }
+
+    /**
+     * Marks a trade as processed; it is not replayed once the checkpoint has
+     * moved past it.
+     */
+    public void ack(long sequence) {
+        if (sequence != NO_SEQUENCE) {
+            outstanding.remove(sequence);
+        }
+    }
+
+    /**
+     * With {@code queue.wal.sync}, waits until the trade's record has been
+     * forced to disk by the next group commit. Returns at once otherwise.
+     */
+    public void awaitDurable(long sequence) {
+        if (!sync || sequence == NO_SEQUENCE) {
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SYNC_TIMEOUT_MS);
+        synchronized (durableLock) {
+            while (durableBefore <= sequence) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0) {
+                    logger.warn("Trade WAL record {} not forced to disk within {} ms", sequence, SYNC_TIMEOUT_MS);
+                    return;
+                }
+                try {
+                    durableLock.wait(remainingMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Hands over the trades recovered from the log at startup, in the order
+     * they were originally sent. Returns an empty list on later calls.
+     */
+    public synchronized List<QueuedTrade> takeRecovered() {
+        List<QueuedTrade> trades = recovered;
+        recovered = Collections.emptyList();
+        return trades;
+    }
+
+    /**
+     * @return number of segment files, including the one being written
+     */
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(dir);
+        Path checkpointPath = dir.resolve("checkpoint");
+        checkpointChannel = FileChannel.open(checkpointPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        checkpoint = readCheckpoint();
+
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : files) {
+                paths.add(path);
+            }
+        }
+        // Zero-padded names sort in sequence order
+        Collections.sort(paths);
+        List<QueuedTrade> trades = new ArrayList<>();
+        Set<Long> cancelled = new HashSet<>();
+        long next = checkpoint;
+        for (Path path : paths) {
+            segments.add(new Segment(path, firstSequenceOf(path), null, null));
+            next = Math.max(next, scan(path, trades, cancelled));
+        }
+        List<QueuedTrade> replay = new ArrayList<>(trades.size());
+        long now = System.nanoTime();
+        for (QueuedTrade trade : trades) {
+            if (trade.getWalSequence() >= checkpoint && !cancelled.contains(trade.getWalSequence())) {
+                replay.add(new QueuedTrade(trade.getTrade(), now, trade.getWalSequence()));
+                outstanding.add(trade.getWalSequence());
+            }
+        }
+        recovered = replay;
+        nextSequence = next;
+        durableBefore = next;
+
+        // A segment named after the next sequence holds no trades, only cancellations,
+        // which are carried over into the new segment
+        Path path = segmentPath(next);
+        if (!segments.isEmpty() && segments.get(segments.size() - 1).path.equals(path)) {
+            segments.remove(segments.size() - 1);
+            Files.delete(path);
+        }
+        segments.add(createSegment(next));
+        for (Long sequence : cancelled) {
+            if (sequence >= checkpoint) {
+                write(TYPE_CANCEL, sequence, null);
+            }
+        }
+        logger.info("Opened trade WAL in {}: {} segment(s), checkpoint {}, {} trade(s) to replay", dir,
+                segments.size(), checkpoint, replay.size());
+    }
+
+    /**
+     * Reads every valid record of a segment.
+     *
+     * @return one past the highest trade sequence found
+     */
+    private long scan(Path path, List<QueuedTrade> trades, Set<Long> cancelled) throws IOException {
+        long next = 0;
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= HEADER_BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int expectedCrc = buffer.getInt();
+            if (length <= 0) {
+                break;
+            }
+            if (length > buffer.remaining()) {
+                logger.warn("Truncated record at offset {} of {}, ignoring the rest", start, path);
+                break;
+            }
+            ByteBuffer body = buffer.slice();
+            body.limit(length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != expectedCrc) {
+                logger.warn("Corrupt record at offset {} of {}, ignoring the rest", start, path);
+                break;
+            }
+            byte type = body.get();
+            long sequence = body.getLong();
+            if (type == TYPE_TRADE) {
+                try {
+                    trades.add(new QueuedTrade(TradeCodec.read(body), 0, sequence));
+                } catch (BufferUnderflowException | IllegalArgumentException e) {
+                    logger.warn("Undecodable trade record {} in {}, skipping it", sequence, path, e);
+                }
+                next = Math.max(next, sequence + 1);
+            } else if (type == TYPE_CANCEL) {
+                cancelled.add(sequence);
+            }
+            buffer.position(start + 8 + length);
+        }
+        return next;
+    }
+
+    // Callers hold the monitor
+    private void write(byte type, long sequence, Trade trade) {
+        Segment segment = segments.get(segments.size() - 1);
+        if (segment.write(type, sequence, trade)) {
+            return;
+        }
+        try {
+            // Named after the next trade, not this record: a cancellation refers to an older trade
+            roll(nextSequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll trade WAL segment", e);
+        }
+        if (!segments.get(segments.size() - 1).write(type, sequence, trade)) {
+            throw new IllegalStateException("Trade too large for a WAL segment of " + segmentBytes + " bytes");
+        }
+    }
+
+    private void roll(long firstSequence) throws IOException {
+        Segment full = segments.get(segments.size() - 1);
+        // The flusher only forces the last segment, so this one must reach the disk now
+        full.buffer.force();
+        full.channel.close();
+        segments.add(createSegment(firstSequence));
+    }
+
+    private Segment createSegment(long firstSequence) throws IOException {
+        Path path = segmentPath(firstSequence);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        return new Segment(path, firstSequence, channel, buffer);
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+    }
+
+    private static long firstSequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("Unexpected error in trade WAL flusher", e);
+        }
+    }
+
+    /**
+     * Group commit: forces everything appended so far with one fsync, then
+     * advances the checkpoint and deletes segments it has passed.
+     */
+    private void flush() throws IOException {
+        long appendedBefore;
+        Segment segment;
+        synchronized (this) {
+            appendedBefore = nextSequence;
+            segment = segments.get(segments.size() - 1);
+        }
+        boolean pending;
+        synchronized (durableLock) {
+            pending = appendedBefore > durableBefore;
+        }
+        if (pending) {
+            long start = System.nanoTime();
+            segment.buffer.force();
+            queueMetrics.recordWalFsync(System.nanoTime() - start);
+            synchronized (durableLock) {
+                durableBefore = appendedBefore;
+                durableLock.notifyAll();
+            }
+        }
+        // Read the sequence before the set: a trade appended in between is then still covered
+        long next = nextSequence;
+        Long oldest = outstanding.ceiling(Long.MIN_VALUE);
+        long newCheckpoint = oldest == null ? next : Math.min(oldest, next);
+        if (newCheckpoint > checkpoint) {
+            writeCheckpoint(newCheckpoint);
+            deleteSegmentsBefore(newCheckpoint);
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (checkpointChannel.size() < 16) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        while (buffer.hasRemaining() && checkpointChannel.read(buffer, buffer.position()) >= 0) {
+            // Read both longs
+        }
+        buffer.flip();
+        long value = buffer.getLong();
+        if (buffer.getLong() != ~value) {
+            logger.warn("Trade WAL checkpoint in {} is corrupt, replaying every logged trade", dir);
+            return 0;
+        }
+        return value;
+    }
+
+    private void writeCheckpoint(long value) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putLong(value).putLong(~value).flip();
+        while (buffer.hasRemaining()) {
+            checkpointChannel.write(buffer, buffer.position());
+        }
+        checkpointChannel.force(false);
+        checkpoint = value;
+    }
+
+    private void deleteSegmentsBefore(long sequence) throws IOException {
+        List<Path> obsolete = new ArrayList<>();
+        synchronized (this) {
+            // A segment is obsolete once the next one starts at or before the checkpoint
+            while (segments.size() > 1 && segments.get(1).firstSequence <= sequence) {
+                obsolete.add(segments.remove(0).path);
+            }
+        }
+        for (Path path : obsolete) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Stops the flusher, forces what is left and records the final checkpoint.
+     * Trades still queued at this point are replayed on the next start.
+     */
+    @PreDestroy
+    public void stop() {
+        if (!enabled) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("Trade WAL flusher did not terminate in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+            synchronized (this) {
+                Segment last = segments.get(segments.size() - 1);
+                last.channel.close();
+            }
+            checkpointChannel.close();
+        } catch (IOException e) {
+            logger.error("Failed to close trade WAL in {}", dir, e);
+        }
+        if (!outstanding.isEmpty()) {
+            logger.info("{} trade(s) left in the WAL will be replayed on the next start", outstanding.size());
+        }
+    }
+
+    /**
+     * One segment file. Only the last segment is mapped for writing.
+     */
+    private static final class Segment {
+        private final Path path;
+        private final long firstSequence;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final CRC32 crc = new CRC32();
+
+        Segment(Path path, long firstSequence, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.firstSequence = firstSequence;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        /**
+         * @return false if the record does not fit in the rest of the segment
+         */
+        boolean write(byte type, long sequence, Trade trade) {
+            int start = buffer.position();
+            // Always leave room for the zero length that ends the segment
+            if (buffer.remaining() < HEADER_BYTES + 4) {
+                return false;
+            }
+            try {
+                buffer.position(start + 8);
+                buffer.put(type);
+                buffer.putLong(sequence);
+                if (trade != null) {
+                    TradeCodec.write(trade, buffer);
+                }
+                if (buffer.remaining() < 4) {
+                    throw new BufferOverflowException();
+                }
+            } catch (BufferOverflowException e) {
+                // Nothing before the length is read back, so the partial record is harmless
+                buffer.position(start);
+                return false;
+            } catch (RuntimeException e) {
+                // E.g. a string too long to encode: rewind so later records still follow on from the last good one
+                buffer.position(start);
+                throw e;
+            }
+            int end = buffer.position();
+            ByteBuffer body = buffer.duplicate();
+            body.position(start + 8);
+            body.limit(end);
+            crc.reset();
+            crc.update(body);
+            buffer.putInt(start + 4, (int) crc.getValue());
+            // The length goes in last, so readers never see a record before it is complete
+            buffer.putInt(start, end - start - 8);
+            return true;
+        }
+    }
+}
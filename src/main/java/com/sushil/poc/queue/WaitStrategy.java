@@ -0,0 +1,77 @@
+package com.sushil.poc.queue;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a thread waits on a {@link RingBufferQueue} that is empty (consumers) or
+ * full (producers). Selected by {@code queue.wait-strategy}.
+ */
+public enum WaitStrategy {
+    /**
+     * Spins on the CPU. Lowest wake-up latency, but each waiting thread burns a
+     * core; only use it with a dedicated core per consumer.
+     */
+    BUSY_SPIN {
+        @Override
+        void idle(int attempt) {
+            Thread.onSpinWait();
+        }
+    },
+    /**
+     * Spins briefly, then yields the CPU to other runnable threads.
+     */
+    YIELDING {
+        @Override
+        void idle(int attempt) {
+            if (attempt < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    },
+    /**
+     * Spins briefly, yields, then parks for short intervals. Adds up to
+     * {@link #PARK_NANOS} of wake-up latency but leaves idle CPUs free.
+     */
+    PARKING {
+        @Override
+        void idle(int attempt) {
+            if (attempt < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (attempt < SPIN_TRIES + YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+    };
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 10;
+    static final long PARK_NANOS = 50_000;
+    /**
+     * Attempt count past which every strategy waits the same way; callers clamp
+     * their counter to it so a long wait cannot overflow back into spinning.
+     */
+    static final int MAX_ATTEMPT = SPIN_TRIES + YIELD_TRIES;
+
+    /**
+     * Waits once before the caller retries.
+     *
+     * @param attempt number of times the caller has already waited for this operation
+     */
+    abstract void idle(int attempt);
+
+    /**
+     * @param name {@code busy-spin}, {@code yielding} or {@code parking}, case-insensitive
+     */
+    public static WaitStrategy fromName(String name) {
+        for (WaitStrategy strategy : values()) {
+            if (strategy.name().replace('_', '-').equalsIgnoreCase(name)) {
+                return strategy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown queue.wait-strategy: " + name);
+    }
+}
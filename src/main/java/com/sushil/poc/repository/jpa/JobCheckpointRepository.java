@@ -0,0 +1,7 @@
+package com.sushil.poc.repository.jpa;
+
+import com.sushil.poc.model.JobCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, String> {
+}
@@ -1,7 +1,16 @@
 package com.sushil.poc.repository.jpa;
 
 import com.sushil.poc.model.MongoSyncFailure;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 public interface MongoSyncFailureRepository extends JpaRepository<MongoSyncFailure, Long> {
+    // Failures whose retry schedule allows another replay attempt, oldest first
+    @Query("SELECT f FROM MongoSyncFailure f WHERE f.nextAttemptAt IS NULL OR f.nextAttemptAt <= :now ORDER BY f.id")
+    List<MongoSyncFailure> findDue(@Param("now") LocalDateTime now, Pageable pageable);
 }
@@ -0,0 +1,18 @@
+package com.sushil.poc.repository.jpa;
+
+import java.time.LocalDate;
+
+/**
+ * Projection of the columns kept by the compact trade index.
+ */
+public interface TradeIndexRow {
+    String getTradeId();
+
+    Long getId();
+
+    int getVersion();
+
+    LocalDate getMaturityDate();
+
+    boolean isExpired();
+}
@@ -0,0 +1,174 @@
+package com.sushil.poc.repository.jpa;
+
+import com.sushil.poc.model.Trade;
+import org.springframework.dao.IncorrectUpdateSemanticsDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC writes for the trades table, used where going through the JPA
+ * persistence context one entity at a time is too slow. Callers must flush
+ * the EntityManager first if they have pending JPA changes.
+ */
+@Repository
+public class TradeJdbcRepository {
+    private static final String INSERT_SQL = "INSERT INTO trades "
+            + "(trade_id, version, counter_party_id, book_id, maturity_date, created_date, expired) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE trades SET "
+            + "counter_party_id = ?, book_id = ?, maturity_date = ?, created_date = ?, expired = ? "
+            + "WHERE id = ?";
+
+    // Both rely on the unique (trade_id, version) index. On MySQL, id = LAST_INSERT_ID(id) makes the
+    // generated key of an update the existing row id, so one round trip serves inserts and updates.
+    private static final String MYSQL_UPSERT_SQL = "INSERT INTO trades "
+            + "(trade_id, version, counter_party_id, book_id, maturity_date, created_date, expired) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE id = LAST_INSERT_ID(id), counter_party_id = VALUES(counter_party_id), "
+            + "book_id = VALUES(book_id), maturity_date = VALUES(maturity_date), "
+            + "created_date = VALUES(created_date), expired = VALUES(expired)";
+    private static final String MERGE_SQL = "MERGE INTO trades "
+            + "(trade_id, version, counter_party_id, book_id, maturity_date, created_date, expired) "
+            + "KEY (trade_id, version) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_ID_SQL = "SELECT id FROM trades WHERE trade_id = ? AND version = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean mysql;
+
+    public TradeJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts the trade, or overwrites the mutable columns of the existing row
+     * with the same tradeId and version, without reading it first. Sets the
+     * row id on the trade.
+     */
+    public void upsert(Trade trade) {
+        if (isMysql()) {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.update(con -> {
+                PreparedStatement ps = con.prepareStatement(MYSQL_UPSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+                setRow(ps, trade);
+                return ps;
+            }, keyHolder);
+            // Connector/J reports one key per affected row (2 for an update) and none for a no-op update
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            if (!keys.isEmpty()) {
+                trade.setId(((Number) keys.get(0).values().iterator().next()).longValue());
+                return;
+            }
+        } else {
+            jdbcTemplate.update(MERGE_SQL, ps -> setRow(ps, trade));
+        }
+        trade.setId(jdbcTemplate.queryForObject(SELECT_ID_SQL, Long.class, trade.getTradeId(), trade.getVersion()));
+    }
+
+    /**
+     * Inserts new trade rows in one JDBC batch and sets the generated id on
+     * each trade.
+     */
+    public void batchInsert(List<Trade> trades) {
+        if (trades.isEmpty()) {
+            return;
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        setRow(ps, trades.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return trades.size();
+                    }
+                }, keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < trades.size(); i++) {
+            trades.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+    }
+
+    /**
+     * Overwrites the mutable columns of existing trade rows, matched by id, in
+     * one JDBC batch.
+     *
+     * @return the trades whose id matched no row, e.g. because the row was
+     *         deleted after the id was cached; nothing was written for them
+     */
+    public List<Trade> batchUpdate(List<Trade> trades) {
+        if (trades.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Trade t = trades.get(i);
+                ps.setString(1, t.getCounterPartyId());
+                ps.setString(2, t.getBookId());
+                ps.setDate(3, toSqlDate(t.getMaturityDate()));
+                ps.setDate(4, toSqlDate(t.getCreatedDate()));
+                ps.setBoolean(5, t.isExpired());
+                ps.setLong(6, t.getId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return trades.size();
+            }
+        });
+        List<Trade> missed = new ArrayList<>();
+        for (int i = 0; i < trades.size(); i++) {
+            // Drivers may report SUCCESS_NO_INFO for batched statements; only a count of 0 is a miss
+            if (i >= counts.length || counts[i] == 0) {
+                missed.add(trades.get(i));
+            } else if (counts[i] != 1 && counts[i] != Statement.SUCCESS_NO_INFO) {
+                throw new IncorrectUpdateSemanticsDataAccessException("Update of trade " + trades.get(i).getTradeId()
+                        + " v" + trades.get(i).getVersion() + " affected " + counts[i] + " rows");
+            }
+        }
+        return missed;
+    }
+
+    // Binds the INSERT_SQL / upsert column list
+    private static void setRow(PreparedStatement ps, Trade t) throws SQLException {
+        ps.setString(1, t.getTradeId());
+        ps.setInt(2, t.getVersion());
+        ps.setString(3, t.getCounterPartyId());
+        ps.setString(4, t.getBookId());
+        ps.setDate(5, toSqlDate(t.getMaturityDate()));
+        ps.setDate(6, toSqlDate(t.getCreatedDate()));
+        ps.setBoolean(7, t.isExpired());
+    }
+
+    private boolean isMysql() {
+        Boolean result = mysql;
+        if (result == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) con ->
+                    con.getMetaData().getDatabaseProductName());
+            result = product != null && (product.startsWith("MySQL") || product.startsWith("MariaDB"));
+            mysql = result;
+        }
+        return result;
+    }
+
+    private static Date toSqlDate(LocalDate date) {
+        return date == null ? null : Date.valueOf(date);
+    }
+}
@@ -0,0 +1,12 @@
+package com.sushil.poc.repository.jpa;
+
+import java.time.LocalDate;
+
+/**
+ * Earliest maturity date among the unexpired versions of a trade.
+ */
+public interface TradeMaturity {
+    String getTradeId();
+
+    LocalDate getMaturityDate();
+}
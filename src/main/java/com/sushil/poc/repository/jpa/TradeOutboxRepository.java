@@ -0,0 +1,12 @@
+package com.sushil.poc.repository.jpa;
+
+import com.sushil.poc.model.TradeOutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface TradeOutboxRepository extends JpaRepository<TradeOutboxEvent, Long> {
+    // Oldest changes first; rows committed out of id order are picked up by a later poll
+    List<TradeOutboxEvent> findByOrderByIdAsc(Limit limit);
+}
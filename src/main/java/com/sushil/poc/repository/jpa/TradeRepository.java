@@ -1,25 +1,52 @@
 package com.sushil.poc.repository.jpa;
 
 import com.sushil.poc.model.Trade;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface TradeRepository extends JpaRepository<Trade, Long> {
     Optional<Trade> findTopByTradeIdOrderByVersionDesc(String tradeId);
 
     List<Trade> findByTradeId(String tradeId);
 
+    List<Trade> findByTradeIdIn(Collection<String> tradeIds);
+
     List<Trade> findByMaturityDateBeforeAndExpiredFalse(LocalDate date);
 
     Optional<Trade> findByTradeIdAndVersion(String tradeId, int version);
 
+    // Latest version row of each given tradeId in one set-based query
+    @Query("SELECT t.tradeId AS tradeId, t.id AS id, t.version AS version FROM Trade t "
+            + "WHERE t.tradeId IN :tradeIds AND t.version = "
+            + "(SELECT MAX(t2.version) FROM Trade t2 WHERE t2.tradeId = t.tradeId)")
+    List<TradeVersion> findLatestVersions(@Param("tradeIds") Collection<String> tradeIds);
+
+    // Latest version row of the most recently written tradeIds, newest first
+    @Query("SELECT t.tradeId AS tradeId, t.id AS id, t.version AS version FROM Trade t "
+            + "WHERE t.version = (SELECT MAX(t2.version) FROM Trade t2 WHERE t2.tradeId = t.tradeId) "
+            + "ORDER BY t.id DESC")
+    List<TradeVersion> findRecentLatestVersions(Limit limit);
+
+    // Earliest maturity date of the unexpired versions of each given tradeId; fully expired trades are absent
+    @Query("SELECT t.tradeId AS tradeId, MIN(t.maturityDate) AS maturityDate FROM Trade t "
+            + "WHERE t.tradeId IN :tradeIds AND t.expired = false GROUP BY t.tradeId")
+    List<TradeMaturity> findNextMaturities(@Param("tradeIds") Collection<String> tradeIds);
+
     // Alternative query-based method for finding expired trades
     @Query("SELECT t FROM Trade t WHERE t.maturityDate < :today AND t.expired = false")
     List<Trade> findExpiredTrades(@Param("today") LocalDate today);
@@ -30,6 +57,33 @@ public interface TradeRepository extends JpaRepository<Trade, Long> {
     @Query("UPDATE Trade t SET t.expired = true WHERE t.maturityDate < :today AND t.expired = false")
     int markTradesAsExpired(@Param("today") LocalDate today);
 
+    // Next chunk of trades due to expire after the given id, row-locked until the chunk's transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t.tradeId AS tradeId, t.id AS id, t.version AS version FROM Trade t "
+            + "WHERE t.id > :afterId AND t.expired = false AND t.maturityDate < :today ORDER BY t.id")
+    List<TradeVersion> findExpiringAfter(@Param("afterId") long afterId, @Param("today") LocalDate today,
+            Limit limit);
+
+    // Marks one chunk from findExpiringAfter as expired, by primary key
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Trade t SET t.expired = true WHERE t.id IN :ids")
+    int markExpired(@Param("ids") Collection<Long> ids);
+
     // Find all trades ordered by tradeId and version for better readability
     List<Trade> findAllByOrderByTradeIdAscVersionAsc();
-}
\ No newline at end of file
+
+    // Keyset page: the next trades after the given id, without OFFSET or COUNT(*)
+    List<Trade> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // Whole table as a forward-only stream; must be consumed inside a transaction and closed.
+    // MySQL only honours the fetch size with useCursorFetch=true on the JDBC URL.
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT t FROM Trade t ORDER BY t.id")
+    Stream<Trade> streamAll();
+
+    // Index columns of every row as a forward-only stream; same rules as streamAll
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT t.tradeId AS tradeId, t.id AS id, t.version AS version, t.maturityDate AS maturityDate, "
+            + "t.expired AS expired FROM Trade t ORDER BY t.id")
+    Stream<TradeIndexRow> streamIndexRows();
+}
@@ -0,0 +1,13 @@
+package com.sushil.poc.repository.jpa;
+
+/**
+ * Projection of the identifying columns of a trade row, used for version
+ * checks without loading whole entities.
+ */
+public interface TradeVersion {
+    String getTradeId();
+
+    Long getId();
+
+    int getVersion();
+}
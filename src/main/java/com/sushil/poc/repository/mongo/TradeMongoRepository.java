@@ -1,9 +1,13 @@
 package com.sushil.poc.repository.mongo;
 
 import com.sushil.poc.model.Trade;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import java.util.List;
 
 public interface TradeMongoRepository extends MongoRepository<Trade, Long> {
     List<Trade> findByTradeId(String tradeId);
+
+    // Keyset page in SQL id order; documents are keyed by the SQL id
+    List<Trade> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
 }
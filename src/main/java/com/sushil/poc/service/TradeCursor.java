@@ -0,0 +1,42 @@
+package com.sushil.poc.service;
+
+import com.sushil.poc.exception.InvalidCursorException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset pagination over trades. Clients must
+ * treat it as a black box; internally it carries the id of the last trade
+ * returned.
+ */
+public final class TradeCursor {
+    private static final String PREFIX = "id:";
+
+    private TradeCursor() {
+    }
+
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @param cursor token from a previous page, or blank for the first page
+     * @return id after which the next page starts
+     * @throws InvalidCursorException if the token was not produced by {@link #encode(long)}
+     */
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (!decoded.startsWith(PREFIX)) {
+                throw new InvalidCursorException("Unrecognised cursor");
+            }
+            return Long.parseLong(decoded.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Unrecognised cursor");
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.sushil.poc.service;
+
+import com.sushil.poc.exception.TradeLockTimeoutException;
+import com.sushil.poc.metrics.TradeMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks that make writes to the same tradeId linearizable: the version
+ * check, the write and the commit of one write all happen before the next
+ * write to that trade reads its version. Each tradeId hashes to one of
+ * {@code trade.lock.stripes} locks, so writes to different trades rarely wait
+ * for each other.
+ * <p>
+ * Locks are held until the surrounding transaction completes. A batch takes
+ * all its stripes in ascending order, which keeps batches and single writes
+ * from deadlocking each other.
+ */
+@Component
+public class TradeLocks {
+    private final ReentrantLock[] stripes;
+    private final long timeoutMs;
+    private final TradeMetrics metrics;
+
+    public TradeLocks(TradeMetrics metrics,
+            @Value("${trade.lock.stripes:1024}") int stripes,
+            @Value("${trade.lock.timeout-ms:5000}") long timeoutMs) {
+        this.metrics = metrics;
+        this.timeoutMs = timeoutMs;
+        this.stripes = new ReentrantLock[Math.max(1, Integer.highestOneBit(Math.max(1, stripes - 1)) << 1)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Locks the trade until the current transaction commits or rolls back.
+     *
+     * @throws TradeLockTimeoutException if another write held the lock for
+     *                                   longer than {@code trade.lock.timeout-ms}
+     */
+    public void lockUntilCompletion(String tradeId, TradeMetrics.Path path) {
+        BitSet stripe = new BitSet(stripes.length);
+        stripe.set(stripeOf(tradeId));
+        lock(stripe, path);
+    }
+
+    /**
+     * Locks all the trades until the current transaction commits or rolls back.
+     *
+     * @throws TradeLockTimeoutException if another write held one of the locks
+     *                                   for longer than {@code trade.lock.timeout-ms}
+     */
+    public void lockAllUntilCompletion(Collection<String> tradeIds, TradeMetrics.Path path) {
+        BitSet needed = new BitSet(stripes.length);
+        for (String tradeId : tradeIds) {
+            needed.set(stripeOf(tradeId));
+        }
+        lock(needed, path);
+    }
+
+    private void lock(BitSet needed, TradeMetrics.Path path) {
+        Assert.state(TransactionSynchronizationManager.isSynchronizationActive(),
+                "Trade locks are released on transaction completion and need an active transaction");
+        long start = System.nanoTime();
+        List<ReentrantLock> held = new ArrayList<>(needed.cardinality());
+        boolean contended = false;
+        try {
+            for (int i = needed.nextSetBit(0); i >= 0; i = needed.nextSetBit(i + 1)) {
+                ReentrantLock stripe = stripes[i];
+                if (!stripe.tryLock()) {
+                    contended = true;
+                    long remaining = timeoutMs - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    if (remaining <= 0 || !stripe.tryLock(remaining, TimeUnit.MILLISECONDS)) {
+                        metrics.incrementLockTimeouts();
+                        throw new TradeLockTimeoutException(
+                                "Trade is being updated by another request, retry later");
+                    }
+                }
+                held.add(stripe);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unlock(held);
+            throw new TradeLockTimeoutException("Interrupted while waiting for a trade lock");
+        } catch (RuntimeException e) {
+            unlock(held);
+            throw e;
+        } finally {
+            if (contended) {
+                metrics.incrementLockContended();
+            }
+            metrics.recordStep(path, TradeMetrics.Step.LOCK_WAIT, System.nanoTime() - start);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                unlock(held);
+            }
+        });
+    }
+
+    private static void unlock(List<ReentrantLock> held) {
+        for (int i = held.size() - 1; i >= 0; i--) {
+            held.get(i).unlock();
+        }
+    }
+
+    private int stripeOf(String tradeId) {
+        int h = tradeId == null ? 0 : tradeId.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+}
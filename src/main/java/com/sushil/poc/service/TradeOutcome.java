@@ -0,0 +1,25 @@
+package com.sushil.poc.service;
+
+/**
+ * Result of applying a single trade, used to report per-trade outcomes from
+ * batch processing.
+ */
+public enum TradeOutcome {
+    ACCEPTED("accepted"),
+    LOWER_VERSION("lower-version"),
+    MATURITY_REJECTED("maturity-rejected"),
+    FAILED("failed");
+
+    private final String tag;
+
+    TradeOutcome(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * @return metric tag value for this outcome
+     */
+    public String getTag() {
+        return tag;
+    }
+}
@@ -0,0 +1,131 @@
+package com.sushil.poc.service;
+
+import com.sushil.poc.metrics.MongoSyncMetrics;
+import com.sushil.poc.repository.jpa.MongoSyncFailureRepository;
+import com.sushil.poc.sync.MongoWriteBehind;
+import com.sushil.poc.sync.OutboxRelay;
+import com.sushil.poc.sync.TradeOutbox;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether trade queries are served from the MongoDB read model or
+ * from SQL.
+ * <p>
+ * With {@code trade.read.mongo.enabled}, reads go to Mongo while it is at most
+ * {@code trade.read.mongo.max-lag-ms} behind SQL: the oldest committed change
+ * still waiting in the outbox or the write-behind is younger than that, and no
+ * trades are waiting in {@code mongo_sync_failures}. Otherwise, and for a while
+ * after a Mongo read fails, reads go to SQL. The lag is checked at most every
+ * {@code trade.read.mongo.check-interval-ms} and the failure table at most once
+ * a second, so routing does not cost a query per read.
+ */
+@Component
+public class TradeReadRouter {
+    private static final Logger logger = LoggerFactory.getLogger(TradeReadRouter.class);
+    private static final long BACKLOG_CHECK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final MongoWriteBehind mongoWriteBehind;
+    private final OutboxRelay outboxRelay;
+    private final MongoSyncFailureRepository failureRepo;
+    private final boolean enabled;
+    private final long maxLagNanos;
+    private final long checkIntervalNanos;
+    private final Counter mongoReads;
+    private final Counter laggingReads;
+    private final Counter backlogReads;
+    private final Counter errorReads;
+
+    // Guarded by this
+    private long checkedAt;
+    private long backlogCheckedAt;
+    private boolean behind = true;
+    private volatile long failedUntil;
+    private volatile long failureBacklog = -1;
+
+    public TradeReadRouter(MongoWriteBehind mongoWriteBehind, TradeOutbox outbox, OutboxRelay outboxRelay,
+            MongoSyncFailureRepository failureRepo, MongoSyncMetrics syncMetrics, MeterRegistry meterRegistry,
+            @Value("${trade.read.mongo.enabled:false}") boolean enabled,
+            @Value("${trade.read.mongo.max-lag-ms:1000}") long maxLagMs,
+            @Value("${trade.read.mongo.check-interval-ms:100}") long checkIntervalMs) {
+        this.mongoWriteBehind = mongoWriteBehind;
+        this.outboxRelay = outboxRelay;
+        this.failureRepo = failureRepo;
+        // Without the active sync path nothing reaches Mongo, however small the lag looks. In outbox mode
+        // only a local relay can see the lag, so an instance whose outbox is relayed elsewhere reads from
+        // SQL; the write-behind is idle in that mode and says nothing about Mongo.
+        this.enabled = enabled && (outbox.isEnabled() ? outboxRelay.isEnabled() : mongoWriteBehind.isEnabled());
+        this.maxLagNanos = TimeUnit.MILLISECONDS.toNanos(maxLagMs);
+        this.checkIntervalNanos = TimeUnit.MILLISECONDS.toNanos(checkIntervalMs);
+        long now = System.nanoTime();
+        this.checkedAt = now - checkIntervalNanos;
+        this.backlogCheckedAt = now - BACKLOG_CHECK_NANOS;
+        this.failedUntil = now;
+        this.mongoReads = meterRegistry.counter("trade.reads", "store", "mongo", "reason", "in-sync");
+        this.laggingReads = meterRegistry.counter("trade.reads", "store", "sql", "reason", "lagging");
+        this.backlogReads = meterRegistry.counter("trade.reads", "store", "sql", "reason", "failure-backlog");
+        this.errorReads = meterRegistry.counter("trade.reads", "store", "sql", "reason", "mongo-error");
+        syncMetrics.registerLag(() -> lagNanos() / 1e6);
+    }
+
+    /**
+     * @return true if the next read should go to Mongo
+     */
+    public boolean useMongo() {
+        if (!enabled) {
+            return false;
+        }
+        if (System.nanoTime() - failedUntil < 0) {
+            errorReads.increment();
+            return false;
+        }
+        if (isBehind()) {
+            if (failureBacklog != 0) {
+                backlogReads.increment();
+            } else {
+                laggingReads.increment();
+            }
+            return false;
+        }
+        mongoReads.increment();
+        return true;
+    }
+
+    /**
+     * Sends reads to SQL for the next check interval, or for a second if that
+     * is longer, after a Mongo read failed.
+     */
+    public void mongoFailed(Exception e) {
+        logger.warn("Mongo read failed, serving trade reads from SQL", e);
+        errorReads.increment();
+        failedUntil = System.nanoTime() + Math.max(checkIntervalNanos, TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private synchronized boolean isBehind() {
+        long now = System.nanoTime();
+        if (now - checkedAt < checkIntervalNanos) {
+            return behind;
+        }
+        checkedAt = now;
+        if (now - backlogCheckedAt >= BACKLOG_CHECK_NANOS) {
+            backlogCheckedAt = now;
+            try {
+                failureBacklog = failureRepo.count();
+            } catch (Exception e) {
+                logger.warn("Failed to check the Mongo sync failure backlog, serving trade reads from SQL", e);
+                failureBacklog = -1;
+            }
+        }
+        behind = failureBacklog != 0 || lagNanos() > maxLagNanos;
+        return behind;
+    }
+
+    private long lagNanos() {
+        return Math.max(mongoWriteBehind.oldestUnsyncedAgeNanos(), outboxRelay.oldestPendingAgeNanos());
+    }
+}
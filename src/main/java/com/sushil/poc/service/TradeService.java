@@ -1,20 +1,37 @@
 package com.sushil.poc.service;
 
+import com.sushil.poc.cache.TradeCache;
+import com.sushil.poc.cache.TradeIndex;
 import com.sushil.poc.exception.LowerVersionException;
 import com.sushil.poc.exception.MaturityDateException;
+import com.sushil.poc.job.TradeExpiryJob;
+import com.sushil.poc.metrics.TradeMetrics;
 import com.sushil.poc.model.Trade;
+import com.sushil.poc.model.TradeOutboxEvent;
 import com.sushil.poc.repository.mongo.TradeMongoRepository;
+import com.sushil.poc.repository.jpa.TradeJdbcRepository;
 import com.sushil.poc.repository.jpa.TradeRepository;
-import com.sushil.poc.repository.jpa.MongoSyncFailureRepository;
-import com.sushil.poc.model.MongoSyncFailure;
-import java.time.LocalDateTime;
-import org.springframework.scheduling.annotation.Async;
+import com.sushil.poc.repository.jpa.TradeVersion;
+import com.sushil.poc.sync.MongoWriteBehind;
+import com.sushil.poc.sync.TradeOutbox;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import java.util.Optional;
@@ -25,21 +42,177 @@ import org.slf4j.LoggerFactory;
 public class TradeService {
     private final TradeRepository repo;
     private final TradeMongoRepository mongoRepo;
-    private final MongoSyncFailureRepository mongoSyncFailureRepo;
+    private final TradeJdbcRepository jdbcRepo;
+    private final MongoWriteBehind mongoWriteBehind;
+    private final TradeOutbox tradeOutbox;
+    private final TradeCache tradeCache;
+    private final TradeIndex tradeIndex;
+    private final TradeLocks tradeLocks;
+    private final TradeReadRouter readRouter;
+    private final TradeExpiryJob tradeExpiryJob;
+    private final TradeMetrics tradeMetrics;
+    private static final int VERSION_LOOKUP_CHUNK = 1000;
     private static final Logger logger = LoggerFactory.getLogger(TradeService.class);
 
     @PersistenceContext
     private EntityManager entityManager;
 
-    public TradeService(TradeRepository repo, TradeMongoRepository mongoRepo,
-            MongoSyncFailureRepository mongoSyncFailureRepo) {
+    public TradeService(TradeRepository repo, TradeJdbcRepository jdbcRepo, TradeMongoRepository mongoRepo,
+            MongoWriteBehind mongoWriteBehind, TradeOutbox tradeOutbox, TradeCache tradeCache,
+            TradeIndex tradeIndex, TradeExpiryJob tradeExpiryJob, TradeMetrics tradeMetrics, TradeLocks tradeLocks,
+            TradeReadRouter readRouter) {
         this.repo = repo;
+        this.jdbcRepo = jdbcRepo;
         this.mongoRepo = mongoRepo;
-        this.mongoSyncFailureRepo = mongoSyncFailureRepo;
+        this.mongoWriteBehind = mongoWriteBehind;
+        this.tradeOutbox = tradeOutbox;
+        this.tradeCache = tradeCache;
+        this.tradeIndex = tradeIndex;
+        this.tradeExpiryJob = tradeExpiryJob;
+        this.tradeMetrics = tradeMetrics;
+        this.tradeLocks = tradeLocks;
+        this.readRouter = readRouter;
     }
 
     @Transactional
     public Trade acceptTrade(Trade incoming) {
+        long start = System.nanoTime();
+        TradeOutcome outcome = TradeOutcome.FAILED;
+        try {
+            Trade saved = applyTrade(incoming);
+            outcome = TradeOutcome.ACCEPTED;
+            return saved;
+        } catch (MaturityDateException e) {
+            outcome = TradeOutcome.MATURITY_REJECTED;
+            throw e;
+        } catch (LowerVersionException e) {
+            outcome = TradeOutcome.LOWER_VERSION;
+            throw e;
+        } finally {
+            tradeMetrics.recordAccept(outcome, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Accepts a batch of trades in a single transaction, using one set-based
+     * lookup of the latest versions and JDBC batch writes. Trades are applied
+     * in list order, so a later version of a tradeId in the same batch
+     * supersedes an earlier one. Business rule violations are reported per
+     * trade and do not roll back the rest of the batch; any other failure rolls
+     * back the whole batch. All tradeIds in the batch stay locked until it
+     * commits.
+     *
+     * @param trades trades to accept, applied in order
+     * @return outcome for each trade, in the same order as the input
+     */
+    @Transactional
+    public List<TradeOutcome> acceptTrades(List<Trade> trades) {
+        long start = System.nanoTime();
+        timeCommit(TradeMetrics.Path.BATCH);
+        LocalDate today = LocalDate.now();
+        Set<String> tradeIds = new HashSet<>();
+        for (Trade trade : trades) {
+            if (trade.getTradeId() != null) {
+                tradeIds.add(trade.getTradeId());
+            }
+        }
+        tradeLocks.lockAllUntilCompletion(tradeIds, TradeMetrics.Path.BATCH);
+        long lookupStart = System.nanoTime();
+        Map<String, VersionState> latest = loadLatestVersions(tradeIds);
+        tradeMetrics.recordStep(TradeMetrics.Path.BATCH, TradeMetrics.Step.VERSION_LOOKUP,
+                System.nanoTime() - lookupStart);
+
+        List<TradeOutcome> outcomes = new ArrayList<>(trades.size());
+        // Keyed by tradeId:version so a repeated version within the batch replaces the earlier row
+        Map<String, Trade> inserts = new LinkedHashMap<>();
+        List<Trade> updates = new ArrayList<>();
+        for (Trade incoming : trades) {
+            if (incoming.getTradeId() == null) {
+                logger.warn("Rejected trade without tradeId: {}", incoming);
+                outcomes.add(TradeOutcome.FAILED);
+                continue;
+            }
+            if (incoming.getMaturityDate() == null || incoming.getMaturityDate().isBefore(today)) {
+                logger.warn("Rejected trade {} v{}: maturity date must be today or in the future",
+                        incoming.getTradeId(), incoming.getVersion());
+                outcomes.add(TradeOutcome.MATURITY_REJECTED);
+                continue;
+            }
+            VersionState current = latest.get(incoming.getTradeId());
+            if (current != null && incoming.getVersion() < current.version) {
+                logger.warn("Rejected trade {} v{}: version too low", incoming.getTradeId(), incoming.getVersion());
+                outcomes.add(TradeOutcome.LOWER_VERSION);
+                continue;
+            }
+            if (incoming.getCreatedDate() == null) {
+                incoming.setCreatedDate(today);
+            }
+            incoming.setExpired(false);
+            if (current != null && incoming.getVersion() == current.version && current.id != null) {
+                incoming.setId(current.id);
+                updates.add(incoming);
+            } else {
+                incoming.setId(null);
+                inserts.put(incoming.getTradeId() + ':' + incoming.getVersion(), incoming);
+                latest.put(incoming.getTradeId(), new VersionState(null, incoming.getVersion()));
+            }
+            outcomes.add(TradeOutcome.ACCEPTED);
+        }
+
+        // JDBC writes bypass the persistence context: push pending JPA changes first and
+        // clear it afterwards so later loads in this transaction see the new state
+        long writeStart = System.nanoTime();
+        entityManager.flush();
+        List<Trade> toInsert = new ArrayList<>(inserts.values());
+        jdbcRepo.batchInsert(toInsert);
+        for (Trade missed : jdbcRepo.batchUpdate(updates)) {
+            logger.warn("Trade {} v{} row {} no longer exists, writing it again", missed.getTradeId(),
+                    missed.getVersion(), missed.getId());
+            jdbcRepo.upsert(missed);
+        }
+        entityManager.clear();
+        tradeMetrics.recordStep(TradeMetrics.Path.BATCH, TradeMetrics.Step.SQL_WRITE, System.nanoTime() - writeStart);
+        logger.info("Accepted batch of {} trades: {} inserted, {} updated", trades.size(), toInsert.size(),
+                updates.size());
+
+        for (Trade trade : toInsert) {
+            recordWriteAfterCommit(trade);
+        }
+        for (Trade trade : updates) {
+            recordWriteAfterCommit(trade);
+        }
+        List<Trade> written = new ArrayList<>(toInsert.size() + updates.size());
+        written.addAll(toInsert);
+        written.addAll(updates);
+        saveToMongoAsync(written, TradeMetrics.Path.BATCH);
+        tradeMetrics.recordBatch(System.nanoTime() - start);
+        return outcomes;
+    }
+
+    private Map<String, VersionState> loadLatestVersions(Set<String> tradeIds) {
+        Map<String, VersionState> latest = new HashMap<>();
+        List<String> ids = new ArrayList<>(tradeIds.size());
+        for (String tradeId : tradeIds) {
+            TradeCache.CachedVersion cached = lookupLatest(tradeId);
+            if (cached == TradeIndex.NOT_FOUND) {
+                continue;
+            }
+            if (cached != null) {
+                latest.put(tradeId, new VersionState(cached.getId(), cached.getVersion()));
+            } else {
+                ids.add(tradeId);
+            }
+        }
+        for (int from = 0; from < ids.size(); from += VERSION_LOOKUP_CHUNK) {
+            List<String> chunk = ids.subList(from, Math.min(ids.size(), from + VERSION_LOOKUP_CHUNK));
+            for (TradeVersion row : repo.findLatestVersions(chunk)) {
+                latest.put(row.getTradeId(), new VersionState(row.getId(), row.getVersion()));
+            }
+        }
+        return latest;
+    }
+
+    private Trade applyTrade(Trade incoming) {
         logger.info("Accepting trade: {}", incoming);
 
         // Check for maturity date validation - reject if maturity date is before today
@@ -47,15 +220,15 @@ public class TradeService {
             throw new MaturityDateException("Maturity date must be today or in the future");
         }
 
-        Optional<Trade> existingOpt = repo.findTopByTradeIdOrderByVersionDesc(incoming.getTradeId());
-        if (existingOpt.isPresent()) {
-            Trade existing = existingOpt.get();
-            if (incoming.getVersion() < existing.getVersion()) {
-                throw new LowerVersionException("Version too low");
-            }
-            if (incoming.getVersion() == existing.getVersion()) {
-                incoming.setId(existing.getId());
-            }
+        timeCommit(TradeMetrics.Path.SINGLE);
+        // Held until commit, so a concurrent write to the same trade sees this one's version
+        tradeLocks.lockUntilCompletion(incoming.getTradeId(), TradeMetrics.Path.SINGLE);
+        long lookupStart = System.nanoTime();
+        VersionState existing = findLatestVersion(incoming.getTradeId());
+        tradeMetrics.recordStep(TradeMetrics.Path.SINGLE, TradeMetrics.Step.VERSION_LOOKUP,
+                System.nanoTime() - lookupStart);
+        if (existing != null && incoming.getVersion() < existing.version) {
+            throw new LowerVersionException("Version too low");
         }
 
         if (incoming.getCreatedDate() == null) {
@@ -63,99 +236,257 @@ public class TradeService {
         }
         incoming.setExpired(false);
 
-        Trade saved = repo.save(incoming);
+        // Insert or replace by the unique (tradeId, version) key in one statement; the row id
+        // comes back from the database, so any id the caller set is ignored. As with the batch
+        // path, the persistence context is flushed before and cleared after the JDBC write.
+        long writeStart = System.nanoTime();
+        entityManager.flush();
+        jdbcRepo.upsert(incoming);
+        entityManager.clear();
+        tradeMetrics.recordStep(TradeMetrics.Path.SINGLE, TradeMetrics.Step.SQL_WRITE, System.nanoTime() - writeStart);
+        Trade saved = incoming;
         logger.info("Trade saved to SQL: {}", saved);
 
-        saveToMongoAsync(saved); // Non-blocking MongoDB write
+        recordWriteAfterCommit(saved);
+        saveToMongoAsync(List.of(saved), TradeMetrics.Path.SINGLE); // Non-blocking MongoDB write via write-behind
         return saved;
     }
 
-    @Async
-    public void saveToMongoAsync(Trade trade) {
-        int attempts = 0;
-        Exception lastException = null;
-        while (attempts < 3) {
-            try {
-                mongoRepo.save(trade);
-                logger.info("Trade saved to MongoDB: {}", trade);
-                return;
-            } catch (Exception e) {
-                attempts++;
-                lastException = e;
-                logger.warn("Attempt {} failed to save trade to MongoDB: {}", attempts, trade, e);
-                try {
-                    Thread.sleep(500);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
+    /**
+     * Latest version of a trade, from the index or the cache when possible and
+     * from SQL otherwise.
+     */
+    private VersionState findLatestVersion(String tradeId) {
+        TradeCache.CachedVersion cached = lookupLatest(tradeId);
+        if (cached == TradeIndex.NOT_FOUND) {
+            return null;
+        }
+        if (cached != null) {
+            return new VersionState(cached.getId(), cached.getVersion());
+        }
+        Optional<Trade> existing = repo.findTopByTradeIdOrderByVersionDesc(tradeId);
+        if (existing.isEmpty()) {
+            return null;
+        }
+        Trade latest = existing.get();
+        cacheLatestAfterCommit(latest.getTradeId(), latest.getVersion(), latest.getId());
+        return new VersionState(latest.getId(), latest.getVersion());
+    }
+
+    /**
+     * @return latest version known to the trade index, or failing that the
+     *         cache; {@link TradeIndex#NOT_FOUND} for a new trade; null if
+     *         SQL must be asked
+     */
+    private TradeCache.CachedVersion lookupLatest(String tradeId) {
+        TradeCache.CachedVersion indexed = tradeIndex.getLatest(tradeId);
+        return indexed != null ? indexed : tradeCache.getLatest(tradeId);
+    }
+
+    // Only committed state may reach the cache, otherwise a rollback would leave phantom versions behind
+    private void cacheLatestAfterCommit(String tradeId, int version, Long id) {
+        afterCommit(() -> tradeCache.putLatest(tradeId, version, id));
+    }
+
+    private void recordWriteAfterCommit(Trade trade) {
+        String tradeId = trade.getTradeId();
+        int version = trade.getVersion();
+        Long id = trade.getId();
+        LocalDate maturityDate = trade.getMaturityDate();
+        afterCommit(() -> {
+            tradeCache.putLatest(tradeId, version, id);
+            tradeIndex.put(tradeId, version, id, maturityDate);
+        });
+    }
+
+    /**
+     * Queues the trades for MongoDB without waiting on Mongo. With the outbox,
+     * a change row is written inside the surrounding transaction, so it commits
+     * or rolls back with the trades; otherwise the trades are handed to the
+     * write-behind stage once the transaction has committed. Either hand-off is
+     * timed as the {@code mongo-handoff} step.
+     */
+    private void saveToMongoAsync(List<Trade> trades, TradeMetrics.Path path) {
+        if (trades.isEmpty()) {
+            return;
+        }
+        if (tradeOutbox.isEnabled()) {
+            long start = System.nanoTime();
+            List<String> tradeIds = new ArrayList<>(trades.size());
+            for (Trade trade : trades) {
+                tradeIds.add(trade.getTradeId());
             }
+            tradeOutbox.record(TradeOutboxEvent.ChangeType.UPSERT, tradeIds);
+            tradeMetrics.recordStep(path, TradeMetrics.Step.MONGO_HANDOFF, System.nanoTime() - start);
+            return;
         }
-        // All attempts failed, log to SQL table
-        if (lastException != null) {
-            String reason = lastException.getMessage();
-            MongoSyncFailure failure = new MongoSyncFailure(trade.getTradeId(), trade.getVersion(), LocalDateTime.now(),
-                    reason);
-            mongoSyncFailureRepo.save(failure);
-            logger.error("Failed to sync trade to MongoDB after 3 attempts. Logged to mongo_sync_failures: {}",
-                    failure);
+        afterCommit(() -> {
+            long start = System.nanoTime();
+            for (Trade trade : trades) {
+                mongoWriteBehind.enqueue(trade);
+            }
+            tradeMetrics.recordStep(path, TradeMetrics.Step.MONGO_HANDOFF, System.nanoTime() - start);
+        });
+    }
+
+    /**
+     * Records how long the surrounding transaction takes to commit, from the
+     * start of its commit to the end, as the {@code commit} step.
+     */
+    private void timeCommit(TradeMetrics.Path path) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long commitStart;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commitStart = System.nanoTime();
+            }
+
+            @Override
+            public void afterCommit() {
+                tradeMetrics.recordStep(path, TradeMetrics.Step.COMMIT, System.nanoTime() - commitStart);
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
+    /**
+     * All versions of a trade, from the cache, the Mongo read model when it is
+     * in sync (see {@link TradeReadRouter}) or SQL.
+     */
     public List<Trade> getTradesById(String tradeId) {
-        return repo.findByTradeId(tradeId);
+        List<Trade> cached = tradeCache.getTrades(tradeId);
+        if (cached != null) {
+            return cached;
+        }
+        if (readRouter.useMongo()) {
+            try {
+                // Not cached: the read model may trail writes the cache already knows about
+                return mongoRepo.findByTradeId(tradeId);
+            } catch (Exception e) {
+                readRouter.mongoFailed(e);
+            }
+        }
+        long stamp = tradeCache.stamp();
+        List<Trade> trades = repo.findByTradeId(tradeId);
+        tradeCache.putTrades(tradeId, trades, stamp);
+        return trades;
     }
 
     public List<Trade> getAllTrades(int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
+        if (readRouter.useMongo()) {
+            try {
+                return mongoRepo.findAll(pageable).getContent();
+            } catch (Exception e) {
+                readRouter.mongoFailed(e);
+            }
+        }
         return repo.findAll(pageable).getContent();
     }
 
+    /**
+     * Keyset pagination in id order. Unlike {@link #getAllTrades(int, int)} the
+     * cost does not grow with the page depth and no count query is issued.
+     *
+     * @param cursor token from {@link TradeCursor#encode(long)}, or blank for the first page
+     * @param size   maximum number of trades to return
+     * @return the next trades after the cursor
+     */
+    public List<Trade> getTradesAfter(String cursor, int size) {
+        Long afterId = TradeCursor.decode(cursor);
+        if (readRouter.useMongo()) {
+            try {
+                return mongoRepo.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(size));
+            } catch (Exception e) {
+                readRouter.mongoFailed(e);
+            }
+        }
+        return repo.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(size));
+    }
+
+    /**
+     * Streams every trade, in id order, to the given consumer in constant
+     * memory: rows are fetched in chunks and each entity is detached once
+     * consumed.
+     *
+     * @param consumer receives each trade; must not keep references to it
+     * @return number of trades streamed
+     */
+    @Transactional(readOnly = true)
+    public long exportTrades(Consumer<Trade> consumer) {
+        long count = 0;
+        try (Stream<Trade> trades = repo.streamAll()) {
+            Iterator<Trade> it = trades.iterator();
+            while (it.hasNext()) {
+                Trade trade = it.next();
+                consumer.accept(trade);
+                entityManager.detach(trade);
+                count++;
+            }
+        }
+        return count;
+    }
+
     @Transactional
     public int deleteTradesById(String tradeId) {
+        tradeLocks.lockUntilCompletion(tradeId, TradeMetrics.Path.DELETE);
         List<Trade> toDelete = repo.findByTradeId(tradeId);
         int count = toDelete.size();
         repo.deleteAll(toDelete);
+        afterCommit(() -> {
+            tradeCache.invalidate(tradeId);
+            tradeIndex.remove(tradeId);
+        });
 
         // Also delete from MongoDB
-        try {
-            mongoRepo.deleteAll(toDelete);
-        } catch (Exception e) {
-            logger.warn("Failed to delete trades from MongoDB for tradeId: {}", tradeId, e);
+        if (tradeOutbox.isEnabled()) {
+            if (count > 0) {
+                tradeOutbox.record(TradeOutboxEvent.ChangeType.DELETE, List.of(tradeId));
+            }
+            return count;
         }
-
+        // After commit, so a rollback leaves Mongo alone; the write-behind also drops buffered writes of the trade
+        List<Integer> versions = new ArrayList<>(count);
+        for (Trade trade : toDelete) {
+            versions.add(trade.getVersion());
+        }
+        afterCommit(() -> mongoWriteBehind.delete(tradeId, versions));
         return count;
     }
 
-    @Transactional
+    /**
+     * Runs the trade expiry job now.
+     *
+     * @return number of trades marked as expired, 0 if a run was already in progress
+     */
     public int markExpiredTrades() {
-        LocalDate today = LocalDate.now();
-
-        // Use the bulk update method for better performance
-        int updatedCount = repo.markTradesAsExpired(today);
-
-        // Clear JPA persistence context to ensure subsequent loads reflect updated
-        // state
-        if (entityManager != null) {
-            entityManager.clear();
-        }
+        TradeExpiryJob.ExpiryResult result = tradeExpiryJob.run();
+        return result == null ? 0 : result.getExpired();
+    }
 
-        if (updatedCount > 0) {
-            logger.info("Marked {} trades as expired", updatedCount);
+    private static final class VersionState {
+        private final Long id;
+        private final int version;
 
-            // Also update MongoDB (this could be optimized for bulk operations)
-            List<Trade> expiredTrades = repo.findByMaturityDateBeforeAndExpiredFalse(today);
-            for (Trade trade : expiredTrades) {
-                try {
-                    trade.setExpired(true);
-                    mongoRepo.save(trade);
-                } catch (Exception e) {
-                    logger.warn("Failed to update trade in MongoDB: {}", trade.getTradeId(), e);
-                }
-            }
+        VersionState(Long id, int version) {
+            this.id = id;
+            this.version = version;
         }
-
-        return updatedCount;
     }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,30 @@
+package com.sushil.poc.sync;
+
+/**
+ * How committed trade changes reach the MongoDB read model. Selected by
+ * {@code mongo.sync.mode}.
+ */
+public enum MongoSyncMode {
+    /**
+     * Changes are recorded in {@code trade_outbox} in the writing transaction
+     * and applied by the {@link OutboxRelay}.
+     */
+    OUTBOX,
+    /**
+     * Committed trades are handed to the in-memory {@link MongoWriteBehind}
+     * buffer; failures go to {@code mongo_sync_failures}.
+     */
+    WRITE_BEHIND;
+
+    /**
+     * @param name {@code outbox} or {@code write-behind}, case-insensitive
+     */
+    public static MongoSyncMode fromName(String name) {
+        for (MongoSyncMode mode : values()) {
+            if (mode.name().replace('_', '-').equalsIgnoreCase(name)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown mongo.sync.mode: " + name);
+    }
+}
@@ -0,0 +1,215 @@
+package com.sushil.poc.sync;
+
+import com.sushil.poc.metrics.MongoSyncMetrics;
+import com.sushil.poc.model.MongoSyncFailure;
+import com.sushil.poc.model.Trade;
+import com.sushil.poc.repository.jpa.MongoSyncFailureRepository;
+import com.sushil.poc.repository.jpa.TradeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Replays recorded Mongo sync failures so the MongoDB read model converges
+ * with SQL after an outage.
+ * <p>
+ * Failures are read in batches, the current state of each trade is reloaded
+ * from SQL and the batch is bulk-upserted to Mongo; versions no longer in SQL
+ * are removed from Mongo. Resolved rows are deleted;
+ * rows in a failed batch are rescheduled with exponential backoff and the run
+ * ends there, leaving the rest to the next scheduled run. Replay is
+ * paced to at most {@code mongo.replay.max-trades-per-second} so catching up
+ * after a long outage does not swamp either store.
+ */
+@Component
+public class MongoSyncReconciler {
+    private static final Logger logger = LoggerFactory.getLogger(MongoSyncReconciler.class);
+
+    private final MongoSyncFailureRepository failureRepo;
+    private final TradeRepository tradeRepo;
+    private final MongoTradeWriter writer;
+    private final MongoSyncMetrics metrics;
+    private final int batchSize;
+    private final int maxTradesPerSecond;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public MongoSyncReconciler(MongoSyncFailureRepository failureRepo, TradeRepository tradeRepo,
+            MongoTradeWriter writer, MongoSyncMetrics metrics,
+            @Value("${mongo.replay.batch-size:200}") int batchSize,
+            @Value("${mongo.replay.max-trades-per-second:500}") int maxTradesPerSecond,
+            @Value("${mongo.replay.backoff-ms:30000}") long backoffMs,
+            @Value("${mongo.replay.max-backoff-ms:3600000}") long maxBackoffMs) {
+        this.failureRepo = failureRepo;
+        this.tradeRepo = tradeRepo;
+        this.writer = writer;
+        this.metrics = metrics;
+        this.batchSize = batchSize;
+        this.maxTradesPerSecond = maxTradesPerSecond;
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    @Scheduled(initialDelayString = "${mongo.replay.interval-ms:60000}", fixedDelayString = "${mongo.replay.interval-ms:60000}")
+    public void scheduledReplay() {
+        replay();
+    }
+
+    /**
+     * Replays every failure that is currently due. Only one replay runs at a
+     * time; a call made while another is in progress returns immediately.
+     *
+     * @return summary of the run, or {@code null} if a replay was already running
+     */
+    public ReplayResult replay() {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            return replayDue();
+        } finally {
+            metrics.setReplayBacklog(failureRepo.count());
+            running.set(false);
+        }
+    }
+
+    private ReplayResult replayDue() {
+        int replayed = 0;
+        int rescheduled = 0;
+        long started = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        while (true) {
+            List<MongoSyncFailure> due = failureRepo.findDue(now, PageRequest.of(0, batchSize));
+            if (due.isEmpty()) {
+                break;
+            }
+            long batchStart = System.nanoTime();
+            boolean written = replayBatch(due);
+            metrics.getReplayBatchTimer().record(System.nanoTime() - batchStart, TimeUnit.NANOSECONDS);
+            if (!written) {
+                // Mongo is most likely still down; the next scheduled run retries
+                rescheduled += due.size();
+                break;
+            }
+            replayed += due.size();
+            if (!pace(started, replayed + rescheduled)) {
+                break;
+            }
+        }
+        if (replayed + rescheduled > 0) {
+            logger.info("Mongo replay finished: {} replayed, {} rescheduled", replayed, rescheduled);
+        }
+        return new ReplayResult(replayed, rescheduled, failureRepo.count());
+    }
+
+    /**
+     * @return true if the batch was written to Mongo and its rows deleted
+     */
+    private boolean replayBatch(List<MongoSyncFailure> due) {
+        List<Trade> trades = new ArrayList<>(due.size());
+        Map<String, Set<Integer>> deleted = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        for (MongoSyncFailure failure : due) {
+            if (seen.add(failure.getTradeId() + ':' + failure.getVersion())) {
+                Optional<Trade> trade = tradeRepo.findByTradeIdAndVersion(failure.getTradeId(), failure.getVersion());
+                if (trade.isPresent()) {
+                    trades.add(trade.get());
+                } else {
+                    // Deleted from SQL, e.g. a delete that never reached Mongo: its document must go too
+                    deleted.computeIfAbsent(failure.getTradeId(), k -> new HashSet<>()).add(failure.getVersion());
+                }
+            }
+        }
+        try {
+            writer.deleteVersions(deleted);
+            writer.upsertAll(trades);
+        } catch (Exception e) {
+            logger.warn("Failed to replay {} trades to MongoDB, rescheduling", trades.size(), e);
+            reschedule(due);
+            metrics.incrementReplayFailures(due.size());
+            return false;
+        }
+        List<Long> ids = new ArrayList<>(due.size());
+        for (MongoSyncFailure failure : due) {
+            ids.add(failure.getId());
+        }
+        failureRepo.deleteAllByIdInBatch(ids);
+        metrics.incrementReplayed(trades.size());
+        return true;
+    }
+
+    private void reschedule(List<MongoSyncFailure> due) {
+        LocalDateTime now = LocalDateTime.now();
+        for (MongoSyncFailure failure : due) {
+            int attempts = failure.getAttempts() + 1;
+            long delay = Math.min(maxBackoffMs, backoffMs << Math.min(attempts - 1, 20));
+            failure.setAttempts(attempts);
+            failure.setNextAttemptAt(now.plusNanos(TimeUnit.MILLISECONDS.toNanos(delay)));
+        }
+        failureRepo.saveAll(due);
+    }
+
+    /**
+     * Sleeps long enough to keep the run at or below the configured rate.
+     *
+     * @return false if interrupted
+     */
+    private boolean pace(long startedNanos, int processed) {
+        if (maxTradesPerSecond <= 0) {
+            return true;
+        }
+        long targetNanos = TimeUnit.SECONDS.toNanos(processed) / maxTradesPerSecond;
+        long aheadNanos = targetNanos - (System.nanoTime() - startedNanos);
+        if (aheadNanos <= 0) {
+            return true;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(aheadNanos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Outcome of one replay run.
+     */
+    public static final class ReplayResult {
+        private final int replayed;
+        private final int rescheduled;
+        private final long remaining;
+
+        ReplayResult(int replayed, int rescheduled, long remaining) {
+            this.replayed = replayed;
+            this.rescheduled = rescheduled;
+            this.remaining = remaining;
+        }
+
+        public int getReplayed() {
+            return replayed;
+        }
+
+        public int getRescheduled() {
+            return rescheduled;
+        }
+
+        public long getRemaining() {
+            return remaining;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.sushil.poc.sync;
+
+import com.sushil.poc.model.Trade;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes trades to the MongoDB read model with bulk operations. Every write is
+ * idempotent and keyed by the SQL id, so replaying the same trade twice is
+ * harmless.
+ */
+@Component
+public class MongoTradeWriter implements TradeSink {
+    private final MongoTemplate mongoTemplate;
+
+    public MongoTradeWriter(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Upserts all trades in a single unordered bulk write.
+     *
+     * @param trades trades to write, each with its SQL id set
+     */
+    public void upsertAll(Collection<Trade> trades) {
+        if (trades.isEmpty()) {
+            return;
+        }
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Trade.class);
+        for (Trade trade : trades) {
+            ops.replaceOne(Query.query(Criteria.where("_id").is(trade.getId())), trade,
+                    FindAndReplaceOptions.options().upsert());
+        }
+        ops.execute();
+    }
+
+    /**
+     * Removes the documents of the given trade versions in a single unordered
+     * bulk write. Versions without a document are ignored.
+     *
+     * @param versionsByTradeId versions to remove, per tradeId
+     */
+    public void deleteVersions(Map<String, ? extends Collection<Integer>> versionsByTradeId) {
+        if (versionsByTradeId.isEmpty()) {
+            return;
+        }
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Trade.class);
+        for (Map.Entry<String, ? extends Collection<Integer>> entry : versionsByTradeId.entrySet()) {
+            ops.remove(Query.query(Criteria.where("tradeId").is(entry.getKey()).and("version").in(entry.getValue())));
+        }
+        ops.execute();
+    }
+
+    /**
+     * Replaces the documents of the changed trades with their current SQL rows
+     * in a single unordered bulk write: every row is upserted and documents of
+     * versions no longer in SQL are removed.
+     */
+    @Override
+    public void apply(Collection<String> tradeIds, List<Trade> current) {
+        if (tradeIds.isEmpty()) {
+            return;
+        }
+        Map<String, List<Long>> idsByTrade = new HashMap<>();
+        for (String tradeId : tradeIds) {
+            idsByTrade.put(tradeId, new ArrayList<>());
+        }
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Trade.class);
+        for (Trade trade : current) {
+            ops.replaceOne(Query.query(Criteria.where("_id").is(trade.getId())), trade,
+                    FindAndReplaceOptions.options().upsert());
+            idsByTrade.computeIfAbsent(trade.getTradeId(), k -> new ArrayList<>()).add(trade.getId());
+        }
+        for (Map.Entry<String, List<Long>> entry : idsByTrade.entrySet()) {
+            ops.remove(Query.query(Criteria.where("tradeId").is(entry.getKey()).and("_id").nin(entry.getValue())));
+        }
+        ops.execute();
+    }
+
+    /**
+     * Sets the expired flag on the given trade documents with a single
+     * updateMany. Documents not yet in Mongo are left to the write-behind or
+     * replay, which write the full trade.
+     *
+     * @param ids SQL ids of the expired trades
+     */
+    public void markExpired(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(ids)), Update.update("expired", true),
+                Trade.class);
+    }
+}
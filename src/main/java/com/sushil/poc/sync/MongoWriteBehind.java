@@ -0,0 +1,506 @@
+package com.sushil.poc.sync;
+
+import com.sushil.poc.config.AsyncWorkExecutor;
+import com.sushil.poc.config.FailureRecordingTask;
+import com.sushil.poc.metrics.MongoSyncMetrics;
+import com.sushil.poc.model.MongoSyncFailure;
+import com.sushil.poc.model.Trade;
+import com.sushil.poc.repository.jpa.MongoSyncFailureRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind stage for the MongoDB read model. Committed trades are buffered
+ * here and flushed to Mongo in bulk by a background thread, so a slow or
+ * unavailable Mongo never holds up the SQL write path. The flusher hands each
+ * batch to the {@link AsyncWorkExecutor}, so several bulk writes can be in
+ * flight; a document is never in two of them at once.
+ * <p>
+ * The buffer is bounded and coalesces writes per trade document (tradeId and
+ * version): if a document is replaced again before it is flushed, only the
+ * latest state is written. Failed flushes are retried with exponential backoff;
+ * trades that exhaust their retries, or that arrive while the buffer is full,
+ * are recorded in {@code mongo_sync_failures}, as are batches dropped by a
+ * saturated executor.
+ * <p>
+ * Deleted trades are buffered as a tombstone per tradeId that replaces the
+ * trade's buffered writes. A tombstone is not written while a write of the same
+ * trade is in flight, and writes buffered after it wait until it is done, so a
+ * flush never brings back a deleted document.
+ */
+@Component
+public class MongoWriteBehind {
+    private static final Logger logger = LoggerFactory.getLogger(MongoWriteBehind.class);
+
+    private final MongoTradeWriter writer;
+    private final MongoSyncFailureRepository failureRepo;
+    private final MongoSyncMetrics metrics;
+    private final TransactionTemplate failureTx;
+    private final AsyncWorkExecutor asyncExecutor;
+    private final ScheduledExecutorService flusher;
+    private final boolean enabled;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+
+    // Guarded by this; insertion order gives oldest-first flushing
+    private final Map<String, PendingWrite> pending = new LinkedHashMap<>();
+    // Guarded by this; documents in a batch handed to the async executor and not yet finished,
+    // with the time each was first buffered
+    private final Map<String, Long> inFlight = new HashMap<>();
+    // Guarded by this; in-flight writes and tombstones per tradeId
+    private final Map<String, Integer> inFlightTrades = new HashMap<>();
+    // Guarded by this; tradeIds whose tombstone is in flight
+    private final Set<String> deletesInFlight = new HashSet<>();
+
+    public MongoWriteBehind(MongoTradeWriter writer, MongoSyncFailureRepository failureRepo,
+            MongoSyncMetrics metrics, PlatformTransactionManager transactionManager, AsyncWorkExecutor asyncExecutor,
+            @Value("${mongo.write-behind.enabled:true}") boolean enabled,
+            @Value("${mongo.write-behind.capacity:10000}") int capacity,
+            @Value("${mongo.write-behind.batch-size:500}") int batchSize,
+            @Value("${mongo.write-behind.flush-interval-ms:100}") long flushIntervalMs,
+            @Value("${mongo.write-behind.max-attempts:5}") int maxAttempts,
+            @Value("${mongo.write-behind.backoff-ms:200}") long backoffMs,
+            @Value("${mongo.write-behind.max-backoff-ms:10000}") long maxBackoffMs) {
+        this.writer = writer;
+        this.failureRepo = failureRepo;
+        this.metrics = metrics;
+        // Failures may be recorded from an afterCommit callback, which must not join the finished transaction
+        this.failureTx = new TransactionTemplate(transactionManager);
+        this.failureTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.asyncExecutor = asyncExecutor;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "MongoWriteBehind-Flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        metrics.registerDepth(this::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("Mongo write-behind disabled; trades will not be synced to MongoDB");
+            return;
+        }
+        flusher.scheduleWithFixedDelay(() -> flushSafely(true), flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Buffers a committed trade for the next bulk write. Never blocks on Mongo.
+     *
+     * @param trade committed trade, with its SQL id set
+     */
+    public void enqueue(Trade trade) {
+        if (!enabled) {
+            return;
+        }
+        String key = key(trade.getTradeId(), trade.getVersion());
+        PendingWrite write = PendingWrite.upsert(trade, System.nanoTime());
+        synchronized (this) {
+            PendingWrite existing = pending.get(key);
+            if (existing != null) {
+                existing.trade = trade;
+                return;
+            }
+            if (pending.size() < capacity) {
+                pending.put(key, write);
+                return;
+            }
+        }
+        logger.warn("Mongo write-behind buffer full ({}), recording trade {} v{} as a sync failure", capacity,
+                trade.getTradeId(), trade.getVersion());
+        metrics.incrementOverflow();
+        recordFailures(List.of(write), "Mongo write-behind buffer full");
+    }
+
+    /**
+     * Buffers the removal of a deleted trade's documents, dropping any write of
+     * the trade still buffered. Call once the delete has committed. Never
+     * turned away by a full buffer, since it replaces the trade's writes.
+     *
+     * @param versions versions of the trade that were deleted
+     */
+    public void delete(String tradeId, Collection<Integer> versions) {
+        if (!enabled || versions.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            pending.values().removeIf(write -> !write.isDelete() && write.tradeId.equals(tradeId));
+            PendingWrite tombstone = pending.get(tombstoneKey(tradeId));
+            if (tombstone != null) {
+                tombstone.deletedVersions.addAll(versions);
+            } else {
+                pending.put(tombstoneKey(tradeId), PendingWrite.tombstone(tradeId, versions, System.nanoTime()));
+            }
+        }
+    }
+
+    /**
+     * @return false if trades are not synced to Mongo at all
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return number of trades waiting to be written
+     */
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * @return how long the oldest trade not yet written to Mongo has been
+     *         waiting, including batches being written; 0 if none are
+     */
+    public long oldestUnsyncedAgeNanos() {
+        long now = System.nanoTime();
+        long oldestAge = 0;
+        synchronized (this) {
+            for (PendingWrite write : pending.values()) {
+                oldestAge = Math.max(oldestAge, now - write.enqueuedAtNanos);
+            }
+            for (long enqueuedAt : inFlight.values()) {
+                oldestAge = Math.max(oldestAge, now - enqueuedAt);
+            }
+        }
+        return oldestAge;
+    }
+
+    private void flushSafely(boolean async) {
+        try {
+            while (flush(async) == batchSize) {
+                // A full batch suggests more is waiting; keep going
+            }
+        } catch (Exception e) {
+            logger.error("Unexpected error in Mongo write-behind flusher", e);
+        }
+    }
+
+    /**
+     * Takes one batch of due trades from the buffer and writes it to Mongo.
+     *
+     * @param async hand the write to the async executor rather than run it here
+     * @return number of trades taken from the buffer
+     */
+    private int flush(boolean async) {
+        List<PendingWrite> batch = takeDue(System.currentTimeMillis());
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        FlushTask task = new FlushTask(batch);
+        if (async) {
+            asyncExecutor.execute(task);
+        } else {
+            task.run();
+        }
+        return batch.size();
+    }
+
+    private void write(List<PendingWrite> batch) {
+        List<Trade> trades = new ArrayList<>(batch.size());
+        Map<String, Set<Integer>> deletes = new HashMap<>();
+        for (PendingWrite write : batch) {
+            if (write.isDelete()) {
+                deletes.put(write.tradeId, write.deletedVersions);
+            } else {
+                trades.add(write.trade);
+            }
+        }
+        long start = System.nanoTime();
+        try {
+            writer.deleteVersions(deletes);
+            writer.upsertAll(trades);
+            metrics.getFlushTimer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            metrics.incrementWritten(trades.size());
+            long writtenAt = System.nanoTime();
+            for (PendingWrite write : batch) {
+                metrics.getDelayTimer().record(writtenAt - write.enqueuedAtNanos, TimeUnit.NANOSECONDS);
+            }
+            logger.debug("Flushed {} trades to MongoDB", trades.size());
+        } catch (Exception e) {
+            metrics.getFlushTimer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            metrics.incrementFlushFailures();
+            logger.warn("Failed to flush {} trades to MongoDB", trades.size(), e);
+            retryOrGiveUp(batch, e);
+        }
+    }
+
+    private synchronized List<PendingWrite> takeDue(long now) {
+        List<PendingWrite> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        // Trades with a tombstone left behind: their later writes must wait for it
+        Set<String> blocked = new HashSet<>();
+        Iterator<PendingWrite> it = pending.values().iterator();
+        while (it.hasNext() && batch.size() < batchSize) {
+            PendingWrite write = it.next();
+            boolean due = write.nextAttemptAt <= now && !blocked.contains(write.tradeId)
+                    && !deletesInFlight.contains(write.tradeId) && !inFlight.containsKey(write.key());
+            if (write.isDelete()) {
+                if (!due || inFlightTrades.containsKey(write.tradeId)) {
+                    blocked.add(write.tradeId);
+                    continue;
+                }
+                deletesInFlight.add(write.tradeId);
+            } else if (!due) {
+                continue;
+            }
+            inFlight.put(write.key(), write.enqueuedAtNanos);
+            inFlightTrades.merge(write.tradeId, 1, Integer::sum);
+            batch.add(write);
+            it.remove();
+        }
+        return batch;
+    }
+
+    private synchronized void release(List<PendingWrite> batch) {
+        for (PendingWrite write : batch) {
+            inFlight.remove(write.key());
+            inFlightTrades.computeIfPresent(write.tradeId, (tradeId, count) -> count == 1 ? null : count - 1);
+            if (write.isDelete()) {
+                deletesInFlight.remove(write.tradeId);
+            }
+        }
+        notifyAll();
+    }
+
+    /**
+     * Waits for batches handed to the async executor to finish.
+     *
+     * @return false if some were still running at the deadline
+     */
+    private synchronized boolean awaitInFlight(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!inFlight.isEmpty()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    private void retryOrGiveUp(List<PendingWrite> batch, Exception cause) {
+        long now = System.currentTimeMillis();
+        List<PendingWrite> exhausted = new ArrayList<>();
+        synchronized (this) {
+            for (PendingWrite write : batch) {
+                // The trade was deleted while its write was in flight: the tombstone removes it anyway
+                if (!write.isDelete() && pending.containsKey(tombstoneKey(write.tradeId))) {
+                    continue;
+                }
+                write.attempts++;
+                if (write.attempts >= maxAttempts) {
+                    exhausted.add(write);
+                    continue;
+                }
+                long delay = Math.min(maxBackoffMs, backoffMs << Math.min(write.attempts - 1, 20));
+                write.nextAttemptAt = now + delay;
+                if (write.isDelete()) {
+                    requeueTombstone(write);
+                } else {
+                    // A newer write for the same document supersedes the failed one
+                    pending.putIfAbsent(write.key(), write);
+                }
+            }
+        }
+        if (!exhausted.isEmpty()) {
+            logger.error("Giving up on {} trades after {} attempts, recording in mongo_sync_failures",
+                    exhausted.size(), maxAttempts);
+            metrics.incrementRetriesExhausted(exhausted.size());
+            recordFailures(exhausted, cause.getMessage());
+        }
+    }
+
+    /**
+     * Puts a failed tombstone back ahead of the trade's writes buffered since
+     * it was taken, which belong to a trade created again after the delete.
+     */
+    private void requeueTombstone(PendingWrite tombstone) {
+        List<PendingWrite> later = new ArrayList<>();
+        Iterator<PendingWrite> it = pending.values().iterator();
+        while (it.hasNext()) {
+            PendingWrite write = it.next();
+            if (write.tradeId.equals(tombstone.tradeId)) {
+                if (write.isDelete()) {
+                    tombstone.deletedVersions.addAll(write.deletedVersions);
+                }
+                later.add(write);
+                it.remove();
+            }
+        }
+        pending.put(tombstone.key(), tombstone);
+        for (PendingWrite write : later) {
+            if (!write.isDelete()) {
+                pending.put(write.key(), write);
+            }
+        }
+    }
+
+    // A tombstone is recorded once per deleted version; replay removes versions no longer in SQL
+    private void recordFailures(List<PendingWrite> writes, String reason) {
+        LocalDateTime now = LocalDateTime.now();
+        List<MongoSyncFailure> failures = new ArrayList<>(writes.size());
+        for (PendingWrite write : writes) {
+            if (write.isDelete()) {
+                for (int version : write.deletedVersions) {
+                    failures.add(new MongoSyncFailure(write.tradeId, version, now, truncate(reason)));
+                }
+            } else {
+                failures.add(new MongoSyncFailure(write.tradeId, write.trade.getVersion(), now, truncate(reason)));
+            }
+        }
+        try {
+            failureTx.executeWithoutResult(status -> failureRepo.saveAll(failures));
+        } catch (Exception e) {
+            logger.error("Failed to record {} Mongo sync failures", failures.size(), e);
+        }
+    }
+
+    private static String truncate(String reason) {
+        if (reason == null) {
+            return "unknown";
+        }
+        return reason.length() > 1024 ? reason.substring(0, 1024) : reason;
+    }
+
+    private static String key(String tradeId, int version) {
+        return tradeId + ':' + version;
+    }
+
+    // Cannot clash with key(): a version is always numeric
+    private static String tombstoneKey(String tradeId) {
+        return tradeId + ":deleted";
+    }
+
+    /**
+     * Stops the flusher thread and flushes whatever is due one last time. Trades
+     * still waiting on a retry are recorded as sync failures so they are not lost.
+     */
+    @PreDestroy
+    public void stop() {
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("Mongo write-behind flusher did not terminate in time");
+            }
+            if (!awaitInFlight(TimeUnit.SECONDS.toMillis(5))) {
+                logger.warn("Mongo write-behind batches still running at shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (enabled) {
+            flushSafely(false);
+        }
+        List<PendingWrite> remaining;
+        synchronized (this) {
+            remaining = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        if (!remaining.isEmpty()) {
+            logger.warn("{} trades still buffered for MongoDB at shutdown, recording as sync failures",
+                    remaining.size());
+            recordFailures(remaining, "Not flushed before shutdown");
+        }
+    }
+
+    /**
+     * One bulk write. Dropped by a saturated executor, its trades go straight
+     * to {@code mongo_sync_failures}.
+     */
+    private final class FlushTask implements FailureRecordingTask {
+        private final List<PendingWrite> batch;
+
+        FlushTask(List<PendingWrite> batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void run() {
+            try {
+                write(batch);
+            } finally {
+                release(batch);
+            }
+        }
+
+        @Override
+        public void recordFailure(String reason) {
+            release(batch);
+            logger.warn("{}, recording {} trades as Mongo sync failures", reason, batch.size());
+            metrics.incrementDropped(batch.size());
+            recordFailures(batch, reason);
+        }
+    }
+
+    /**
+     * A buffered upsert of one trade document, or a tombstone removing the
+     * deleted versions of a trade.
+     */
+    private static final class PendingWrite {
+        private final String tradeId;
+        // Null for a tombstone
+        private Trade trade;
+        // Null for an upsert
+        private final Set<Integer> deletedVersions;
+        // When the document was first buffered; coalesced writes keep the oldest time
+        private final long enqueuedAtNanos;
+        private int attempts;
+        private long nextAttemptAt;
+
+        private PendingWrite(String tradeId, Trade trade, Set<Integer> deletedVersions, long enqueuedAtNanos) {
+            this.tradeId = tradeId;
+            this.trade = trade;
+            this.deletedVersions = deletedVersions;
+            this.enqueuedAtNanos = enqueuedAtNanos;
+        }
+
+        static PendingWrite upsert(Trade trade, long enqueuedAtNanos) {
+            return new PendingWrite(trade.getTradeId(), trade, null, enqueuedAtNanos);
+        }
+
+        static PendingWrite tombstone(String tradeId, Collection<Integer> versions, long enqueuedAtNanos) {
+            return new PendingWrite(tradeId, null, new HashSet<>(versions), enqueuedAtNanos);
+        }
+
+        boolean isDelete() {
+            return trade == null;
+        }
+
+        String key() {
+            return isDelete() ? tombstoneKey(tradeId) : MongoWriteBehind.key(tradeId, trade.getVersion());
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.sushil.poc.sync;
+
+import com.sushil.poc.metrics.MongoSyncMetrics;
+import com.sushil.poc.model.Trade;
+import com.sushil.poc.model.TradeOutboxEvent;
+import com.sushil.poc.repository.jpa.TradeOutboxRepository;
+import com.sushil.poc.repository.jpa.TradeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies the changes recorded in {@code trade_outbox} to every
+ * {@link TradeSink}, oldest first, in batches.
+ * <p>
+ * For each batch the current SQL rows of the changed trades are loaded and
+ * handed to the sinks, which replace what they hold for those trades; the
+ * outbox rows are deleted afterwards. Since the sinks receive current state
+ * rather than the change itself, applying a change twice, or after a later
+ * change to the same trade, is harmless, and a change committed out of id
+ * order is simply picked up by a later poll. A failed batch stays in the
+ * outbox and is retried with exponential backoff, so the read model converges
+ * once Mongo is back. Run the relay on one instance only
+ * ({@code mongo.outbox.relay.enabled}).
+ */
+@Component
+public class OutboxRelay {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final TradeOutbox outbox;
+    private final TradeOutboxRepository outboxRepo;
+    private final TradeRepository tradeRepo;
+    private final List<TradeSink> sinks;
+    private final MongoSyncMetrics metrics;
+    private final ScheduledExecutorService poller;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+
+    // Poller thread only
+    private int failures;
+    private long nextAttemptAt;
+    // Wall-clock time the oldest change seen by the last poll was recorded; 0 if it found none
+    private volatile long oldestPendingAt;
+
+    public OutboxRelay(TradeOutbox outbox, TradeOutboxRepository outboxRepo, TradeRepository tradeRepo,
+            List<TradeSink> sinks, MongoSyncMetrics metrics,
+            @Value("${mongo.outbox.relay.enabled:true}") boolean enabled,
+            @Value("${mongo.outbox.batch-size:500}") int batchSize,
+            @Value("${mongo.outbox.poll-interval-ms:100}") long pollIntervalMs,
+            @Value("${mongo.outbox.backoff-ms:200}") long backoffMs,
+            @Value("${mongo.outbox.max-backoff-ms:30000}") long maxBackoffMs) {
+        this.outbox = outbox;
+        this.outboxRepo = outboxRepo;
+        this.tradeRepo = tradeRepo;
+        this.sinks = sinks;
+        this.metrics = metrics;
+        this.enabled = enabled && outbox.isEnabled();
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "OutboxRelay");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        poller.scheduleWithFixedDelay(this::pollSafely, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return true if this instance relays outbox changes
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return how long the oldest change not yet relayed has been waiting, as
+     *         of the last poll; 0 if that poll found none
+     */
+    public long oldestPendingAgeNanos() {
+        long oldest = oldestPendingAt;
+        return oldest == 0 ? 0 : TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - oldest));
+    }
+
+    private void pollSafely() {
+        if (System.currentTimeMillis() < nextAttemptAt) {
+            return;
+        }
+        try {
+            relay();
+            failures = 0;
+        } catch (Exception e) {
+            failures++;
+            long delay = Math.min(maxBackoffMs, backoffMs << Math.min(failures - 1, 20));
+            nextAttemptAt = System.currentTimeMillis() + delay;
+            metrics.incrementOutboxFailures();
+            logger.warn("Failed to relay trade outbox changes (attempt {}), retrying in {} ms", failures, delay, e);
+        }
+    }
+
+    /**
+     * Relays batches until the outbox is empty.
+     *
+     * @return number of outbox rows relayed
+     */
+    public int relay() {
+        int relayed = 0;
+        while (true) {
+            List<TradeOutboxEvent> batch = outboxRepo.findByOrderByIdAsc(Limit.of(batchSize));
+            if (batch.isEmpty()) {
+                oldestPendingAt = 0;
+                return relayed;
+            }
+            oldestPendingAt = Timestamp.valueOf(batch.get(0).getCreatedAt()).getTime();
+            long start = System.nanoTime();
+            Set<String> tradeIds = new LinkedHashSet<>();
+            List<Long> ids = new ArrayList<>(batch.size());
+            for (TradeOutboxEvent event : batch) {
+                tradeIds.add(event.getTradeId());
+                ids.add(event.getId());
+            }
+            List<Trade> current = tradeRepo.findByTradeIdIn(tradeIds);
+            for (TradeSink sink : sinks) {
+                sink.apply(tradeIds, current);
+            }
+            outboxRepo.deleteAllByIdInBatch(ids);
+            metrics.getOutboxBatchTimer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            metrics.incrementOutboxRelayed(batch.size());
+            relayed += batch.size();
+            logger.debug("Relayed {} outbox changes for {} trades", batch.size(), tradeIds.size());
+            if (batch.size() < batchSize) {
+                oldestPendingAt = 0;
+                return relayed;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        poller.shutdown();
+        try {
+            if (!poller.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("Outbox relay did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.sushil.poc.sync;
+
+import com.sushil.poc.model.TradeOutboxEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Writes trade changes to {@code trade_outbox}. Must be called inside the
+ * transaction that makes the change, so the change and its outbox row commit
+ * or roll back together. Rows are written with one JDBC batch, like the trade
+ * rows themselves.
+ */
+@Component
+public class TradeOutbox {
+    private static final String INSERT_SQL = "INSERT INTO trade_outbox (trade_id, change_type, created_at) "
+            + "VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MongoSyncMode mode;
+
+    public TradeOutbox(JdbcTemplate jdbcTemplate, @Value("${mongo.sync.mode:outbox}") String mode) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mode = MongoSyncMode.fromName(mode);
+    }
+
+    /**
+     * @return true if changes reach Mongo through the outbox rather than the
+     *         write-behind
+     */
+    public boolean isEnabled() {
+        return mode == MongoSyncMode.OUTBOX;
+    }
+
+    /**
+     * Records one change per distinct tradeId.
+     */
+    public void record(TradeOutboxEvent.ChangeType type, Collection<String> tradeIds) {
+        if (tradeIds.isEmpty()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(tradeIds));
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setString(1, ids.get(i));
+                ps.setString(2, type.name());
+                ps.setTimestamp(3, now);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return ids.size();
+            }
+        });
+    }
+}
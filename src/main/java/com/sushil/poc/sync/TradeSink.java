@@ -0,0 +1,22 @@
+package com.sushil.poc.sync;
+
+import com.sushil.poc.model.Trade;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Read model fed by the {@link OutboxRelay}. Every bean implementing this
+ * receives each relayed batch.
+ */
+public interface TradeSink {
+
+    /**
+     * Makes the sink hold exactly the given versions of the changed trades.
+     * Must be idempotent: a batch is applied again if any sink fails it.
+     *
+     * @param tradeIds trades changed since the last batch
+     * @param current  current SQL rows of those trades; a tradeId without rows
+     *                 was deleted
+     */
+    void apply(Collection<String> tradeIds, List<Trade> current);
+}
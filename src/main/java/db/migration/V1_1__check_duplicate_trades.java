@@ -0,0 +1,31 @@
+package db.migration;
+
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Stops the migration before V2 builds the unique (trade_id, version) index if
+ * older databases still hold duplicate rows from concurrent writers. Which row
+ * to keep is an operator decision, so they are not removed here: review and run
+ * db/scripts/dedup_trades.sql, then migrate again.
+ */
+public class V1_1__check_duplicate_trades extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM (SELECT trade_id, version FROM trades "
+                     + "GROUP BY trade_id, version HAVING COUNT(*) > 1) duplicates")) {
+            rs.next();
+            long duplicates = rs.getLong(1);
+            if (duplicates > 0) {
+                throw new FlywayException(duplicates + " (trade_id, version) pairs have more than one row in trades; "
+                        + "review and run db/scripts/dedup_trades.sql, then migrate again");
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+-- Baseline schema, matching what Hibernate used to generate with ddl-auto=update.
+-- IF NOT EXISTS lets this run against databases created before migrations were introduced.
+-- Kept to SQL understood by both MySQL and H2. Columns added since then belong in later migrations:
+-- IF NOT EXISTS leaves existing tables untouched.
+
+CREATE TABLE IF NOT EXISTS trades (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    trade_id VARCHAR(255) NOT NULL,
+    version INT NOT NULL,
+    counter_party_id VARCHAR(255),
+    book_id VARCHAR(255),
+    maturity_date DATE,
+    created_date DATE,
+    expired BOOLEAN NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS mongo_sync_failures (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    trade_id VARCHAR(255) NOT NULL,
+    version INT NOT NULL,
+    failure_time DATETIME(6) NOT NULL,
+    reason VARCHAR(1024) NOT NULL,
+    PRIMARY KEY (id)
+);
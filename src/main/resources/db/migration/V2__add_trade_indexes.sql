@@ -0,0 +1,15 @@
+-- Duplicate (trade_id, version) rows must be removed first: V1_1 stops the migration if there are any
+
+-- Version lookups (findTopByTradeIdOrderByVersionDesc, findByTradeId, findLatestVersions)
+-- and the native upsert in TradeJdbcRepository, which relies on this key
+CREATE UNIQUE INDEX ux_trades_trade_id_version ON trades (trade_id, version);
+
+-- Expiry: WHERE expired = false AND maturity_date < ?
+CREATE INDEX ix_trades_expired_maturity_date ON trades (expired, maturity_date);
+
+-- Replay backoff state for sync failures; tables created by ddl-auto=update predate it
+ALTER TABLE mongo_sync_failures ADD COLUMN attempts INT NOT NULL DEFAULT 0;
+ALTER TABLE mongo_sync_failures ADD COLUMN next_attempt_at DATETIME(6);
+
+-- Replay of due sync failures: WHERE next_attempt_at IS NULL OR next_attempt_at <= ?
+CREATE INDEX ix_mongo_sync_failures_next_attempt_at ON mongo_sync_failures (next_attempt_at);
@@ -0,0 +1,9 @@
+-- Progress of resumable batch jobs (e.g. trade expiry), one row per job
+CREATE TABLE job_checkpoints (
+    job_name VARCHAR(100) NOT NULL,
+    run_date DATE NOT NULL,
+    last_id BIGINT NOT NULL,
+    completed BOOLEAN NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (job_name)
+);
@@ -0,0 +1,9 @@
+-- Transactional outbox: one row per trade change, written in the same transaction as the change
+-- and removed once the relay has applied the trade's current state to the read model
+CREATE TABLE trade_outbox (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    trade_id VARCHAR(255) NOT NULL,
+    change_type VARCHAR(16) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
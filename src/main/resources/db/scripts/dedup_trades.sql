@@ -0,0 +1,29 @@
+-- Removes duplicate (trade_id, version) rows left by concurrent writers so migration V2
+-- can build its unique index. Not a Flyway migration: review it and run it by hand.
+-- Keeps the most recently inserted row of each pair; every removed row is copied to
+-- trades_dedup_audit first, so it can be inspected or restored.
+
+CREATE TABLE IF NOT EXISTS trades_dedup_audit (
+    id BIGINT NOT NULL,
+    trade_id VARCHAR(255) NOT NULL,
+    version INT NOT NULL,
+    counter_party_id VARCHAR(255),
+    book_id VARCHAR(255),
+    maturity_date DATE,
+    created_date DATE,
+    expired BOOLEAN NOT NULL,
+    removed_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- The derived tables are needed for MySQL, which cannot select from the table it deletes from
+INSERT INTO trades_dedup_audit (id, trade_id, version, counter_party_id, book_id, maturity_date, created_date,
+                                expired, removed_at)
+SELECT id, trade_id, version, counter_party_id, book_id, maturity_date, created_date, expired, CURRENT_TIMESTAMP(6)
+FROM trades
+WHERE id NOT IN (
+    SELECT keep_id FROM (SELECT MAX(id) AS keep_id FROM trades GROUP BY trade_id, version) latest
+);
+
+DELETE FROM trades
+WHERE id IN (SELECT id FROM trades_dedup_audit);
@@ -0,0 +1,70 @@
+package com.sushil.poc;
+
+import com.sushil.poc.config.AsyncWorkExecutor;
+import com.sushil.poc.config.FailureRecordingTask;
+import com.sushil.poc.metrics.AsyncExecutorMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncWorkExecutorTests {
+
+    @Test
+    public void shouldApplySaturationPolicyOnceQueueIsFull() throws InterruptedException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> dropped = new ArrayList<>();
+        AsyncWorkExecutor dropping = executor(registry, "drop-to-failure-table");
+        dropping.execute(() -> await(release));
+        dropping.execute(() -> {
+        });
+        dropping.execute(new FailureRecordingTask() {
+            @Override
+            public void run() {
+                fail("Saturated executor ran the task");
+            }
+
+            @Override
+            public void recordFailure(String reason) {
+                dropped.add(reason);
+            }
+        });
+        assertEquals(List.of("Async executor saturated"), dropped);
+        assertEquals(1.0, registry.get("async.executor.rejected").tag("policy", "drop-to-failure-table").counter().count());
+        assertEquals(1.0, registry.get("async.executor.queued").gauge().value());
+        release.countDown();
+        dropping.stop();
+
+        SimpleMeterRegistry callerRegistry = new SimpleMeterRegistry();
+        CountDownLatch releaseCaller = new CountDownLatch(1);
+        AsyncWorkExecutor callerRuns = executor(callerRegistry, "caller-runs");
+        callerRuns.execute(() -> await(releaseCaller));
+        callerRuns.execute(() -> {
+        });
+        Thread caller = Thread.currentThread();
+        List<Thread> ranOn = new ArrayList<>();
+        callerRuns.execute(() -> ranOn.add(Thread.currentThread()));
+        assertEquals(List.of(caller), ranOn);
+        assertEquals(1.0, callerRegistry.get("async.executor.rejected").tag("policy", "caller-runs").counter().count());
+        releaseCaller.countDown();
+        callerRuns.stop();
+        assertEquals(2.0, callerRegistry.get("async.executor.completed").functionCounter().count());
+    }
+
+    private static AsyncWorkExecutor executor(SimpleMeterRegistry registry, String policy) {
+        return new AsyncWorkExecutor(new AsyncExecutorMetrics(registry), 1, 1, 1, 60000, policy, 5000, false);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.sushil.poc;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.UUID;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlywayMigrationTests {
+
+    // A database created by the old ddl-auto=update, with no migration history, must migrate cleanly
+    @Test
+    public void shouldMigrateSchemaCreatedByDdlAutoUpdate() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE trades (id BIGINT NOT NULL AUTO_INCREMENT, trade_id VARCHAR(255) NOT NULL, "
+                + "version INT NOT NULL, counter_party_id VARCHAR(255), book_id VARCHAR(255), maturity_date DATE, "
+                + "created_date DATE, expired BOOLEAN NOT NULL, PRIMARY KEY (id))");
+        jdbc.execute("CREATE TABLE mongo_sync_failures (id BIGINT NOT NULL AUTO_INCREMENT, "
+                + "trade_id VARCHAR(255) NOT NULL, version INT NOT NULL, failure_time DATETIME(6) NOT NULL, "
+                + "reason VARCHAR(1024) NOT NULL, PRIMARY KEY (id))");
+        jdbc.update("INSERT INTO trades (trade_id, version, expired) VALUES ('T1', 1, false), ('T1', 1, false)");
+        jdbc.update("INSERT INTO mongo_sync_failures (trade_id, version, failure_time, reason) "
+                + "VALUES ('T1', 1, CURRENT_TIMESTAMP, 'timeout')");
+
+        // Same settings as application-template.yml
+        Flyway flyway = Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load();
+        // Duplicates are left for the operator: the migration stops before the unique index
+        FlywayException e = assertThrows(FlywayException.class, flyway::migrate);
+        String reason = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+        assertTrue(reason.contains("db/scripts/dedup_trades.sql"), reason);
+        assertEquals(2, jdbc.queryForObject("SELECT COUNT(*) FROM trades", Integer.class));
+
+        new ResourceDatabasePopulator(new ClassPathResource("db/scripts/dedup_trades.sql")).execute(dataSource);
+        flyway.repair();
+        flyway.migrate();
+
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM trades", Integer.class));
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM trades_dedup_audit", Integer.class));
+        assertEquals(0, jdbc.queryForObject("SELECT attempts FROM mongo_sync_failures", Integer.class));
+        assertNull(jdbc.queryForObject("SELECT next_attempt_at FROM mongo_sync_failures", Object.class));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM trade_outbox", Integer.class));
+    }
+}
@@ -0,0 +1,117 @@
+package com.sushil.poc;
+
+import com.sushil.poc.metrics.QueueMetrics;
+import com.sushil.poc.model.Trade;
+import com.sushil.poc.queue.InMemoryQueue;
+import com.sushil.poc.queue.QueueProperties;
+import com.sushil.poc.queue.TradeWal;
+import com.sushil.poc.service.TradeOutcome;
+import com.sushil.poc.service.TradeService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static com.sushil.poc.TestTrades.trade;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class InMemoryQueueTests {
+
+    @Test
+    public void shouldDrainQueuedTradesOnStopAndRefuseNewOnes() {
+        AtomicInteger accepted = new AtomicInteger();
+        TradeService service = mock(TradeService.class);
+        when(service.acceptTrades(anyList())).thenAnswer(invocation -> {
+            List<Trade> batch = invocation.getArgument(0);
+            Thread.sleep(20);
+            accepted.addAndGet(batch.size());
+            return Collections.nCopies(batch.size(), TradeOutcome.ACCEPTED);
+        });
+        QueueProperties properties = new QueueProperties();
+        properties.setCapacity(100);
+        properties.setConsumers(1);
+        properties.getBatch().setSize(5);
+        properties.getBatch().setMaxWaitMs(0);
+        properties.getShutdown().setDrainTimeoutMs(10000);
+        properties.getShutdown().setDrainThreads(2);
+        QueueMetrics metrics = new QueueMetrics(new SimpleMeterRegistry());
+        InMemoryQueue queue = new InMemoryQueue(service, metrics,
+                new TradeWal(metrics, false, "target/wal-unused", 1 << 20, 10, true), properties, false);
+        queue.start();
+        for (int i = 0; i < 40; i++) {
+            assertTrue(queue.send(trade("D" + i)));
+        }
+
+        queue.stop();
+
+        assertEquals(40, accepted.get());
+        assertEquals(0, queue.size());
+        assertFalse(queue.isRunning());
+        assertFalse(queue.send(trade("late")));
+    }
+
+    // One consumer per lane and a lane per tradeId: every version of a trade is applied in send order
+    @Test
+    public void shouldKeepPerTradeOrderAcrossPartitionedLanes() throws InterruptedException {
+        Map<String, List<Integer>> applied = new ConcurrentHashMap<>();
+        Set<String> consumerThreads = ConcurrentHashMap.newKeySet();
+        TradeService service = mock(TradeService.class);
+        when(service.acceptTrades(anyList())).thenAnswer(invocation -> {
+            List<Trade> batch = invocation.getArgument(0);
+            consumerThreads.add(Thread.currentThread().getName());
+            for (Trade trade : batch) {
+                applied.computeIfAbsent(trade.getTradeId(), id -> Collections.synchronizedList(new ArrayList<>()))
+                        .add(trade.getVersion());
+            }
+            Thread.sleep(1);
+            return Collections.nCopies(batch.size(), TradeOutcome.ACCEPTED);
+        });
+        QueueProperties properties = new QueueProperties();
+        properties.setCapacity(64);
+        properties.setMode("partitioned");
+        properties.setPartitions(4);
+        // Ignored in partitioned mode: each lane keeps a single consumer
+        properties.setConsumers(3);
+        properties.getBatch().setSize(8);
+        properties.getBatch().setMaxWaitMs(1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        QueueMetrics metrics = new QueueMetrics(registry);
+        InMemoryQueue queue = new InMemoryQueue(service, metrics,
+                new TradeWal(metrics, false, "target/wal-unused", 1 << 20, 10, true), properties, false);
+        queue.start();
+        for (int version = 1; version <= 50; version++) {
+            for (int id = 0; id < 20; id++) {
+                Trade trade = trade("P" + id);
+                trade.setVersion(version);
+                assertTrue(queue.send(trade, 5, TimeUnit.SECONDS));
+            }
+        }
+
+        queue.stop();
+
+        assertEquals(20, applied.size());
+        List<Integer> expected = new ArrayList<>();
+        for (int version = 1; version <= 50; version++) {
+            expected.add(version);
+        }
+        for (Map.Entry<String, List<Integer>> entry : applied.entrySet()) {
+            assertEquals(expected, entry.getValue(), "versions of " + entry.getKey());
+        }
+        assertTrue(consumerThreads.size() > 1, "trades were spread over " + consumerThreads);
+        assertTrue(consumerThreads.size() <= 4, "one consumer per lane, got " + consumerThreads);
+        for (int lane = 0; lane < 4; lane++) {
+            assertNotNull(registry.find("queue.lane.size").tag("lane", String.valueOf(lane)).gauge());
+            assertNotNull(registry.find("queue.lane.lag").tag("lane", String.valueOf(lane)).gauge());
+        }
+        assertNull(registry.find("queue.lane.size").tag("lane", "4").gauge());
+    }
+}
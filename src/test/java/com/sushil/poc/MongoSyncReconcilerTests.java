@@ -0,0 +1,70 @@
+package com.sushil.poc;
+
+import com.sushil.poc.model.MongoSyncFailure;
+import com.sushil.poc.repository.jpa.MongoSyncFailureRepository;
+import com.sushil.poc.sync.MongoSyncReconciler;
+import com.sushil.poc.sync.MongoTradeWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = "mongo.replay.batch-size=1")
+@Transactional
+public class MongoSyncReconcilerTests {
+    @Autowired
+    private MongoSyncReconciler reconciler;
+    @Autowired
+    private MongoSyncFailureRepository failureRepo;
+    @MockBean
+    private MongoTradeWriter writer;
+
+    @BeforeEach
+    public void cleanup() {
+        failureRepo.deleteAll();
+    }
+
+    @Test
+    public void shouldResolveFailuresForDeletedTrades() {
+        failureRepo.save(new MongoSyncFailure("GONE", 1, LocalDateTime.now(), "timeout"));
+
+        MongoSyncReconciler.ReplayResult result = reconciler.replay();
+        assertEquals(1, result.getReplayed());
+        assertEquals(0, result.getRemaining());
+        verify(writer).deleteVersions(Map.of("GONE", Set.of(1)));
+    }
+
+    @Test
+    public void shouldEndTheRunAfterAFailedBatch() {
+        doThrow(new IllegalStateException("Mongo unavailable")).when(writer).deleteVersions(anyMap());
+        failureRepo.save(new MongoSyncFailure("GONE-1", 1, LocalDateTime.now(), "timeout"));
+        failureRepo.save(new MongoSyncFailure("GONE-2", 1, LocalDateTime.now(), "timeout"));
+
+        MongoSyncReconciler.ReplayResult result = reconciler.replay();
+        assertEquals(0, result.getReplayed());
+        assertEquals(1, result.getRescheduled());
+        assertEquals(2, result.getRemaining());
+        verify(writer).deleteVersions(anyMap());
+    }
+
+    @Test
+    public void shouldSkipFailuresNotYetDue() {
+        MongoSyncFailure failure = new MongoSyncFailure("LATER", 1, LocalDateTime.now(), "timeout");
+        failure.setNextAttemptAt(LocalDateTime.now().plusHours(1));
+        failureRepo.save(failure);
+
+        MongoSyncReconciler.ReplayResult result = reconciler.replay();
+        assertEquals(0, result.getReplayed());
+        assertEquals(1, result.getRemaining());
+    }
+}
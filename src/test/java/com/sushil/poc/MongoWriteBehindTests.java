@@ -0,0 +1,238 @@
+package com.sushil.poc;
+
+import com.sushil.poc.config.AsyncWorkExecutor;
+import com.sushil.poc.metrics.AsyncExecutorMetrics;
+import com.sushil.poc.metrics.MongoSyncMetrics;
+import com.sushil.poc.model.MongoSyncFailure;
+import com.sushil.poc.model.Trade;
+import com.sushil.poc.repository.jpa.MongoSyncFailureRepository;
+import com.sushil.poc.sync.MongoTradeWriter;
+import com.sushil.poc.sync.MongoWriteBehind;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import static com.sushil.poc.TestTrades.trade;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MongoWriteBehindTests {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final FakeMongoTradeWriter writer = new FakeMongoTradeWriter();
+    private final List<MongoSyncFailure> failures = new CopyOnWriteArrayList<>();
+    private AsyncWorkExecutor asyncExecutor;
+    private MongoWriteBehind writeBehind;
+
+    @BeforeEach
+    public void setUp() {
+        asyncExecutor = new AsyncWorkExecutor(new AsyncExecutorMetrics(registry), 1, 1, 10, 60000, "caller-runs",
+                5000, false);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        writeBehind.stop();
+        asyncExecutor.stop();
+    }
+
+    // Not started: nothing is flushed until stop() writes what is buffered in one batch
+    @Test
+    public void shouldCoalesceWritesPerTradeVersion() {
+        writeBehind = writeBehind(10, 5, 50);
+        writeBehind.enqueue(trade("W1", 1, "CP-1"));
+        writeBehind.enqueue(trade("W1", 2, "CP-1"));
+        writeBehind.enqueue(trade("W1", 1, "CP-2"));
+        writeBehind.enqueue(trade("W2", 1, "CP-1"));
+        assertEquals(3, writeBehind.size());
+
+        writeBehind.stop();
+
+        assertEquals(List.of(List.of("W1:1:CP-2", "W1:2:CP-1", "W2:1:CP-1")), writer.batches);
+        assertTrue(failures.isEmpty());
+    }
+
+    @Test
+    public void shouldRetryFailedFlushesWithBackoff() {
+        writer.failuresLeft = 2;
+        writeBehind = writeBehind(10, 5, 50);
+        writeBehind.start();
+        writeBehind.enqueue(trade("W1", 1, "CP-1"));
+
+        await(() -> writer.batches.size() == 1);
+
+        assertEquals(3, writer.attemptNanos.size());
+        // Backoff doubles after each failed attempt: 50ms, then 100ms
+        assertTrue(gapMs(0) >= 45, "first retry after " + gapMs(0) + "ms");
+        assertTrue(gapMs(1) >= 95, "second retry after " + gapMs(1) + "ms");
+        assertEquals(2.0, registry.get("mongo.writebehind.flush.failures").counter().count());
+        assertTrue(failures.isEmpty());
+    }
+
+    @Test
+    public void shouldRecordTradesThatExhaustTheirRetries() {
+        writer.failuresLeft = Integer.MAX_VALUE;
+        writeBehind = writeBehind(10, 2, 10);
+        writeBehind.start();
+        writeBehind.enqueue(trade("W1", 1, "CP-1"));
+
+        await(() -> !failures.isEmpty());
+
+        assertEquals(2, writer.attemptNanos.size());
+        assertEquals(1, failures.size());
+        assertEquals("W1", failures.get(0).getTradeId());
+        assertEquals(1, failures.get(0).getVersion());
+        assertEquals("Mongo unavailable", failures.get(0).getReason());
+        assertEquals(1.0, registry.get("mongo.writebehind.failed").tag("reason", "retries-exhausted").counter().count());
+        assertEquals(0, writeBehind.size());
+    }
+
+    @Test
+    public void shouldRecordTradesThatOverflowTheBuffer() {
+        writeBehind = writeBehind(2, 5, 50);
+        writeBehind.enqueue(trade("W1", 1, "CP-1"));
+        writeBehind.enqueue(trade("W2", 1, "CP-1"));
+        // Coalesced into a buffered document, so it still fits
+        writeBehind.enqueue(trade("W2", 1, "CP-2"));
+        writeBehind.enqueue(trade("W3", 1, "CP-1"));
+
+        assertEquals(1, failures.size());
+        assertEquals("W3", failures.get(0).getTradeId());
+        assertEquals("Mongo write-behind buffer full", failures.get(0).getReason());
+        assertEquals(1.0, registry.get("mongo.writebehind.failed").tag("reason", "overflow").counter().count());
+
+        writeBehind.stop();
+        assertEquals(List.of(List.of("W1:1:CP-1", "W2:1:CP-2")), writer.batches);
+    }
+
+    @Test
+    public void shouldNotWriteBufferedTradesOnceDeleted() {
+        writeBehind = writeBehind(10, 5, 50);
+        writeBehind.enqueue(trade("W1", 1, "CP-1"));
+        writeBehind.enqueue(trade("W1", 2, "CP-1"));
+        writeBehind.enqueue(trade("W2", 1, "CP-1"));
+        writer.documents.put("W1:1", "CP-0");
+
+        writeBehind.delete("W1", List.of(1, 2));
+        writeBehind.stop();
+
+        assertEquals(Map.of("W2:1", "CP-1"), writer.documents);
+        assertTrue(failures.isEmpty());
+    }
+
+    // The tombstone waits for the write already in flight, so the document it writes is removed after it
+    @Test
+    public void shouldRemoveTradeDeletedWhileItsWriteIsInFlight() throws InterruptedException {
+        writer.blockUpserts = new CountDownLatch(1);
+        writeBehind = writeBehind(10, 5, 50);
+        writeBehind.start();
+        writeBehind.enqueue(trade("W1", 1, "CP-1"));
+        assertTrue(writer.upsertStarted.await(5, TimeUnit.SECONDS));
+
+        writeBehind.delete("W1", List.of(1));
+        writer.blockUpserts.countDown();
+
+        await(() -> writer.deletes.get() == 1 && writeBehind.size() == 0);
+        assertTrue(writer.documents.isEmpty());
+    }
+
+    private MongoWriteBehind writeBehind(int capacity, int maxAttempts, long backoffMs) {
+        MongoSyncFailureRepository failureRepo = mock(MongoSyncFailureRepository.class);
+        when(failureRepo.saveAll(anyList())).thenAnswer(invocation -> {
+            List<MongoSyncFailure> saved = invocation.getArgument(0);
+            failures.addAll(saved);
+            return saved;
+        });
+        return new MongoWriteBehind(writer, failureRepo, new MongoSyncMetrics(registry),
+                mock(PlatformTransactionManager.class), asyncExecutor, true, capacity, 100, 10, maxAttempts,
+                backoffMs, 10000);
+    }
+
+    private long gapMs(int attempt) {
+        return TimeUnit.NANOSECONDS.toMillis(writer.attemptNanos.get(attempt + 1) - writer.attemptNanos.get(attempt));
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5s");
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted");
+            }
+        }
+    }
+
+    /**
+     * Records each successful batch as tradeId:version:counterPartyId and keeps
+     * the resulting documents; fails the first {@code failuresLeft} calls and
+     * holds upserts while {@code blockUpserts} is set and not yet released.
+     */
+    private static final class FakeMongoTradeWriter extends MongoTradeWriter {
+        private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+        private final List<Long> attemptNanos = new CopyOnWriteArrayList<>();
+        private final Map<String, String> documents = new ConcurrentHashMap<>();
+        private final AtomicInteger deletes = new AtomicInteger();
+        private final CountDownLatch upsertStarted = new CountDownLatch(1);
+        private volatile CountDownLatch blockUpserts;
+        private volatile int failuresLeft;
+
+        FakeMongoTradeWriter() {
+            super(null);
+        }
+
+        @Override
+        public void deleteVersions(Map<String, ? extends Collection<Integer>> versionsByTradeId) {
+            if (versionsByTradeId.isEmpty()) {
+                return;
+            }
+            for (Map.Entry<String, ? extends Collection<Integer>> entry : versionsByTradeId.entrySet()) {
+                for (int version : entry.getValue()) {
+                    documents.remove(entry.getKey() + ':' + version);
+                }
+            }
+            deletes.incrementAndGet();
+        }
+
+        @Override
+        public void upsertAll(Collection<Trade> trades) {
+            if (trades.isEmpty()) {
+                return;
+            }
+            upsertStarted.countDown();
+            if (blockUpserts != null) {
+                try {
+                    blockUpserts.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            attemptNanos.add(System.nanoTime());
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                throw new IllegalStateException("Mongo unavailable");
+            }
+            List<String> batch = new ArrayList<>(trades.size());
+            for (Trade trade : trades) {
+                batch.add(trade.getTradeId() + ':' + trade.getVersion() + ':' + trade.getCounterPartyId());
+                documents.put(trade.getTradeId() + ':' + trade.getVersion(), trade.getCounterPartyId());
+            }
+            batches.add(batch);
+        }
+    }
+}
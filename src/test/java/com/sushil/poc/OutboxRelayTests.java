@@ -0,0 +1,106 @@
+package com.sushil.poc;
+
+import com.sushil.poc.exception.LowerVersionException;
+import com.sushil.poc.metrics.MongoSyncMetrics;
+import com.sushil.poc.model.Trade;
+import com.sushil.poc.repository.jpa.TradeOutboxRepository;
+import com.sushil.poc.repository.jpa.TradeRepository;
+import com.sushil.poc.service.TradeService;
+import com.sushil.poc.sync.OutboxRelay;
+import com.sushil.poc.sync.TradeOutbox;
+import com.sushil.poc.sync.TradeSink;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import static com.sushil.poc.TestTrades.trade;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Relays are built here with test sinks only and called directly; the application's own relay is off
+@SpringBootTest(properties = { "mongo.sync.mode=outbox", "mongo.outbox.relay.enabled=false" })
+public class OutboxRelayTests {
+    @Autowired
+    private TradeService tradeService;
+    @Autowired
+    private TradeOutbox outbox;
+    @Autowired
+    private TradeOutboxRepository outboxRepo;
+    @Autowired
+    private TradeRepository tradeRepo;
+
+    @AfterEach
+    public void cleanup() {
+        tradeService.deleteTradesById("O1");
+        tradeService.deleteTradesById("O2");
+        outboxRepo.deleteAll();
+    }
+
+    @Test
+    public void shouldRelayCurrentRowsAndDeleteRelayedChanges() {
+        tradeService.acceptTrade(trade("O1", 1));
+        tradeService.acceptTrade(trade("O1", 2));
+        tradeService.acceptTrade(trade("O2", 1));
+        tradeService.deleteTradesById("O2");
+        assertEquals(4, outboxRepo.count());
+
+        CapturingSink sink = new CapturingSink();
+        assertEquals(4, relay(sink).relay());
+
+        assertEquals(List.of("O1", "O2"), sink.tradeIds);
+        // O2 was deleted: it is among the changed trades but has no current rows
+        assertEquals(2, sink.current.size());
+        for (Trade trade : sink.current) {
+            assertEquals("O1", trade.getTradeId());
+        }
+        assertEquals(0, outboxRepo.count());
+    }
+
+    @Test
+    public void shouldKeepChangesWhenSinkFailsAndRelayThemOnRetry() {
+        tradeService.acceptTrade(trade("O1", 1));
+        tradeService.acceptTrade(trade("O1", 2));
+        tradeService.acceptTrade(trade("O2", 1));
+        assertThrows(LowerVersionException.class, () -> tradeService.acceptTrade(trade("O1", 1)));
+        // The rejected write rolled back its outbox row with it
+        assertEquals(3, outboxRepo.count());
+
+        CapturingSink sink = new CapturingSink();
+        assertThrows(IllegalStateException.class, () -> relay(sink, new FailingSink()).relay());
+        assertEquals(3, sink.current.size());
+        assertEquals(3, outboxRepo.count());
+
+        CapturingSink retried = new CapturingSink();
+        assertEquals(3, relay(retried).relay());
+        assertEquals(List.of("O1", "O2"), retried.tradeIds);
+        assertEquals(3, retried.current.size());
+        assertEquals(0, outboxRepo.count());
+    }
+
+    private OutboxRelay relay(TradeSink... sinks) {
+        return new OutboxRelay(outbox, outboxRepo, tradeRepo, List.of(sinks),
+                new MongoSyncMetrics(new SimpleMeterRegistry()), false, 500, 100, 200, 30000);
+    }
+
+    private static class CapturingSink implements TradeSink {
+        private List<String> tradeIds = new ArrayList<>();
+        private List<Trade> current = new ArrayList<>();
+
+        @Override
+        public void apply(Collection<String> tradeIds, List<Trade> current) {
+            this.tradeIds = new ArrayList<>(tradeIds);
+            this.current = new ArrayList<>(current);
+        }
+    }
+
+    private static class FailingSink implements TradeSink {
+        @Override
+        public void apply(Collection<String> tradeIds, List<Trade> current) {
+            throw new IllegalStateException("Sink unavailable");
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.sushil.poc;
+
+import com.sushil.poc.queue.RingBufferQueue;
+import com.sushil.poc.queue.WaitStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RingBufferQueueTests {
+
+    @Test
+    public void shouldBeFifoAndBounded() throws InterruptedException {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(3, WaitStrategy.PARKING);
+        assertTrue(queue.offer(1));
+        assertTrue(queue.offer(2));
+        assertTrue(queue.offer(3));
+        assertFalse(queue.offer(4));
+        assertFalse(queue.offer(4, 5, TimeUnit.MILLISECONDS));
+        assertEquals(3, queue.size());
+        assertEquals(0, queue.remainingCapacity());
+        assertEquals(Integer.valueOf(1), queue.peek());
+
+        assertEquals(Integer.valueOf(1), queue.poll());
+        assertTrue(queue.offer(4));
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(3, queue.drainTo(drained, 10));
+        assertEquals(List.of(2, 3, 4), drained);
+        assertNull(queue.poll(5, TimeUnit.MILLISECONDS));
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void shouldDeliverEveryElementOnceUnderContention() throws Exception {
+        int producers = 4;
+        int consumers = 2;
+        int perProducer = 20000;
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(64, WaitStrategy.YIELDING);
+        ConcurrentHashMap<Integer, Boolean> seen = new ConcurrentHashMap<>();
+        AtomicInteger duplicates = new AtomicInteger();
+        CountDownLatch produced = new CountDownLatch(producers);
+        ExecutorService pool = Executors.newFixedThreadPool(producers + consumers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int base = p * perProducer;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        queue.put(base + i);
+                    }
+                    produced.countDown();
+                    return null;
+                }));
+            }
+            for (int c = 0; c < consumers; c++) {
+                futures.add(pool.submit(() -> {
+                    while (produced.getCount() > 0 || !queue.isEmpty()) {
+                        Integer e = queue.poll(10, TimeUnit.MILLISECONDS);
+                        if (e != null && seen.put(e, Boolean.TRUE) != null) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(0, duplicates.get());
+        assertEquals(producers * perProducer, seen.size());
+    }
+}
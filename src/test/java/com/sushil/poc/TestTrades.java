@@ -0,0 +1,31 @@
+package com.sushil.poc;
+
+import com.sushil.poc.model.Trade;
+
+import java.time.LocalDate;
+
+/**
+ * Valid trades for tests that only care about the tradeId and version.
+ */
+final class TestTrades {
+
+    private TestTrades() {
+    }
+
+    static Trade trade(String tradeId) {
+        return trade(tradeId, 1);
+    }
+
+    static Trade trade(String tradeId, int version) {
+        return trade(tradeId, version, "CP-1");
+    }
+
+    static Trade trade(String tradeId, int version, String counterPartyId) {
+        Trade trade = new Trade();
+        trade.setTradeId(tradeId);
+        trade.setVersion(version);
+        trade.setCounterPartyId(counterPartyId);
+        trade.setMaturityDate(LocalDate.now().plusDays(1));
+        return trade;
+    }
+}
@@ -0,0 +1,107 @@
+package com.sushil.poc;
+
+import com.sushil.poc.cache.TradeCache;
+import com.sushil.poc.cache.TradeCacheWarmer;
+import com.sushil.poc.model.Trade;
+import com.sushil.poc.repository.jpa.TradeRepository;
+import com.sushil.poc.repository.jpa.TradeVersion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TradeCacheTests {
+    private final TradeCache cache = new TradeCache(new SimpleMeterRegistry(), true, 100, 0, true);
+
+    @Test
+    public void shouldReturnLatestVersionOnHitAndNullOnMiss() {
+        assertNull(cache.getLatest("C1"));
+        cache.putLatest("C1", 2, 20L);
+        cache.putLatest("C1", 1, 10L);
+
+        TradeCache.CachedVersion cached = cache.getLatest("C1");
+        assertEquals(2, cached.getVersion());
+        assertEquals(20L, cached.getId());
+        assertNull(cache.getLatest("C2"));
+    }
+
+    // Other instances' writes are missed until entries expire, so version checks are opt-in
+    @Test
+    public void shouldNotServeVersionChecksUnlessEnabled() {
+        TradeCache multiWriter = new TradeCache(new SimpleMeterRegistry(), true, 100, 0, false);
+        multiWriter.putLatest("C1", 2, 20L);
+        assertNull(multiWriter.getLatest("C1"));
+
+        Trade trade = new Trade();
+        trade.setTradeId("C1");
+        trade.setVersion(2);
+        multiWriter.putTrades("C1", List.of(trade), multiWriter.stamp());
+        assertEquals(2, multiWriter.getTrades("C1").get(0).getVersion());
+    }
+
+    @Test
+    public void shouldMissAfterInvalidate() {
+        cache.putLatest("C1", 1, 10L);
+        cache.invalidate("C1");
+        assertNull(cache.getLatest("C1"));
+    }
+
+    @Test
+    public void shouldNotRestoreTradeDeletedWhileWarming() {
+        cache.putLatest("C1", 1, 10L);
+        long stamp = cache.stamp();
+        // Deleted after the warm-up query read it
+        cache.invalidate("C1");
+        cache.putLatest("C1", 1, 10L, stamp);
+        assertNull(cache.getLatest("C1"));
+
+        cache.putLatest("C2", 1, 30L, stamp);
+        assertEquals(1, cache.getLatest("C2").getVersion());
+    }
+
+    @Test
+    public void shouldKeepVersionWrittenWhileWarming() {
+        long stamp = cache.stamp();
+        cache.putLatest("C1", 3, 30L);
+        cache.putLatest("C1", 2, 20L, stamp);
+        assertEquals(3, cache.getLatest("C1").getVersion());
+    }
+
+    @Test
+    public void shouldSkipWarmedEntriesInvalidatedDuringTheQuery() {
+        TradeRepository repo = mock(TradeRepository.class);
+        when(repo.findRecentLatestVersions(any(Limit.class))).thenAnswer(invocation -> {
+            cache.invalidate("C1");
+            return List.of(version("C1", 1, 10L), version("C2", 4, 40L));
+        });
+
+        new TradeCacheWarmer(repo, cache, 10).warm();
+
+        assertNull(cache.getLatest("C1"));
+        assertEquals(40L, cache.getLatest("C2").getId());
+    }
+
+    private static TradeVersion version(String tradeId, int version, Long id) {
+        return new TradeVersion() {
+            @Override
+            public String getTradeId() {
+                return tradeId;
+            }
+
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public int getVersion() {
+                return version;
+            }
+        };
+    }
+}
@@ -0,0 +1,138 @@
+package com.sushil.poc;
+
+import com.sushil.poc.codec.TradeBatchCodec;
+import com.sushil.poc.model.Trade;
+import com.sushil.poc.repository.jpa.TradeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class TradeControllerTests {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private TradeRepository repo;
+
+    @BeforeEach
+    public void cleanup() {
+        repo.deleteAll();
+    }
+
+    @Test
+    public void shouldExportAllTradesAsNdjson() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            Trade t = new Trade();
+            t.setTradeId("S" + i);
+            t.setVersion(1);
+            t.setMaturityDate(LocalDate.now().plusDays(i));
+            repo.save(t);
+        }
+
+        MvcResult async = mockMvc.perform(get("/api/v1/trades/export")).andExpect(request().asyncStarted()).andReturn();
+        String body = mockMvc.perform(asyncDispatch(async))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].contains("\"tradeId\":\"S1\""));
+        assertTrue(lines[2].contains("\"tradeId\":\"S3\""));
+    }
+
+    @Test
+    public void shouldPublishNdjsonStreamAndSkipBadDates() throws Exception {
+        String maturity = LocalDate.now().plusDays(5).toString();
+        String body = "{\"tradeId\":\"Q1\",\"version\":1,\"maturityDate\":\"" + maturity + "\"}\n"
+                + "{\"tradeId\":\"Q2\",\"version\":1,\"maturityDate\":\"not-a-date\"}\n"
+                + "{\"tradeId\":\"Q3\",\"version\":1,\"maturityDate\":\"" + maturity + "\"}\n";
+
+        mockMvc.perform(post("/api/v1/queue/publish/stream")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.published").value(2))
+                .andExpect(jsonPath("$.rejected").value(1));
+        awaitPersisted("Q1", "Q3");
+    }
+
+    @Test
+    public void shouldPublishBinaryBatchAndRejectTruncatedOnes() throws Exception {
+        Trade b1 = new Trade();
+        b1.setTradeId("B1");
+        b1.setVersion(1);
+        b1.setMaturityDate(LocalDate.now().plusDays(5));
+        Trade b2 = new Trade();
+        b2.setTradeId("B2");
+        b2.setVersion(2);
+        b2.setCounterPartyId("CP-1");
+        b2.setMaturityDate(LocalDate.now().plusDays(6));
+        byte[] batch = TradeBatchCodec.encode(List.of(b1, b2));
+
+        mockMvc.perform(post("/api/v1/queue/publish")
+                .contentType(TradeBatchCodec.CONTENT_TYPE)
+                .content(batch))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.enqueued").value(2))
+                .andExpect(jsonPath("$.rejected").value(0));
+        awaitPersisted("B1", "B2");
+
+        mockMvc.perform(post("/api/v1/queue/publish")
+                .contentType(TradeBatchCodec.CONTENT_TYPE)
+                .content(Arrays.copyOf(batch, batch.length - 3)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.enqueued").value(0));
+    }
+
+    @Test
+    public void shouldPageWithKeysetCursor() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            Trade t = new Trade();
+            t.setTradeId("K" + i);
+            t.setVersion(1);
+            t.setMaturityDate(LocalDate.now().plusDays(i));
+            repo.save(t);
+        }
+
+        MvcResult first = mockMvc.perform(get("/api/v1/trades").param("cursor", "").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].tradeId").value("K1"))
+                .andReturn();
+        String next = first.getResponse().getHeader("X-Next-Cursor");
+        assertNotNull(next);
+
+        mockMvc.perform(get("/api/v1/trades").param("cursor", next).param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].tradeId").value("K3"))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        mockMvc.perform(get("/api/v1/trades").param("cursor", "bogus!"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Queued trades are saved by the consumers; wait so they cannot land after the next test's cleanup
+    private void awaitPersisted(String... tradeIds) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        for (String tradeId : tradeIds) {
+            while (repo.findByTradeId(tradeId).isEmpty()) {
+                assertTrue(System.currentTimeMillis() < deadline, tradeId + " not persisted from the queue");
+                Thread.sleep(10);
+            }
+        }
+    }
+}
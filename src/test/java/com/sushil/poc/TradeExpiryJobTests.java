@@ -0,0 +1,81 @@
+package com.sushil.poc;
+
+import com.sushil.poc.job.TradeExpiryJob;
+import com.sushil.poc.model.JobCheckpoint;
+import com.sushil.poc.model.Trade;
+import com.sushil.poc.repository.jpa.JobCheckpointRepository;
+import com.sushil.poc.repository.jpa.TradeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+public class TradeExpiryJobTests {
+    @Autowired
+    private TradeExpiryJob expiryJob;
+    @Autowired
+    private TradeRepository repo;
+    @Autowired
+    private JobCheckpointRepository checkpointRepo;
+
+    @BeforeEach
+    public void cleanup() {
+        repo.deleteAll();
+        checkpointRepo.deleteAll();
+    }
+
+    @Test
+    public void shouldResumeAfterCheckpoint() {
+        Trade first = repo.save(matured("E1"));
+        Trade second = repo.save(matured("E2"));
+
+        // An earlier run today got as far as the first trade before stopping
+        JobCheckpoint checkpoint = new JobCheckpoint("trade-expiry");
+        checkpoint.setRunDate(LocalDate.now());
+        checkpoint.setLastId(first.getId());
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpointRepo.save(checkpoint);
+
+        TradeExpiryJob.ExpiryResult result = expiryJob.run();
+        assertEquals(1, result.getExpired());
+        assertTrue(result.isCompleted());
+        assertFalse(repo.findById(first.getId()).orElseThrow().isExpired());
+        assertTrue(repo.findById(second.getId()).orElseThrow().isExpired());
+        assertTrue(checkpointRepo.findById("trade-expiry").orElseThrow().isCompleted());
+    }
+
+    @Test
+    public void shouldStartOverWhenLastRunCompleted() {
+        Trade trade = repo.save(matured("E3"));
+        Trade live = matured("E4");
+        live.setMaturityDate(LocalDate.now());
+        repo.save(live);
+
+        JobCheckpoint checkpoint = new JobCheckpoint("trade-expiry");
+        checkpoint.setRunDate(LocalDate.now());
+        checkpoint.setLastId(Long.MAX_VALUE);
+        checkpoint.setCompleted(true);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpointRepo.save(checkpoint);
+
+        assertEquals(1, expiryJob.run().getExpired());
+        assertTrue(repo.findById(trade.getId()).orElseThrow().isExpired());
+        assertFalse(repo.findById(live.getId()).orElseThrow().isExpired());
+    }
+
+    private static Trade matured(String tradeId) {
+        Trade t = new Trade();
+        t.setTradeId(tradeId);
+        t.setVersion(1);
+        t.setMaturityDate(LocalDate.now().minusDays(1));
+        t.setCreatedDate(LocalDate.now().minusDays(10));
+        return t;
+    }
+}
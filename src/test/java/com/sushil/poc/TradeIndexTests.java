@@ -0,0 +1,63 @@
+package com.sushil.poc;
+
+import com.sushil.poc.cache.TradeCache;
+import com.sushil.poc.cache.TradeIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TradeIndexTests {
+    private final LocalDate today = LocalDate.of(2025, 6, 2);
+
+    @Test
+    public void shouldAnswerVersionChecksOnceLoaded() {
+        TradeIndex index = new TradeIndex(new SimpleMeterRegistry(), true, 16);
+        index.startLoad();
+        index.load("T1", 1, 10L, today.plusDays(5), false);
+        index.put("T1", 3, 30L, today.plusDays(9));
+        index.load("T1", 2, 20L, today.plusDays(7), false);
+        index.remove("T2");
+        index.load("T2", 1, 40L, today.plusDays(1), false);
+        assertNull(index.getLatest("T1"));
+        index.finishLoad();
+
+        TradeCache.CachedVersion latest = index.getLatest("T1");
+        assertEquals(3, latest.getVersion());
+        assertEquals(30L, latest.getId());
+        // Deleted while loading: only the database can tell
+        assertNull(index.getLatest("T2"));
+        assertSame(TradeIndex.NOT_FOUND, index.getLatest("T3"));
+
+        // Enough trades to grow the arrays and the hash table several times
+        for (int i = 0; i < 1000; i++) {
+            index.put("BULK-" + i, i, 1000L + i, today.plusDays(1));
+        }
+        assertEquals(1002, index.size());
+        assertEquals(500, index.getLatest("BULK-500").getVersion());
+        index.remove("BULK-500");
+        assertSame(TradeIndex.NOT_FOUND, index.getLatest("BULK-500"));
+    }
+
+    @Test
+    public void shouldTrackExpiryCandidates() {
+        TradeIndex index = new TradeIndex(new SimpleMeterRegistry(), true, 16);
+        assertTrue(index.hasExpiryCandidates(today));
+        index.startLoad();
+        index.load("E1", 1, 1L, today.minusDays(3), true);
+        index.load("E2", 1, 2L, today.minusDays(1), false);
+        index.load("E2", 2, 3L, today.plusDays(10), false);
+        index.finishLoad();
+
+        // E2 v1 matured yesterday and is not expired yet
+        assertTrue(index.hasExpiryCandidates(today));
+        index.expired("E2", today.plusDays(10), today);
+        assertFalse(index.hasExpiryCandidates(today));
+        assertFalse(index.hasExpiryCandidates(today.plusDays(10)));
+        assertTrue(index.hasExpiryCandidates(today.plusDays(11)));
+
+        index.put("E3", 1, 4L, today);
+        assertTrue(index.hasExpiryCandidates(today.plusDays(1)));
+    }
+}
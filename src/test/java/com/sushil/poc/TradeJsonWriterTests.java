@@ -0,0 +1,49 @@
+package com.sushil.poc;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sushil.poc.mapper.TradeJsonWriter;
+import com.sushil.poc.mapper.TradeMapper;
+import com.sushil.poc.model.Trade;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TradeJsonWriterTests {
+    // Dates as yyyy-MM-dd, as Spring Boot configures the application's ObjectMapper
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+    private final TradeMapper mapper = new TradeMapper();
+
+    // The streamed body must be byte-for-byte what Jackson writes for the mapped DTOs
+    @Test
+    public void shouldWriteSameJsonAsResponseDtos() throws Exception {
+        Trade full = new Trade();
+        full.setTradeId("T\"1\u00e9");
+        full.setVersion(3);
+        full.setCounterPartyId("CP-1");
+        full.setBookId("B1");
+        full.setMaturityDate(LocalDate.of(2025, 1, 9));
+        full.setCreatedDate(LocalDate.of(987, 12, 31));
+        full.setExpired(true);
+        Trade sparse = new Trade();
+        sparse.setTradeId("T2");
+        sparse.setMaturityDate(LocalDate.of(12345, 6, 7));
+        List<Trade> trades = List.of(full, sparse);
+
+        StringWriter streamed = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(streamed)) {
+            TradeJsonWriter.writeArray(generator, trades);
+        }
+
+        String expected = objectMapper.writeValueAsString(
+                trades.stream().map(mapper::toResponseDTO).collect(Collectors.toList()));
+        assertEquals(expected, streamed.toString());
+    }
+}
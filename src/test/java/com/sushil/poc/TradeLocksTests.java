@@ -0,0 +1,104 @@
+package com.sushil.poc;
+
+import com.sushil.poc.exception.LowerVersionException;
+import com.sushil.poc.model.Trade;
+import com.sushil.poc.repository.jpa.TradeRepository;
+import com.sushil.poc.service.TradeService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class TradeLocksTests {
+    private static final String TRADE_ID = "LOCK-1";
+
+    @Autowired
+    private TradeService tradeService;
+    @Autowired
+    private TradeRepository repo;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    public void cleanup() {
+        tradeService.deleteTradesById(TRADE_ID);
+    }
+
+    // Versions committed to one trade by concurrent writers never go backwards
+    @Test
+    public void shouldLinearizeConcurrentWritesToSameTrade() throws Exception {
+        long lockWaitsBefore = meterRegistry.get("trade.accept.step").tag("path", "single").tag("step", "lock-wait")
+                .timer().count();
+        List<Integer> versions = new ArrayList<>();
+        for (int v = 1; v <= 200; v++) {
+            versions.add(v);
+        }
+        Collections.shuffle(versions);
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService writers = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(writers.submit(() -> {
+                start.await();
+                for (int n = next.getAndIncrement(); n < versions.size(); n = next.getAndIncrement()) {
+                    Trade trade = new Trade();
+                    trade.setTradeId(TRADE_ID);
+                    trade.setVersion(versions.get(n));
+                    trade.setMaturityDate(LocalDate.now().plusDays(10));
+                    try {
+                        tradeService.acceptTrade(trade);
+                        accepted.incrementAndGet();
+                    } catch (LowerVersionException e) {
+                        // Expected for versions that lost the race
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        writers.shutdown();
+
+        List<Trade> stored = new ArrayList<>(repo.findByTradeId(TRADE_ID));
+        stored.sort(Comparator.comparing(Trade::getId));
+        assertEquals(accepted.get(), stored.size());
+        for (int i = 1; i < stored.size(); i++) {
+            assertTrue(stored.get(i).getVersion() > stored.get(i - 1).getVersion(),
+                    "v" + stored.get(i).getVersion() + " committed after v" + stored.get(i - 1).getVersion());
+        }
+        assertEquals(200, stored.get(stored.size() - 1).getVersion());
+        assertEquals(lockWaitsBefore + 200, meterRegistry.get("trade.accept.step").tag("path", "single")
+                .tag("step", "lock-wait").timer().count());
+    }
+
+    @Test
+    public void shouldRecordDeleteLockWaitsUnderTheDeletePath() {
+        long singleBefore = lockWaits("single");
+        long deleteBefore = lockWaits("delete");
+        tradeService.deleteTradesById(TRADE_ID);
+        assertEquals(singleBefore, lockWaits("single"));
+        assertEquals(deleteBefore + 1, lockWaits("delete"));
+    }
+
+    private long lockWaits(String path) {
+        return meterRegistry.get("trade.accept.step").tag("path", path).tag("step", "lock-wait").timer().count();
+    }
+}
@@ -0,0 +1,81 @@
+package com.sushil.poc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sushil.poc.metrics.QueueMetrics;
+import com.sushil.poc.model.Trade;
+import com.sushil.poc.queue.InMemoryQueue;
+import com.sushil.poc.queue.TradePublisher;
+import com.sushil.poc.queue.TradePublisher.PublishResult;
+import com.sushil.poc.queue.TradeSpill;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import static com.sushil.poc.TestTrades.trade;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TradePublisherTests {
+    private final InMemoryQueue queue = mock(InMemoryQueue.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private TradeSpill spill;
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    public void tearDown() {
+        spill.stop();
+    }
+
+    @Test
+    public void shouldWaitThenRejectStreamedTradesUnderReject() throws InterruptedException {
+        TradePublisher publisher = publisher("reject");
+        when(queue.send(any(Trade.class), eq(250L), eq(TimeUnit.MILLISECONDS))).thenReturn(true, false);
+
+        assertEquals(PublishResult.ENQUEUED, publisher.publish(trade("P1"), 250));
+        assertEquals(PublishResult.REJECTED, publisher.publish(trade("P2"), 250));
+        assertEquals(1.0, registry.get("queue.trades.rejected").counter().count());
+        assertEquals(0, spill.pending());
+    }
+
+    @Test
+    public void shouldSpillStreamedTradesOnceTheQueueStaysFull() throws InterruptedException {
+        TradePublisher publisher = publisher("spill");
+        when(queue.send(any(Trade.class), eq(250L), eq(TimeUnit.MILLISECONDS))).thenReturn(false);
+
+        assertEquals(PublishResult.SPILLED, publisher.publish(trade("P1"), 250));
+        // With a trade already spilled, the next one is spilled behind it without trying the queue
+        when(queue.send(any(Trade.class), anyLong(), any(TimeUnit.class))).thenReturn(true);
+        assertEquals(PublishResult.SPILLED, publisher.publish(trade("P2"), 250));
+        assertEquals(2, spill.pending());
+        verify(queue).send(any(Trade.class), eq(250L), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void shouldReportDrainingSeparatelyFromAFullQueue() throws InterruptedException {
+        TradePublisher publisher = publisher("spill");
+        when(queue.isDraining()).thenReturn(true);
+
+        assertEquals(PublishResult.DRAINING, publisher.publish(trade("P1"), 250));
+        assertEquals(PublishResult.DRAINING, publisher.publish(trade("P2")));
+        verify(queue, never()).send(any(Trade.class), anyLong(), any(TimeUnit.class));
+        assertEquals(0, spill.pending());
+        assertEquals(0.0, registry.get("queue.trades.rejected").counter().count());
+    }
+
+    private TradePublisher publisher(String policy) {
+        spill = new TradeSpill(new ObjectMapper().registerModule(new JavaTimeModule()), dir.toString(), 1 << 20);
+        return new TradePublisher(queue, spill, new QueueMetrics(registry), policy, 1000, 60);
+    }
+}
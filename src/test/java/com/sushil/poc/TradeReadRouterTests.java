@@ -0,0 +1,81 @@
+package com.sushil.poc;
+
+import com.sushil.poc.metrics.MongoSyncMetrics;
+import com.sushil.poc.model.Trade;
+import com.sushil.poc.repository.jpa.MongoSyncFailureRepository;
+import com.sushil.poc.repository.jpa.TradeOutboxRepository;
+import com.sushil.poc.repository.jpa.TradeRepository;
+import com.sushil.poc.service.TradeReadRouter;
+import com.sushil.poc.service.TradeService;
+import com.sushil.poc.sync.MongoWriteBehind;
+import com.sushil.poc.sync.OutboxRelay;
+import com.sushil.poc.sync.TradeOutbox;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = { "trade.read.mongo.enabled=true", "trade.read.mongo.max-lag-ms=600000",
+        "trade.cache.enabled=false" })
+public class TradeReadRouterTests {
+    @Autowired
+    private TradeService tradeService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private MongoWriteBehind mongoWriteBehind;
+    @Autowired
+    private TradeOutbox outbox;
+    @Autowired
+    private TradeOutboxRepository outboxRepo;
+    @Autowired
+    private TradeRepository tradeRepo;
+    @Autowired
+    private MongoSyncFailureRepository failureRepo;
+
+    @AfterEach
+    public void cleanup() {
+        tradeService.deleteTradesById("R1");
+    }
+
+    // No Mongo runs in tests, so routed reads fail over to SQL
+    @Test
+    public void shouldFallBackToSqlWhenMongoReadFails() {
+        Trade trade = new Trade();
+        trade.setTradeId("R1");
+        trade.setVersion(1);
+        trade.setMaturityDate(LocalDate.now().plusDays(10));
+        tradeService.acceptTrade(trade);
+        double errorsBefore = meterRegistry.get("trade.reads").tag("reason", "mongo-error").counter().count();
+
+        List<Trade> trades = tradeService.getTradesById("R1");
+        assertEquals(1, trades.size());
+        assertEquals(1, trades.get(0).getVersion());
+        assertTrue(meterRegistry.get("trade.reads").tag("reason", "mongo-error").counter().count() > errorsBefore);
+    }
+
+    // In outbox mode only a local relay keeps Mongo in sync; the idle write-behind must not count
+    @Test
+    public void shouldReadFromSqlInOutboxModeWithoutLocalRelay() {
+        assertTrue(outbox.isEnabled());
+        assertTrue(mongoWriteBehind.isEnabled());
+
+        assertFalse(router(false).useMongo());
+        assertTrue(router(true).useMongo());
+    }
+
+    // Neither the relay nor the router is started; only the routing decision is under test
+    private TradeReadRouter router(boolean relayEnabled) {
+        MongoSyncMetrics syncMetrics = new MongoSyncMetrics(new SimpleMeterRegistry());
+        OutboxRelay relay = new OutboxRelay(outbox, outboxRepo, tradeRepo, List.of(), syncMetrics, relayEnabled,
+                500, 100, 200, 30000);
+        return new TradeReadRouter(mongoWriteBehind, outbox, relay, failureRepo, syncMetrics,
+                new SimpleMeterRegistry(), true, 600000, 100);
+    }
+}
@@ -3,8 +3,11 @@ package com.sushil.poc;
 import com.sushil.poc.exception.LowerVersionException;
 import com.sushil.poc.exception.MaturityDateException;
 import com.sushil.poc.model.Trade;
+import com.sushil.poc.repository.jpa.TradeJdbcRepository;
 import com.sushil.poc.repository.jpa.TradeRepository;
+import com.sushil.poc.service.TradeOutcome;
 import com.sushil.poc.service.TradeService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +15,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
@@ -21,6 +25,10 @@ public class TradeServiceTests {
     private TradeService tradeService;
     @Autowired
     private TradeRepository repo;
+    @Autowired
+    private TradeJdbcRepository jdbcRepo;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     @BeforeEach
     public void cleanup() {
@@ -43,6 +51,19 @@ public class TradeServiceTests {
         assertThrows(LowerVersionException.class, () -> tradeService.acceptTrade(lower));
     }
 
+    @Test
+    public void shouldTimeAcceptByOutcome() {
+        long rejectedBefore = meterRegistry.get("trade.accept").tag("outcome", "maturity-rejected").timer().count();
+        Trade t = new Trade();
+        t.setTradeId("T11");
+        t.setVersion(1);
+        t.setMaturityDate(LocalDate.now().minusDays(1));
+
+        assertThrows(MaturityDateException.class, () -> tradeService.acceptTrade(t));
+        assertEquals(rejectedBefore + 1,
+                meterRegistry.get("trade.accept").tag("outcome", "maturity-rejected").timer().count());
+    }
+
     @Test
     public void shouldRejectMaturityBeforeToday() {
         Trade t = new Trade();
@@ -72,6 +93,28 @@ public class TradeServiceTests {
         assertEquals("CP-2", saved.getCounterPartyId());
     }
 
+    @Test
+    public void shouldUpsertSameVersionInPlace() {
+        Trade t1 = new Trade();
+        t1.setTradeId("T10");
+        t1.setVersion(1);
+        t1.setCounterPartyId("CP-1");
+        t1.setMaturityDate(LocalDate.now().plusDays(5));
+        Long firstId = tradeService.acceptTrade(t1).getId();
+
+        Trade t2 = new Trade();
+        t2.setId(12345L); // ignored: the row is identified by tradeId and version
+        t2.setTradeId("T10");
+        t2.setVersion(1);
+        t2.setCounterPartyId("CP-2");
+        t2.setMaturityDate(LocalDate.now().plusDays(5));
+        assertEquals(firstId, tradeService.acceptTrade(t2).getId());
+
+        List<Trade> stored = repo.findByTradeId("T10");
+        assertEquals(1, stored.size());
+        assertEquals("CP-2", stored.get(0).getCounterPartyId());
+    }
+
     @Test
     public void shouldMarkExpiredTrades() {
         // Step 1: Insert trade with valid (future) maturity date
@@ -127,4 +170,88 @@ public class TradeServiceTests {
         assertNotNull(saved);
         assertEquals(2, saved.getVersion());
     }
-}
\ No newline at end of file
+
+    // Batch path reports each trade's outcome without rolling back the others
+    @Test
+    public void shouldReportPerTradeOutcomesForBatch() {
+        Trade v2 = new Trade();
+        v2.setTradeId("T7");
+        v2.setVersion(2);
+        v2.setMaturityDate(LocalDate.now().plusDays(10));
+
+        Trade v1 = new Trade();
+        v1.setTradeId("T7");
+        v1.setVersion(1);
+        v1.setMaturityDate(LocalDate.now().plusDays(10));
+
+        Trade matured = new Trade();
+        matured.setTradeId("T8");
+        matured.setVersion(1);
+        matured.setMaturityDate(LocalDate.now().minusDays(1));
+
+        List<TradeOutcome> outcomes = tradeService.acceptTrades(List.of(v2, v1, matured));
+        assertEquals(List.of(TradeOutcome.ACCEPTED, TradeOutcome.LOWER_VERSION, TradeOutcome.MATURITY_REJECTED),
+                outcomes);
+        assertEquals(1, repo.findByTradeId("T7").size());
+    }
+
+    // Within a batch, a repeated version replaces the earlier one and existing rows are updated in place
+    @Test
+    public void shouldApplyBatchInOrder() {
+        Trade existing = new Trade();
+        existing.setTradeId("T9");
+        existing.setVersion(1);
+        existing.setCounterPartyId("CP-1");
+        existing.setMaturityDate(LocalDate.now().plusDays(10));
+        Long existingId = tradeService.acceptTrade(existing).getId();
+
+        Trade replaceV1 = new Trade();
+        replaceV1.setTradeId("T9");
+        replaceV1.setVersion(1);
+        replaceV1.setCounterPartyId("CP-2");
+        replaceV1.setMaturityDate(LocalDate.now().plusDays(10));
+
+        Trade v2 = new Trade();
+        v2.setTradeId("T9");
+        v2.setVersion(2);
+        v2.setCounterPartyId("CP-3");
+        v2.setMaturityDate(LocalDate.now().plusDays(10));
+
+        Trade v2Again = new Trade();
+        v2Again.setTradeId("T9");
+        v2Again.setVersion(2);
+        v2Again.setCounterPartyId("CP-4");
+        v2Again.setMaturityDate(LocalDate.now().plusDays(10));
+
+        List<TradeOutcome> outcomes = tradeService.acceptTrades(List.of(replaceV1, v2, v2Again));
+        assertEquals(List.of(TradeOutcome.ACCEPTED, TradeOutcome.ACCEPTED, TradeOutcome.ACCEPTED), outcomes);
+        assertEquals(existingId, replaceV1.getId());
+
+        List<Trade> stored = repo.findByTradeId("T9");
+        assertEquals(2, stored.size());
+        assertEquals("CP-2", repo.findByTradeIdAndVersion("T9", 1).orElseThrow().getCounterPartyId());
+        assertEquals("CP-4", repo.findByTradeIdAndVersion("T9", 2).orElseThrow().getCounterPartyId());
+    }
+
+    // An update whose row id matches nothing is handed back instead of being counted as written
+    @Test
+    public void shouldReturnBatchUpdatesThatMatchedNoRow() {
+        Trade existing = new Trade();
+        existing.setTradeId("T10");
+        existing.setVersion(1);
+        existing.setCounterPartyId("CP-1");
+        existing.setMaturityDate(LocalDate.now().plusDays(10));
+        tradeService.acceptTrade(existing);
+        existing.setCounterPartyId("CP-2");
+
+        Trade stale = new Trade();
+        stale.setId(-1L);
+        stale.setTradeId("T12");
+        stale.setVersion(1);
+        stale.setMaturityDate(LocalDate.now().plusDays(10));
+
+        assertEquals(List.of(stale), jdbcRepo.batchUpdate(List.of(existing, stale)));
+        assertEquals("CP-2", repo.findByTradeIdAndVersion("T10", 1).orElseThrow().getCounterPartyId());
+        assertTrue(repo.findByTradeId("T12").isEmpty());
+    }
+}
@@ -0,0 +1,66 @@
+package com.sushil.poc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sushil.poc.model.Trade;
+import com.sushil.poc.queue.TradeSpill;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import static com.sushil.poc.TestTrades.trade;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TradeSpillTests {
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void shouldReplayInOrderAndKeepRefusedTrades() {
+        TradeSpill spill = new TradeSpill(objectMapper, dir.toString(), 1 << 20);
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(spill.append(trade("S" + i)));
+        }
+        assertEquals(5, spill.pending());
+
+        List<String> taken = new ArrayList<>();
+        assertEquals(2, spill.drain(t -> taken.size() < 2 && taken.add(t.getTradeId())));
+        assertTrue(spill.append(trade("S6")));
+        assertEquals(4, spill.pending());
+
+        assertEquals(4, spill.drain(t -> taken.add(t.getTradeId())));
+        assertEquals(List.of("S1", "S2", "S3", "S4", "S5", "S6"), taken);
+        assertEquals(0, spill.pending());
+        spill.stop();
+    }
+
+    @Test
+    public void shouldRecoverSpilledTradesAfterRestart() {
+        TradeSpill spill = new TradeSpill(objectMapper, dir.toString(), 1 << 20);
+        spill.append(trade("R1"));
+        spill.append(trade("R2"));
+        spill.stop();
+
+        TradeSpill restarted = new TradeSpill(objectMapper, dir.toString(), 1 << 20);
+        assertEquals(2, restarted.pending());
+        List<Trade> taken = new ArrayList<>();
+        restarted.drain(taken::add);
+        assertEquals("R1", taken.get(0).getTradeId());
+        assertEquals(LocalDate.now().plusDays(1), taken.get(0).getMaturityDate());
+        restarted.stop();
+    }
+
+    @Test
+    public void shouldRefuseTradesOnceFull() {
+        TradeSpill spill = new TradeSpill(objectMapper, dir.toString(), 200);
+        assertTrue(spill.append(trade("F1")));
+        assertFalse(spill.append(trade("F2")));
+        assertEquals(1, spill.pending());
+        spill.stop();
+    }
+}
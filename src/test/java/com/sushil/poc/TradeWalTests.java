@@ -0,0 +1,106 @@
+package com.sushil.poc;
+
+import com.sushil.poc.metrics.QueueMetrics;
+import com.sushil.poc.queue.QueuedTrade;
+import com.sushil.poc.queue.TradeWal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import static com.sushil.poc.TestTrades.trade;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TradeWalTests {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void shouldReplayUnacknowledgedTradesAfterRestart() {
+        TradeWal wal = open(1 << 20);
+        long first = wal.append(trade("W1"));
+        long second = wal.append(trade("W2"));
+        long cancelled = wal.append(trade("W3"));
+        wal.append(trade("W4"));
+        wal.ack(first);
+        wal.cancel(cancelled);
+        wal.awaitDurable(second);
+        wal.stop();
+
+        TradeWal restarted = open(1 << 20);
+        List<String> replayed = new ArrayList<>();
+        for (QueuedTrade queued : restarted.takeRecovered()) {
+            replayed.add(queued.getTrade().getTradeId());
+        }
+        assertEquals(List.of("W2", "W4"), replayed);
+        assertTrue(restarted.append(trade("W5")) > cancelled);
+        restarted.stop();
+    }
+
+    @Test
+    public void shouldDeleteSegmentsBehindTheCheckpoint() {
+        TradeWal wal = open(4096);
+        List<Long> sequences = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            sequences.add(wal.append(trade("S" + i)));
+        }
+        assertTrue(wal.segmentCount() > 1);
+        for (long sequence : sequences) {
+            wal.ack(sequence);
+        }
+        wal.stop();
+        assertEquals(1, wal.segmentCount());
+
+        TradeWal restarted = open(4096);
+        assertTrue(restarted.takeRecovered().isEmpty());
+        restarted.stop();
+    }
+
+    @Test
+    public void shouldKeepUnacknowledgedTradesWhenACancellationRollsTheSegment() {
+        TradeWal wal = open(4096);
+        wal.ack(wal.append(trade("C1")));
+        long cancelled = wal.append(trade("C2"));
+        long kept = wal.append(trade("C3"));
+        // Cancellations only, until one of them no longer fits and starts a new segment
+        for (int i = 0; i < 1000 && wal.segmentCount() == 1; i++) {
+            wal.cancel(cancelled);
+        }
+        assertEquals(2, wal.segmentCount());
+        // Moves the checkpoint up to the trade still outstanding
+        wal.stop();
+        assertEquals(2, wal.segmentCount());
+
+        TradeWal restarted = open(4096);
+        List<QueuedTrade> recovered = restarted.takeRecovered();
+        assertEquals(1, recovered.size());
+        assertEquals(kept, recovered.get(0).getWalSequence());
+        assertEquals("C3", recovered.get(0).getTrade().getTradeId());
+        restarted.stop();
+    }
+
+    @Test
+    public void shouldKeepLoggingAfterATradeThatCannotBeEncoded() {
+        TradeWal wal = open(1 << 20);
+        wal.append(trade("E1"));
+        // Over the 32767-byte limit of an encoded string
+        assertThrows(IllegalArgumentException.class, () -> wal.append(trade("E".repeat(40000))));
+        long last = wal.append(trade("E2"));
+        wal.awaitDurable(last);
+        wal.stop();
+
+        TradeWal restarted = open(1 << 20);
+        List<String> replayed = new ArrayList<>();
+        for (QueuedTrade queued : restarted.takeRecovered()) {
+            replayed.add(queued.getTrade().getTradeId());
+        }
+        assertEquals(List.of("E1", "E2"), replayed);
+        restarted.stop();
+    }
+
+    private TradeWal open(int segmentBytes) {
+        return new TradeWal(new QueueMetrics(new SimpleMeterRegistry()), true, dir.toString(), segmentBytes, 5, true);
+    }
+}